@@ -0,0 +1,88 @@
+#!/bin/sh
+# converts IEEE13, IEEE123 and a FeederGenerator model with a baseline commit and with the
+# working tree, then checks that the glm, dss and idx files have the same contents, that the
+# default and sequential thread settings give byte-identical files, and that an incremental
+# (-d=1) glm export writes the same symbols file as a full one, e.g. ./compare_outputs.sh master
+# each model is loaded in turn into a scratch namespace, which is created if missing and
+# cleared before each model; do not point this at a namespace holding other data
+# needs a running Blazegraph, e.g. java -server -Xmx4g -jar blazegraph.jar
+if [ $# -lt 1 ]; then
+  echo "Usage: ./compare_outputs.sh baseline_commit [blazegraph_root]"
+  echo "       blazegraph_root defaults to http://localhost:9999/blazegraph"
+  exit 1
+fi
+BASE=$1
+ROOT=${2:-http://localhost:9999/blazegraph}
+NS=cim2glm_compare
+URL=$ROOT/namespace/$NS/sparql
+cd `dirname $0`/..
+HERE=`pwd`
+WORK=`mktemp -d`
+trap 'git worktree remove --force $WORK/baseline >/dev/null 2>&1; rm -rf $WORK' EXIT
+
+git worktree add --detach $WORK/baseline $BASE >/dev/null || exit 1
+(cd $WORK/baseline/blazegraph && mvn -B -q install -DskipTests) || exit 1
+mvn -B -q install -DskipTests || exit 1
+(cd benchmarks && mvn -B -q package) || exit 1
+OLD="java -jar $WORK/baseline/blazegraph/target/cim2glm-0.0.1-SNAPSHOT.jar -u=$URL"
+NEW="java -jar $HERE/target/cim2glm-0.0.1-SNAPSHOT.jar -u=$URL"
+
+java -cp benchmarks/target/benchmarks.jar gov.pnnl.goss.cim2glm.FeederGenerator -n=20000 -d=0.2 -m=0.5 \
+  test/IEEE123.xml $WORK/Gen123.xml || exit 1
+
+curl -s -X POST -H 'Content-Type: text/plain' --data-binary "com.bigdata.rdf.sail.namespace=$NS" $ROOT/namespace >/dev/null
+
+# a baseline from before the writers sorted their components by name writes the same lines in
+# another order, so a file that is not byte-identical passes if its sorted lines are; the
+# trailing commas are dropped, because they move with the last entry of each JSON array
+SortedLines () {
+  sed 's/,$//' $1 | LC_ALL=C sort
+}
+
+FAILED=0
+for MODEL in $HERE/test/IEEE13.xml $HERE/test/IEEE123.xml $WORK/Gen123.xml; do
+  NAME=`basename $MODEL .xml`
+  curl -s -X POST $URL --data-urlencode "update=DROP ALL" >/dev/null || exit 1
+  curl -s -X POST -H 'Content-Type: application/rdf+xml' --data-binary @$MODEL $URL >/dev/null || exit 1
+  for FMT in glm dss idx; do
+    # the writers run in parallel by default, so compare both the default and the sequential settings
+    for RUN in old new seq; do
+      mkdir -p $WORK/$NAME/$FMT/$RUN
+    done
+    (cd $WORK/$NAME/$FMT/old && $OLD -o=$FMT $NAME > log.txt 2>&1)
+    (cd $WORK/$NAME/$FMT/new && $NEW -o=$FMT $NAME > log.txt 2>&1)
+    (cd $WORK/$NAME/$FMT/seq && $NEW -o=$FMT -t=1 -k=1 $NAME > log.txt 2>&1)
+    # the default and sequential settings must give exactly the same files
+    if diff -r -x log.txt $WORK/$NAME/$FMT/new $WORK/$NAME/$FMT/seq > $WORK/diff.txt; then
+      echo "$NAME $FMT (threads): identical"
+    else
+      echo "$NAME $FMT (threads): DIFFERENT"
+      head -40 $WORK/diff.txt
+      FAILED=1
+    fi
+    for F in `cd $WORK/$NAME/$FMT/old && ls | grep -v '^log.txt$'`; do
+      if cmp -s $WORK/$NAME/$FMT/old/$F $WORK/$NAME/$FMT/new/$F; then
+        echo "$NAME $F: identical"
+      elif SortedLines $WORK/$NAME/$FMT/old/$F > $WORK/old.txt && SortedLines $WORK/$NAME/$FMT/new/$F > $WORK/new.txt && \
+           cmp -s $WORK/old.txt $WORK/new.txt; then
+        echo "$NAME $F: same lines, reordered"
+      else
+        echo "$NAME $F: DIFFERENT"
+        diff $WORK/old.txt $WORK/new.txt | head -40
+        FAILED=1
+      fi
+    done
+  done
+  # an incremental export that skips the unchanged glm file must still write the same symbols file
+  mkdir -p $WORK/$NAME/incr
+  (cd $WORK/$NAME/incr && $NEW -o=glm -d=1 $NAME > log.txt 2>&1 && rm ${NAME}_symbols.json && \
+    $NEW -o=glm -d=1 $NAME >> log.txt 2>&1)
+  if grep -q "Unchanged: ${NAME}_base.glm" $WORK/$NAME/incr/log.txt && \
+     cmp -s $WORK/$NAME/glm/new/${NAME}_symbols.json $WORK/$NAME/incr/${NAME}_symbols.json; then
+    echo "$NAME symbols (-d=1): identical"
+  else
+    echo "$NAME symbols (-d=1): DIFFERENT"
+    FAILED=1
+  fi
+done
+exit $FAILED
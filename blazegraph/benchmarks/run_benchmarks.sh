@@ -0,0 +1,11 @@
+#!/bin/sh
+# builds cim2glm and the JMH benchmarks, then runs them and keeps the results by commit,
+# e.g. ./run_benchmarks.sh WriteBenchmark -p fixture=IEEE123
+# copy IEEE8500.xml into ../test to run with -p fixture=IEEE8500; larger fixtures can be made
+# with FeederGenerator, e.g. java -cp target/benchmarks.jar gov.pnnl.goss.cim2glm.FeederGenerator -n=100000 ../test/IEEE123.xml ../test/Big123.xml
+cd `dirname $0`
+(cd .. && mvn -B -q install -DskipTests) || exit 1
+mvn -B -q package || exit 1
+COMMIT=`git rev-parse --short HEAD`
+mkdir -p results
+java -jar target/benchmarks.jar -rf json -rff results/$COMMIT.json "$@"
@@ -0,0 +1,111 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.QueryTemplate;
+
+/**
+ Benchmark fixtures: the checked-in CIM XML files, loaded once into in-memory Jena models.
+ <p>Files are read from the directory in the cim2glm.testdir system property, by default
+ ../test relative to this module, as fixture + ".xml". IEEE8500.xml is not checked in,
+ but is picked up from the same directory if it is copied there.</p>
+*/
+public class CIMFixture {
+	static final HashMap<String,Model> models = new HashMap<>();
+
+	public static synchronized Model GetModel (String fixture) {
+		Model model = models.get (fixture);
+		if (model == null) {
+			File f = new File (System.getProperty ("cim2glm.testdir", "../test"), fixture + ".xml");
+			if (!f.exists()) {
+				throw new RuntimeException ("missing benchmark fixture " + f.getAbsolutePath());
+			}
+			model = ModelFactory.createDefaultModel();
+			RDFDataMgr.read (model, f.toURI().toString(), DistComponent.nsCIM, Lang.RDFXML);
+			models.put (fixture, model);
+		}
+		return model;
+	}
+
+	/** answers the Dist*.szQUERY strings from an in-memory model, with rewindable results */
+	public static class ModelQueryHandler implements QueryHandler {
+		Model model;
+		String mRID;
+		boolean use_mRID;
+
+		public ModelQueryHandler (Model model) {
+			this.model = model;
+		}
+
+		public ResultSet query (String szQuery) {
+			Query query = QueryTemplate.Get (szQuery).Bind (use_mRID ? mRID : null);
+			QueryExecution qexec = QueryExecutionFactory.create (query, model);
+			try {
+				return ResultSetFactory.copyResults (qexec.execSelect());
+			} finally {
+				qexec.close();
+			}
+		}
+		public boolean addFeederSelection (String mRID) {
+			this.mRID = mRID;
+			use_mRID = true;
+			return use_mRID;
+		}
+		public boolean clearFeederSelections () {
+			use_mRID = false;
+			return use_mRID;
+		}
+		public String getFeederSelection () {
+			return mRID;
+		}
+	}
+
+	/** @return an importer with all maps loaded from the fixture, ready for the Write* methods */
+	public static CIMImporter LoadImporter (String fixture, int nLoadThreads) {
+		CIMImporter importer = new CIMImporter();
+		importer.SetLoadThreads (nLoadThreads);
+		importer.SetQueryHandler (new ModelQueryHandler (GetModel (fixture)));
+		importer.LoadAllMaps();
+		importer.CheckMaps();
+		return importer;
+	}
+
+	/** discards the output, so the Write* benchmarks measure formatting rather than the disk */
+	public static class NullWriter extends Writer {
+		long count;
+
+		@Override
+		public void write (char[] cbuf, int off, int len) throws IOException {
+			count += len;
+		}
+		@Override
+		public void write (String str, int off, int len) throws IOException {
+			count += len;
+		}
+		@Override
+		public void flush () {
+		}
+		@Override
+		public void close () {
+		}
+	}
+}
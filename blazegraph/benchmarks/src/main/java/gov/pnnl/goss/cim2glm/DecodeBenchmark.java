@@ -0,0 +1,82 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetRewindable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gov.pnnl.goss.cim2glm.components.GroupedResults;
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+
+/**
+ Builds the Dist* objects from query results that were fetched once, so only decoding is measured.
+ <p>The multi-row transformer classes take groups of rows split on their szGroupKEY, as in CIMImporter.</p>
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+	@Param({"IEEE13", "IEEE123"})
+	public String fixture;
+
+	@Param({"DistBaseVoltage", "DistCapacitor", "DistConcentricNeutralCable", "DistCoordinates", "DistLinesCodeZ",
+		"DistLinesInstanceZ", "DistLineSpacing", "DistLinesSpacingZ", "DistLoad", "DistLoadBreakSwitch", "DistMeasurement",
+		"DistOverheadWire", "DistPhaseMatrix", "DistPowerXfmrCore", "DistPowerXfmrMesh", "DistPowerXfmrWinding",
+		"DistSequenceMatrix", "DistSolar", "DistStorage", "DistSubstation", "DistTapeShieldCable", "DistXfmrBank",
+		"DistXfmrCodeOCTest", "DistXfmrCodeRating", "DistXfmrCodeSCTest", "DistXfmrTank"})
+	public String component;
+
+	ResultSetRewindable results;
+	Constructor<?> ctor;
+	String groupKey;
+
+	@Setup
+	public void Setup () throws ReflectiveOperationException {
+		Class<?> cls = Class.forName ("gov.pnnl.goss.cim2glm.components." + component);
+		QueryHandler qh = new CIMFixture.ModelQueryHandler (CIMFixture.GetModel (fixture));
+		results = ResultSetFactory.copyResults (qh.query ((String) cls.getField ("szQUERY").get (null)));
+		try {
+			ctor = cls.getConstructor (List.class);
+			groupKey = (String) cls.getField ("szGroupKEY").get (null);
+		} catch (NoSuchMethodException e) {
+			ctor = cls.getConstructor (org.apache.jena.query.ResultSet.class);
+			groupKey = null;
+		}
+	}
+
+	@Benchmark
+	public void Decode (Blackhole bh) throws ReflectiveOperationException {
+		results.reset();
+		if (groupKey != null) {
+			GroupedResults groups = new GroupedResults (results, groupKey);
+			while (groups.hasNext()) {
+				bh.consume (ctor.newInstance (groups.next()));
+			}
+		} else {
+			while (results.hasNext()) {
+				bh.consume (ctor.newInstance (results));
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.vocabulary.RDF;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
+
+/**
+ Generates a large synthetic feeder by replicating a CIM XML feeder model, for scale testing.
+ <p>Every copy gets new mRIDs, and names with a _c{n} suffix. Catalog data such as wire,
+ line-code and transformer-code info, base voltages, load response characteristics and the
+ feeder and its substation are shared, not copied. Each copy's EnergySource is removed and
+ its source bus merged into the original source bus, so the copies hang radially from one
+ substation, and the existing queries see one feeder. The copies' coordinates are shifted
+ to the right, so the symbols file stays readable.</p>
+ <p>Optionally, PV units and voltage measurements are added at a fraction of the loads.</p>
+ <p>Invoke as a console-mode program; see main.</p>
+*/
+public class FeederGenerator {
+	static final String nsCIM = DistComponent.nsCIM;
+
+	/** objects of these classes are shared by all copies */
+	static final HashSet<String> sharedClasses = new HashSet<>(Arrays.asList (
+		"IEC61970CIMVersion", "CoordinateSystem", "GeographicalRegion", "SubGeographicalRegion", "Substation",
+		"Feeder", "TopologicalIsland", "BaseVoltage", "LoadResponseCharacteristic",
+		"PerLengthPhaseImpedance", "PhaseImpedanceData", "PerLengthSequenceImpedance",
+		"OverheadWireInfo", "ConcentricNeutralCableInfo", "TapeShieldCableInfo", "WireSpacingInfo", "WirePosition",
+		"PowerTransformerInfo", "TransformerTankInfo", "TransformerEndInfo", "ShortCircuitTest", "NoLoadTest",
+		"TapChangerInfo"));
+
+	Model base;
+	Model out;
+	Property mRID, name, xPosition;
+	Resource feeder;
+	Resource sourceCN;
+	HashSet<Resource> sourceObjects = new HashSet<>();
+	double dx;
+
+	public FeederGenerator (Model base) {
+		this.base = base;
+		mRID = base.createProperty (nsCIM + "IdentifiedObject.mRID");
+		name = base.createProperty (nsCIM + "IdentifiedObject.name");
+		xPosition = base.createProperty (nsCIM + "PositionPoint.xPosition");
+		FindSource();
+		dx = FindWidth();
+	}
+
+	private Property CIM (String local) {
+		return base.createProperty (nsCIM + local);
+	}
+
+	/** finds the EnergySource, its terminals and its bus, which the copies do not repeat */
+	void FindSource () {
+		List<Resource> sources = base.listSubjectsWithProperty (RDF.type, base.createResource (nsCIM + "EnergySource")).toList();
+		if (sources.size() != 1) {
+			throw new RuntimeException ("the model to replicate must have exactly one EnergySource, found " + sources.size());
+		}
+		Resource src = sources.get(0);
+		sourceObjects.add (src);
+		for (Resource trm : base.listSubjectsWithProperty (CIM ("Terminal.ConductingEquipment"), src).toList()) {
+			sourceObjects.add (trm);
+			sourceCN = trm.getPropertyResourceValue (CIM ("Terminal.ConnectivityNode"));
+		}
+		feeder = src.getPropertyResourceValue (CIM ("Equipment.EquipmentContainer"));
+		if (sourceCN == null || feeder == null) {
+			throw new RuntimeException ("the EnergySource must have a terminal and a feeder container");
+		}
+	}
+
+	/** @return a horizontal offset between copies, a little wider than the model */
+	double FindWidth () {
+		double xmin = Double.MAX_VALUE, xmax = -Double.MAX_VALUE;
+		StmtIterator it = base.listStatements (null, xPosition, (RDFNode) null);
+		while (it.hasNext()) {
+			double x = Double.parseDouble (it.next().getString());
+			xmin = Math.min (xmin, x);
+			xmax = Math.max (xmax, x);
+		}
+		if (xmax < xmin) {
+			return 0.0;
+		}
+		return 1.1 * (xmax - xmin) + 1.0;
+	}
+
+	boolean IsShared (Resource r) {
+		if (!r.isURIResource() || !r.getURI().startsWith (nsCIM) || !base.contains (r, RDF.type)) {
+			return true; // enumerations, classes and blank nodes
+		}
+		Resource type = r.getPropertyResourceValue (RDF.type);
+		return sharedClasses.contains (type.getLocalName());
+	}
+
+	static String CopyID (String uri, int copy) {
+		return "_" + UUID.nameUUIDFromBytes ((uri + "#" + copy).getBytes (StandardCharsets.UTF_8)).toString().toUpperCase();
+	}
+
+	Resource MapResource (Resource r, int copy, HashMap<Resource,Resource> renames) {
+		if (copy == 0) {
+			return r;
+		}
+		if (r.equals (sourceCN)) {
+			return sourceCN;
+		}
+		Resource mapped = renames.get (r);
+		if (mapped == null) {
+			mapped = IsShared (r) ? r : out.createResource (nsCIM + CopyID (r.getURI(), copy));
+			renames.put (r, mapped);
+		}
+		return mapped;
+	}
+
+	/** adds one copy of every non-shared object to the output model */
+	void AddCopy (int copy) {
+		HashMap<Resource,Resource> renames = new HashMap<>();
+		StmtIterator it = base.listStatements();
+		while (it.hasNext()) {
+			Statement st = it.next();
+			Resource s = st.getSubject();
+			if (copy > 0 && (IsShared (s) || sourceObjects.contains (s) || s.equals (sourceCN))) {
+				continue;
+			}
+			Resource s2 = MapResource (s, copy, renames);
+			RDFNode o = st.getObject();
+			Property p = st.getPredicate();
+			if (o.isResource()) {
+				out.add (s2, p, MapResource (o.asResource(), copy, renames));
+			} else if (copy > 0 && p.equals (mRID)) {
+				out.add (s2, p, s2.getURI().substring (s2.getURI().indexOf ('#') + 1));
+			} else if (copy > 0 && p.equals (name)) {
+				out.add (s2, p, o.asLiteral().getLexicalForm() + "_c" + Integer.toString (copy));
+			} else if (copy > 0 && p.equals (xPosition)) {
+				double x = Double.parseDouble (o.asLiteral().getLexicalForm()) + copy * dx;
+				out.add (s2, p, Double.toString (x));
+			} else {
+				out.add (s2, p, o);
+			}
+		}
+	}
+
+	private Resource NewObject (String cls, String objName, String seed) {
+		String id = "_" + UUID.nameUUIDFromBytes (seed.getBytes (StandardCharsets.UTF_8)).toString().toUpperCase();
+		Resource r = out.createResource (nsCIM + id);
+		r.addProperty (RDF.type, out.createResource (nsCIM + cls));
+		r.addProperty (mRID, id);
+		r.addProperty (name, objName);
+		return r;
+	}
+
+	/** @return the phase letters of a load, from its EnergyConsumerPhase objects */
+	private String LoadPhases (Resource load) {
+		TreeSet<String> phs = new TreeSet<>();
+		for (Resource ecp : out.listSubjectsWithProperty (CIM ("EnergyConsumerPhase.EnergyConsumer"), load).toList()) {
+			Resource kind = ecp.getPropertyResourceValue (CIM ("EnergyConsumerPhase.phase"));
+			if (kind != null) {
+				phs.add (kind.getURI().substring (kind.getURI().indexOf ("SinglePhaseKind.") + 16));
+			}
+		}
+		if (phs.contains ("s1") || phs.contains ("s2")) {
+			return "s12";
+		}
+		StringBuilder buf = new StringBuilder ();
+		for (String p : phs) {
+			buf.append (p);
+		}
+		return buf.length() > 0 ? buf.toString() : "ABC";
+	}
+
+	/** adds PV units and load voltage measurements to the given fractions of the loads */
+	void AddDERsAndMeasurements (double pvFraction, double measFraction) {
+		Random rand = new Random (8500);
+		Property pTerminalEq = CIM ("Terminal.ConductingEquipment");
+		List<Resource> loads = out.listSubjectsWithProperty (RDF.type, out.createResource (nsCIM + "EnergyConsumer")).toList();
+		loads.sort ((a, b) -> a.getURI().compareTo (b.getURI()));
+		for (Resource load : loads) {
+			String ldname = load.getProperty (name).getString();
+			List<Resource> terminals = out.listSubjectsWithProperty (pTerminalEq, load).toList();
+			if (terminals.isEmpty()) {
+				continue;
+			}
+			Resource trm = terminals.get(0);
+			Resource cn = trm.getPropertyResourceValue (CIM ("Terminal.ConnectivityNode"));
+			if (rand.nextDouble() < pvFraction) {
+				double kw = 1000.0;
+				Statement pfixed = load.getProperty (CIM ("EnergyConsumer.pfixed"));
+				if (pfixed != null) {
+					kw = Math.max (kw, Double.parseDouble (pfixed.getString()));
+				}
+				double volts = 240.0;
+				Resource bv = load.getPropertyResourceValue (CIM ("ConductingEquipment.BaseVoltage"));
+				if (bv != null && bv.hasProperty (CIM ("BaseVoltage.nominalVoltage"))) {
+					volts = Double.parseDouble (bv.getProperty (CIM ("BaseVoltage.nominalVoltage")).getString());
+				}
+				Resource pec = NewObject ("PowerElectronicsConnection", "pv_" + ldname, "pec:" + load.getURI());
+				Resource unit = NewObject ("PhotovoltaicUnit", "pv_" + ldname, "pv:" + load.getURI());
+				Resource pvtrm = NewObject ("Terminal", "pv_" + ldname + "_T1", "pvtrm:" + load.getURI());
+				pec.addProperty (CIM ("Equipment.EquipmentContainer"), feeder);
+				pec.addProperty (CIM ("PowerElectronicsConnection.PowerElectronicsUnit"), unit);
+				pec.addProperty (CIM ("PowerElectronicsConnection.ratedS"), Double.toString (1.2 * kw));
+				pec.addProperty (CIM ("PowerElectronicsConnection.ratedU"), Double.toString (volts));
+				pec.addProperty (CIM ("PowerElectronicsConnection.p"), Double.toString (kw));
+				pec.addProperty (CIM ("PowerElectronicsConnection.q"), "0");
+				pec.addProperty (CIM ("PowerElectronicsConnection.maxIFault"), "1.1");
+				Resource loc = load.getPropertyResourceValue (CIM ("PowerSystemResource.Location"));
+				if (loc != null) {
+					pec.addProperty (CIM ("PowerSystemResource.Location"), loc);
+				}
+				pvtrm.addProperty (pTerminalEq, pec);
+				pvtrm.addProperty (CIM ("Terminal.ConnectivityNode"), cn);
+				pvtrm.addProperty (CIM ("ACDCTerminal.sequenceNumber"), "1");
+			}
+			if (rand.nextDouble() < measFraction) {
+				Resource meas = NewObject ("Analog", "PNV_" + ldname, "meas:" + load.getURI());
+				meas.addProperty (CIM ("Measurement.PowerSystemResource"), load);
+				meas.addProperty (CIM ("Measurement.Terminal"), trm);
+				meas.addProperty (CIM ("Measurement.measurementType"), "PNV");
+				meas.addProperty (CIM ("Measurement.phases"), out.createResource (nsCIM + "PhaseCode." + LoadPhases (load)));
+			}
+		}
+	}
+
+	public Model Generate (int copies, double pvFraction, double measFraction) {
+		out = ModelFactory.createDefaultModel();
+		out.setNsPrefix ("cim", nsCIM);
+		out.setNsPrefix ("rdf", RDF.getURI());
+		for (int copy = 0; copy < copies; copy++) {
+			AddCopy (copy);
+		}
+		AddDERsAndMeasurements (pvFraction, measFraction);
+		return out;
+	}
+
+	/** @return number of ConnectivityNodes in the base model, to size the copies */
+	public int CountNodes () {
+		return base.listSubjectsWithProperty (RDF.type, base.createResource (nsCIM + "ConnectivityNode")).toList().size();
+	}
+
+	public static void main (String args[]) throws IOException {
+		int copies = 0, nodes = 0;
+		double pvFraction = 0.0, measFraction = 0.0;
+		List<String> files = new ArrayList<>();
+		if (args.length < 2) {
+			System.out.println ("Usage: java FeederGenerator [options] input_cim.xml output_cim.xml");
+			System.out.println ("       -c={n}      // number of copies of the input feeder");
+			System.out.println ("       -n={nodes}  // approximate number of nodes, used if -c is not given");
+			System.out.println ("       -d={0..1}   // fraction of loads that get a PV unit; defaults to 0");
+			System.out.println ("       -m={0..1}   // fraction of loads that get a voltage measurement; defaults to 0");
+			System.out.println ("Example: java FeederGenerator -n=100000 -d=0.2 -m=1 ../test/IEEE123.xml big123.xml");
+			System.exit (0);
+		}
+		for (String arg : args) {
+			if (arg.charAt(0) == '-') {
+				char opt = arg.charAt(1);
+				String optVal = arg.substring(3);
+				if (opt == 'c') {
+					copies = Integer.parseInt (optVal);
+				} else if (opt == 'n') {
+					nodes = Integer.parseInt (optVal);
+				} else if (opt == 'd') {
+					pvFraction = Double.parseDouble (optVal);
+				} else if (opt == 'm') {
+					measFraction = Double.parseDouble (optVal);
+				}
+			} else {
+				files.add (arg);
+			}
+		}
+
+		Model base = ModelFactory.createDefaultModel();
+		RDFDataMgr.read (base, files.get(0), nsCIM, Lang.RDFXML);
+		FeederGenerator gen = new FeederGenerator (base);
+		if (copies < 1) {
+			copies = Math.max (1, (int) Math.ceil ((double) nodes / gen.CountNodes()));
+		}
+		Model out = gen.Generate (copies, pvFraction, measFraction);
+		try (OutputStream os = new FileOutputStream (files.get(1))) {
+			RDFDataMgr.write (os, out, RDFFormat.RDFXML_PLAIN);
+		}
+		System.out.println ("Wrote " + Integer.toString (copies) + " copies, " + Long.toString (out.size()) + " triples to " + files.get(1));
+	}
+}
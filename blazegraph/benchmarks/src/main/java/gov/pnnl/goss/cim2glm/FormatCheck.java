@@ -0,0 +1,143 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Complex;
+
+import gov.pnnl.goss.cim2glm.components.DistFormat;
+
+/**
+ Checks that DistFormat writes the same strings as the JDK formatters it replaced, i.e.
+ DecimalFormat("#0.00...") for 0 to 12 decimals, String.format("%6g") and the old CFormat.
+ <p>The values are random over many magnitudes and bit patterns, plus edge cases: ties at each
+ number of decimals, the 1e12 limit of the fast path, negative zero, subnormals, values that
+ round to zero, and values that are not finite. The JDK formatters use Locale.ROOT symbols,
+ as the writers need a '.' for the decimal point.</p>
+ <p>Invoke as a console-mode program: java -cp target/benchmarks.jar gov.pnnl.goss.cim2glm.FormatCheck [count] [seed]</p>
+*/
+public class FormatCheck {
+	static final int MAX_DECIMALS = 12;
+	static final int MAX_REPORTED = 20;
+
+	int checked = 0;
+	int failed = 0;
+
+	void Compare (String what, double v, String expected, String actual) {
+		++checked;
+		if (!expected.equals (actual)) {
+			if (failed < MAX_REPORTED) {
+				System.out.println (what + " of " + v + " (bits " + Long.toHexString (Double.doubleToRawLongBits (v)) +
+														"): expected [" + expected + "] but got [" + actual + "]");
+			}
+			++failed;
+		}
+	}
+
+	static String OldCFormat (Complex c) {
+		String sgn = c.getImaginary() < 0.0 ? "-" : "+";
+		return String.format (Locale.ROOT, "%6g", c.getReal()) + sgn + String.format (Locale.ROOT, "%6g", Math.abs (c.getImaginary())) + "j";
+	}
+
+	/** values where a formatter is most likely to differ */
+	static List<Double> EdgeValues (Random rng) {
+		List<Double> vals = new ArrayList<>();
+		double[] fixed = {0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Math.nextDown (Double.MIN_NORMAL),
+			Double.MAX_VALUE, -Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			0.5, 1.5, 2.5, -0.5, -2.5, 0.125, 0.375, 1.005, 1.015, 2.675, 1.0e-13, -1.0e-13, 4.0e-4, -4.0e-4,
+			999999.5, 9.999995, 99999.95, 1.0e-4, 9.9999995e-5, 0.000099999, 123456.5, 1.0e6, 999999.0, 1.0e-5, 1.0e100};
+		for (double v : fixed) {
+			vals.add (v);
+		}
+		for (int d = 0; d <= MAX_DECIMALS; d++) {
+			double p = Math.pow (10.0, d);
+			// exact and near ties at d decimals, e.g. 2.675 for d = 2
+			for (int i = 0; i < 200; i++) {
+				long n = (long) (rng.nextDouble() * Math.pow (10.0, 1 + rng.nextInt (8)));
+				double tie = (n + 0.5) / p;
+				vals.add (tie);
+				vals.add (-tie);
+				vals.add (Math.nextUp (tie));
+				vals.add (Math.nextDown (tie));
+			}
+			// either side of the 1e12 limit on the scaled value
+			double limit = 1.0e12 / p;
+			double v = limit;
+			for (int i = 0; i < 20; i++) {
+				v = Math.nextDown (v);
+			}
+			for (int i = 0; i < 40; i++) {
+				vals.add (v);
+				vals.add (-v);
+				v = Math.nextUp (v);
+			}
+			vals.add (limit - 0.5 / p);
+			vals.add (limit + 0.5 / p);
+			// below half a unit in the last place, so the result is zero, and negative zero for negative values
+			vals.add (0.4 / p);
+			vals.add (-0.4 / p);
+		}
+		return vals;
+	}
+
+	/** random values over magnitudes 1e-15 to 1e15, plus random bit patterns */
+	static List<Double> RandomValues (Random rng, int count) {
+		List<Double> vals = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double v;
+			if (i % 4 == 3) {
+				v = Double.longBitsToDouble (rng.nextLong());
+			} else {
+				v = rng.nextDouble() * Math.pow (10.0, rng.nextInt (31) - 15);
+				if (rng.nextBoolean()) {
+					v = -v;
+				}
+			}
+			vals.add (v);
+		}
+		return vals;
+	}
+
+	void Check (List<Double> vals) {
+		DistFormat[] fast = new DistFormat[MAX_DECIMALS + 1];
+		DecimalFormat[] jdk = new DecimalFormat[MAX_DECIMALS + 1];
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance (Locale.ROOT);
+		String pattern = "#0";
+		for (int d = 0; d <= MAX_DECIMALS; d++) {
+			fast[d] = new DistFormat (d);
+			jdk[d] = new DecimalFormat (pattern, symbols);
+			pattern = (d == 0) ? "#0.0" : pattern + "0";
+		}
+		for (double v : vals) {
+			for (int d = 0; d <= MAX_DECIMALS; d++) {
+				Compare ("df" + d, v, jdk[d].format (v), fast[d].format (v));
+			}
+			Compare ("%6g", v, String.format (Locale.ROOT, "%6g", v), DistFormat.G (v));
+		}
+		for (int i = 0; i + 1 < vals.size(); i += 2) {
+			Complex c = new Complex (vals.get (i), vals.get (i + 1));
+			Compare ("CFormat", vals.get (i), OldCFormat (c), DistFormat.CFormat (c));
+		}
+	}
+
+	public static void main (String args[]) {
+		int count = args.length > 0 ? Integer.parseInt (args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong (args[1]) : 20180101L;
+		Random rng = new Random (seed);
+		FormatCheck check = new FormatCheck();
+		check.Check (EdgeValues (rng));
+		check.Check (RandomValues (rng, count));
+		System.out.println (check.checked + " comparisons, " + check.failed + " differences (seed " + seed + ")");
+		if (check.failed > 0) {
+			System.exit (1);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** LoadAllMaps against an in-memory fixture, i.e. the whole query and decode stage */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+	@Param({"IEEE13", "IEEE123"})
+	public String fixture;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	@Setup
+	public void Setup () {
+		CIMFixture.GetModel (fixture);
+	}
+
+	@Benchmark
+	public CIMImporter LoadAllMaps () {
+		return CIMFixture.LoadImporter (fixture, threads);
+	}
+}
@@ -0,0 +1,96 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.pnnl.goss.cim2glm.components.DistLoad;
+
+/**
+ Runs each Write* method, and the GldNode load accumulation, on maps that were loaded once.
+ <p>Output goes to a discarding writer. WriteGLMFile still runs its one node query against the
+ in-memory fixture, as it does against Blazegraph.</p>
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+	@Param({"IEEE13", "IEEE123"})
+	public String fixture;
+
+	/** threads rendering the GLM and DSS sections */
+	@Param({"1", "4"})
+	public int writeThreads;
+
+	CIMImporter importer;
+
+	@Setup
+	public void Setup () {
+		importer = CIMFixture.LoadImporter (fixture, 1);
+		importer.SetWriteThreads (writeThreads);
+	}
+
+	/** the Write* methods build line configurations as they go, so start each run from none */
+	private void ResetWriteState () {
+		importer.mapLineConfigs.clear();
+		importer.mapLineConfigKeys.clear();
+	}
+
+	@Benchmark
+	public long WriteGLMFile () {
+		ResetWriteState();
+		CIMFixture.NullWriter w = new CIMFixture.NullWriter();
+		importer.WriteGLMFile (new PrintWriter (w), 1.0, false, "", false, false, 0.0, 0.0, 0.0);
+		return w.count;
+	}
+
+	@Benchmark
+	public long WriteDSSFile () {
+		ResetWriteState();
+		CIMFixture.NullWriter w = new CIMFixture.NullWriter();
+		CIMFixture.NullWriter wID = new CIMFixture.NullWriter();
+		importer.WriteDSSFile (new PrintWriter (w), new PrintWriter (wID), "bench_busxy.dss", "bench_guid.dss", 1.0, false, 0.0, 0.0, 0.0);
+		return w.count + wID.count;
+	}
+
+	@Benchmark
+	public long WriteJSONSymbolFile () {
+		CIMFixture.NullWriter w = new CIMFixture.NullWriter();
+		importer.WriteJSONSymbolFile (new PrintWriter (w));
+		return w.count;
+	}
+
+	@Benchmark
+	public long WriteDictionaryFile () {
+		CIMFixture.NullWriter w = new CIMFixture.NullWriter();
+		importer.WriteDictionaryFile (new PrintWriter (w), -1);
+		return w.count;
+	}
+
+	@Benchmark
+	public GldNodeTable AccumulateLoads () {
+		GldNodeTable nodes = new GldNodeTable (importer.GetTopology());
+		for (DistLoad obj : importer.mapLoads.values()) {
+			nodes.Get (obj.ibus).AccumulateLoads (obj.name, obj.phases, obj.p, obj.q, obj.pe, obj.qe, obj.pz, obj.pi, obj.pp, obj.qz, obj.qi, obj.qp, false);
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,283 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ Opens the output files of one export, i.e. the model, dictionary, symbol and GUID files.
+ <p>Each file is written as UTF-8 through large buffers onto a FileChannel. With GZIP, each file
+ gets a .gz suffix. With ZIP, all of the files go into one archive named by the bundle root, each
+ entry named by the file name without its directory, so a model can be moved between hosts as one
+ compressed file.</p>
+ <p>A zip archive takes one entry at a time, but WriteDSSFile writes two files at once. A file opened
+ while another entry is being written goes to a temporary file beside the archive, and is copied in
+ once the archive is free.</p>
+*/
+public class ArtifactOutput {
+	public static final int PLAIN = 0;
+	public static final int GZIP = 1;
+	public static final int ZIP = 2;
+
+	static final int BYTE_BUFFER = 256 * 1024;
+	static final int CHAR_BUFFER = 64 * 1024;
+
+	private final int mode;
+	private final String fBundle;
+	private ZipOutputStream zip = null;
+	private boolean zipBusy = false;
+	/** temporary files waiting to be copied into the archive, in the order they were opened */
+	private final List<Pending> pending = new ArrayList<>();
+	/** uncompressed bytes written to each file, by the name it was opened with */
+	private final HashMap<String,Long> mapLength = new HashMap<>();
+
+	private static class Pending {
+		String entry;
+		File temp;
+		boolean closed = false;
+	}
+
+	/**
+	 *  @param mode PLAIN, GZIP or ZIP
+	 *  @param fBundle file name of the archive for ZIP, ignored otherwise
+	 */
+	public ArtifactOutput (int mode, String fBundle) {
+		this.mode = mode;
+		this.fBundle = fBundle;
+	}
+
+	/** @param name none, gzip or zip */
+	public static int ParseMode (String name) {
+		if (name.equals ("none")) {
+			return PLAIN;
+		} else if (name.equals ("gzip")) {
+			return GZIP;
+		} else if (name.equals ("zip")) {
+			return ZIP;
+		}
+		throw new RuntimeException ("unknown output compression " + name + ", use none, gzip or zip");
+	}
+
+	private static OutputStream OpenChannel (File f) throws FileNotFoundException {
+		try {
+			FileChannel ch = FileChannel.open (f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+																				 StandardOpenOption.TRUNCATE_EXISTING);
+			return new BufferedOutputStream (Channels.newOutputStream (ch), BYTE_BUFFER);
+		} catch (IOException e) {
+			FileNotFoundException fnf = new FileNotFoundException (f.getPath() + " (" + e.getMessage() + ")");
+			fnf.initCause (e);
+			throw fnf;
+		}
+	}
+
+	/** @return true if an earlier export left this file, i.e. its .gz for GZIP or the archive for ZIP */
+	public boolean Exists (String fName) {
+		if (mode == GZIP) {
+			return new File (fName + ".gz").exists();
+		} else if (mode == ZIP) {
+			return new File (fBundle).exists();
+		}
+		return new File (fName).exists();
+	}
+
+	/** @return true if files are bundled, so that one file can not be replaced without rewriting all of them */
+	public boolean IsBundle () {
+		return mode == ZIP;
+	}
+
+	/**
+	 *  Opens one output file; closing the PrintWriter finishes that file.
+	 *  @param fName the file name as it would be written uncompressed
+	 */
+	public synchronized PrintWriter Open (String fName) throws FileNotFoundException {
+		OutputStream os;
+		if (mode == GZIP) {
+			try {
+				os = new GZIPOutputStream (OpenChannel (new File (fName + ".gz")), BYTE_BUFFER);
+			} catch (FileNotFoundException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new RuntimeException ("can not start " + fName + ".gz: " + e.getMessage(), e);
+			}
+		} else if (mode == ZIP) {
+			os = OpenEntry (new File (fName).getName());
+		} else {
+			os = OpenChannel (new File (fName));
+		}
+		os = new CountingStream (os, fName);
+		return new PrintWriter (new BufferedWriter (new OutputStreamWriter (os, StandardCharsets.UTF_8), CHAR_BUFFER));
+	}
+
+	private OutputStream OpenEntry (String entry) throws FileNotFoundException {
+		if (zip == null) {
+			zip = new ZipOutputStream (OpenChannel (new File (fBundle)));
+		}
+		if (!zipBusy) {
+			try {
+				zip.putNextEntry (new ZipEntry (entry));
+			} catch (IOException e) {
+				throw new RuntimeException ("can not add " + entry + " to " + fBundle + ": " + e.getMessage(), e);
+			}
+			zipBusy = true;
+			return new EntryStream (zip);
+		}
+		Pending p = new Pending();
+		p.entry = entry;
+		try {
+			File dir = new File (fBundle).getAbsoluteFile().getParentFile();
+			p.temp = File.createTempFile (entry, ".part", dir);
+		} catch (IOException e) {
+			throw new RuntimeException ("can not buffer " + entry + " for " + fBundle + ": " + e.getMessage(), e);
+		}
+		pending.add (p);
+		return new PendingStream (OpenChannel (p.temp), p);
+	}
+
+	/** copies the temporary files that are complete into the archive, while it is free */
+	private void CopyPending () throws IOException {
+		while (zip != null && !zipBusy && !pending.isEmpty() && pending.get(0).closed) {
+			Pending p = pending.remove (0);
+			zip.putNextEntry (new ZipEntry (p.entry));
+			Files.copy (p.temp.toPath(), zip);
+			zip.closeEntry ();
+			Files.delete (p.temp.toPath());
+		}
+	}
+
+	private synchronized void EntryClosed (Pending p) throws IOException {
+		if (p == null) {
+			zip.closeEntry ();
+			zipBusy = false;
+		} else {
+			p.closed = true;
+		}
+		CopyPending ();
+	}
+
+	private synchronized void Counted (String fName, long n) {
+		mapLength.merge (fName, n, Long::sum);
+	}
+
+	/** @return uncompressed bytes written to a file opened and closed here, 0 if there was none */
+	public synchronized long Length (String fName) {
+		Long n = mapLength.get (fName);
+		return n == null ? 0 : n;
+	}
+
+	/** finishes the archive, if any; files still open, e.g. after an error, are left out */
+	public synchronized void Close () {
+		if (zip == null) {
+			return;
+		}
+		boolean bComplete = !zipBusy && pending.isEmpty();
+		try {
+			zip.close ();
+		} catch (IOException e) {
+			throw new RuntimeException ("can not finish " + fBundle + ": " + e.getMessage(), e);
+		} finally {
+			zip = null;
+			for (Pending p : pending) {
+				p.temp.delete ();
+			}
+			pending.clear ();
+		}
+		if (!bComplete) {
+			System.out.println ("*** " + fBundle + " was closed before all of its files were written");
+		}
+	}
+
+	/** counts the uncompressed bytes of one file */
+	private class CountingStream extends FilterOutputStream {
+		final String fName;
+		long n = 0;
+
+		CountingStream (OutputStream out, String fName) {
+			super (out);
+			this.fName = fName;
+		}
+
+		@Override
+		public void write (int b) throws IOException {
+			out.write (b);
+			++n;
+		}
+
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException {
+			out.write (b, off, len);
+			n += len;
+		}
+
+		@Override
+		public void close () throws IOException {
+			super.close ();
+			Counted (fName, n);
+		}
+	}
+
+	/** writes one entry straight into the archive; close ends the entry but not the archive */
+	private class EntryStream extends FilterOutputStream {
+		boolean closed = false;
+
+		EntryStream (OutputStream out) {
+			super (out);
+		}
+
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException {
+			out.write (b, off, len);
+		}
+
+		@Override
+		public void close () throws IOException {
+			if (!closed) {
+				closed = true;
+				EntryClosed (null);
+			}
+		}
+	}
+
+	/** writes one entry to its temporary file */
+	private class PendingStream extends FilterOutputStream {
+		final Pending p;
+
+		PendingStream (OutputStream out, Pending p) {
+			super (out);
+			this.p = p;
+		}
+
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException {
+			out.write (b, off, len);
+		}
+
+		@Override
+		public void close () throws IOException {
+			if (!p.closed) {
+				super.close ();
+				EntryClosed (p);
+			}
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
+import gov.pnnl.goss.cim2glm.components.DistFeeder;
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.CachingQueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.HTTPBlazegraphQueryHandler;
+
+/**
+ Exports several feeders from one triple-store in a single job, several feeders at a time.
+ <p>Each feeder gets its own CIMImporter and its own handler with a feeder selection, made
+ by a factory from one base handler, e.g. with forFeeder, so all of them share the HTTP
+ connection pool and, with -m=1, the local models, or the embedded journal. Queries that do not depend on the feeder selection, like the feeder list,
+ are run once and shared by all of the feeders.</p>
+ <p>The output files for each feeder are named by output_root_feedername, as if
+ CIMImporter had been run once for each feeder.</p>
+*/
+public class BatchExporter extends Object {
+	QueryHandler baseHandler;
+	/** makes the handler for one feeder, by its mRID */
+	Function<String,QueryHandler> feederHandlers;
+	int nFeederThreads;
+	int nLoadThreads;
+	HashMap<String,SharedRows> mapShared = new HashMap<>();
+	ExportMetrics metrics = null;
+	int nWriteThreads = Runtime.getRuntime().availableProcessors();
+	int outputMode = ArtifactOutput.PLAIN;
+	boolean bIncremental = false;
+
+	/**
+	 * @param baseHandler handler for the triple-store, used without a feeder selection for the feeder list
+	 * @param feederHandlers makes a new handler selecting one feeder, by its mRID
+	 * @param nFeederThreads number of feeders to export at once
+	 * @param nLoadThreads number of concurrent queries while loading each feeder
+	 */
+	public BatchExporter (QueryHandler baseHandler, Function<String,QueryHandler> feederHandlers, int nFeederThreads, int nLoadThreads) {
+		this.baseHandler = baseHandler;
+		this.feederHandlers = feederHandlers;
+		this.nFeederThreads = Math.max (1, nFeederThreads);
+		this.nLoadThreads = nLoadThreads;
+	}
+
+	/**
+	 * @param baseHandler handler for the triple-store, with or without a feeder selection
+	 * @param fCache directory for cached query results, or empty for none
+	 * @param storeVersion label of the triple-store contents for the query cache, e.g. a commit id
+	 * @param nFeederThreads number of feeders to export at once
+	 * @param nLoadThreads number of concurrent queries while loading each feeder
+	 */
+	public BatchExporter (HTTPBlazegraphQueryHandler baseHandler, String fCache, String storeVersion, int nFeederThreads, int nLoadThreads) {
+		this (baseHandler, (Function<String,QueryHandler>) null, nFeederThreads, nLoadThreads);
+		this.feederHandlers = mRID -> {
+			HTTPBlazegraphQueryHandler qh = baseHandler.forFeeder (mRID);
+			if (fCache.length() > 0) {
+				return new CachingQueryHandler (qh, fCache, storeVersion);
+			}
+			return qh;
+		};
+	}
+
+	/** @param metrics shared by all of the feeders, so each phase is the total over the batch; null for none */
+	public void SetMetrics (ExportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/** @param n number of threads rendering the output of each feeder */
+	public void SetWriteThreads (int n) {
+		nWriteThreads = Math.max (1, n);
+	}
+
+	/** @param mode ArtifactOutput.PLAIN, GZIP or ZIP, for the files of each feeder */
+	public void SetOutputMode (int mode) {
+		outputMode = mode;
+	}
+
+	/** @param b true to rewrite only the files of each feeder whose components changed since its last export */
+	public void SetIncremental (boolean b) {
+		bIncremental = b;
+	}
+
+	/** rows of one feeder-independent query, read once for the whole batch */
+	static class SharedRows {
+		List<String> vars;
+		List<Binding> rows = new ArrayList<>();
+	}
+
+	/** Runs queries for one feeder; results of the feeder-independent queries are shared by the whole batch */
+	class BatchQueryHandler implements QueryHandler {
+		QueryHandler handler;
+
+		BatchQueryHandler (QueryHandler handler) {
+			this.handler = handler;
+		}
+
+		public ResultSet query (String szQuery) {
+			if (szQuery.contains ("?fdrid")) {
+				return handler.query (szQuery);
+			}
+			synchronized (mapShared) {
+				SharedRows shared = mapShared.get (szQuery);
+				if (shared == null) {
+					shared = new SharedRows();
+					ResultSet results = handler.query (szQuery);
+					try {
+						shared.vars = results.getResultVars();
+						while (results.hasNext()) {
+							shared.rows.add (results.nextBinding());
+						}
+					} finally {
+						QueryHandler.release (results);
+					}
+					mapShared.put (szQuery, shared);
+				}
+				// each feeder gets its own cursor over the same rows
+				return new ResultSetStream (shared.vars, ModelFactory.createDefaultModel(),
+																		QueryIterPlainWrapper.create (shared.rows.iterator()));
+			}
+		}
+		public boolean addFeederSelection (String mRID) {
+			return handler.addFeederSelection (mRID);
+		}
+		public boolean clearFeederSelections () {
+			return handler.clearFeederSelections ();
+		}
+		public String getFeederSelection () {
+			return handler.getFeederSelection ();
+		}
+	}
+
+	QueryHandler MakeFeederHandler (String mRID) {
+		return new BatchQueryHandler (feederHandlers.apply (mRID));
+	}
+
+	/** @return all feeders in the triple-store, in the same order as the feeder index file */
+	public List<DistFeeder> ListFeeders () {
+		List<DistFeeder> feeders = new ArrayList<>();
+		QueryHandler qh = new BatchQueryHandler (baseHandler);
+		ResultSet results = qh.query (DistFeeder.szQUERY);
+		try {
+			while (results.hasNext()) {
+				feeders.add (new DistFeeder (results));
+			}
+		} finally {
+			QueryHandler.release (results);
+		}
+		return feeders;
+	}
+
+	/**
+	 * @param mRIDs the feeders to export, or empty for all feeders
+	 * @return number of feeders that could not be exported
+	 */
+	public int Export (List<String> mRIDs, String fTarget, String fRoot, String fSched, double load_scale,
+										 boolean bWantSched, boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff) {
+		HashMap<String,String> mapNames = new HashMap<>();
+		for (DistFeeder fdr : ListFeeders()) {
+			mapNames.put (fdr.feederID, fdr.feederName);
+		}
+		List<String> feeders = new ArrayList<>(mRIDs);
+		if (feeders.isEmpty()) {
+			feeders.addAll (mapNames.keySet());
+			feeders.sort (null);
+		}
+
+		// feeder names are not unique across substations, so fall back to the mRID on a collision
+		HashSet<String> usedRoots = new HashSet<>();
+		List<String> roots = new ArrayList<>();
+		for (String mRID : feeders) {
+			String name = mapNames.get (mRID);
+			if (name == null) {
+				System.out.println ("Feeder " + mRID + " is not in the triple-store index");
+				name = mRID;
+			}
+			String root = fRoot + "_" + DistComponent.SafeName (name);
+			if (!usedRoots.add (root)) {
+				root = fRoot + "_" + DistComponent.SafeName (mRID);
+				usedRoots.add (root);
+			}
+			roots.add (root);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool (nFeederThreads);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (int i = 0; i < feeders.size(); i++) {
+				String mRID = feeders.get (i);
+				String root = roots.get (i);
+				tasks.add (pool.submit (() -> {
+					CIMImporter importer = new CIMImporter();
+					importer.SetLoadThreads (nLoadThreads);
+					importer.SetWriteThreads (nWriteThreads);
+					importer.SetOutputMode (outputMode);
+					importer.SetIncremental (bIncremental);
+					importer.SetMetrics (metrics);
+					importer.start (MakeFeederHandler (mRID), fTarget, root, fSched, load_scale,
+													bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+					return null;
+				}));
+			}
+			int nFailed = 0;
+			for (int i = 0; i < tasks.size(); i++) {
+				try {
+					tasks.get(i).get();
+					System.out.println ("Exported feeder " + feeders.get(i) + " to " + roots.get(i));
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof FileNotFoundException) {
+						System.out.println ("Can not write feeder " + feeders.get(i) + ": " + cause.getMessage());
+					} else {
+						System.out.println ("Can not produce feeder " + feeders.get(i) + ": " + cause.getMessage());
+						cause.printStackTrace();
+					}
+					++nFailed;
+				}
+			}
+			return nFailed;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException ("batch export interrupted", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -6,10 +6,19 @@ package gov.pnnl.goss.cim2glm;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.SortedSet;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.apache.jena.query.*;
 
@@ -51,7 +60,14 @@ import gov.pnnl.goss.cim2glm.components.DistXfmrCodeOCTest;
 import gov.pnnl.goss.cim2glm.components.DistXfmrCodeRating;
 import gov.pnnl.goss.cim2glm.components.DistXfmrCodeSCTest;
 import gov.pnnl.goss.cim2glm.components.DistXfmrTank;
+import gov.pnnl.goss.cim2glm.components.GroupedResults;
+import gov.pnnl.goss.cim2glm.components.JsonWriter;
+import gov.pnnl.goss.cim2glm.components.PhaseSet;
 import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.CachingQueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.FeederModelQueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.InstrumentedQueryHandler;
+import gov.pnnl.goss.cim2glm.queryhandler.impl.InternalBlazegraphQueryHandler;
 import gov.pnnl.goss.cim2glm.queryhandler.impl.HTTPBlazegraphQueryHandler;
 
 /**
@@ -71,358 +87,386 @@ import gov.pnnl.goss.cim2glm.queryhandler.impl.HTTPBlazegraphQueryHandler;
 public class CIMImporter extends Object {
 	QueryHandler queryHandler;
 	
-	HashMap<String,GldNode> mapNodes = new HashMap<>();
-	HashMap<String,GldLineConfig> mapLineConfigs = new HashMap<>();
-
-	HashMap<String,Integer> mapCountMesh = new HashMap<>();
-	HashMap<String,Integer> mapCountWinding = new HashMap<>();
-	HashMap<String,Integer> mapCountCodeRating = new HashMap<>();
-	HashMap<String,Integer> mapCountCodeSCTest = new HashMap<>();
-	HashMap<String,Integer> mapCountTank = new HashMap<>();
-	HashMap<String,Integer> mapCountBank = new HashMap<>();
-
-	HashMap<String,DistBaseVoltage> mapBaseVoltages = new HashMap<>();
-	HashMap<String,DistBreaker> mapBreakers = new HashMap<>();
-	HashMap<String,DistCapacitor> mapCapacitors = new HashMap<>();
-	HashMap<String,DistConcentricNeutralCable> mapCNCables = new HashMap<>();
-	HashMap<String,DistCoordinates> mapCoordinates = new HashMap<>();
-	HashMap<String,DistDisconnector> mapDisconnectors = new HashMap<>();
-	HashMap<String,DistFeeder> mapFeeders = new HashMap<>();
-	HashMap<String,DistFuse> mapFuses = new HashMap<>();
-	HashMap<String,DistGroundDisconnector> mapGroundDisconnectors = new HashMap<>();
-	HashMap<String,DistJumper> mapJumpers = new HashMap<>();
-	HashMap<String,DistLinesCodeZ> mapLinesCodeZ = new HashMap<>();
-	HashMap<String,DistLinesInstanceZ> mapLinesInstanceZ = new HashMap<>();
-	HashMap<String,DistLineSpacing> mapSpacings = new HashMap<>();
-	HashMap<String,DistLinesSpacingZ> mapLinesSpacingZ = new HashMap<>();
-	HashMap<String,DistLoad> mapLoads = new HashMap<>();
-	HashMap<String,DistLoadBreakSwitch> mapLoadBreakSwitches = new HashMap<>();
-	HashMap<String,DistOverheadWire> mapWires = new HashMap<>();
-	HashMap<String,DistPhaseMatrix> mapPhaseMatrices = new HashMap<>();
-	HashMap<String,DistPowerXfmrCore> mapXfmrCores = new HashMap<>();
-	HashMap<String,DistPowerXfmrMesh> mapXfmrMeshes = new HashMap<>();
-	HashMap<String,DistPowerXfmrWinding> mapXfmrWindings = new HashMap<>();
-	HashMap<String,DistRecloser> mapReclosers = new HashMap<>();
-	HashMap<String,DistRegulator> mapRegulators = new HashMap<>();
-	HashMap<String,DistSectionaliser> mapSectionalisers = new HashMap<>();
-	HashMap<String,DistSequenceMatrix> mapSequenceMatrices = new HashMap<>();
-	HashMap<String,DistSolar> mapSolars = new HashMap<>();
-	HashMap<String,DistStorage> mapStorages = new HashMap<>();
-	HashMap<String,DistSubstation> mapSubstations = new HashMap<>();
-	HashMap<String,DistTapeShieldCable> mapTSCables = new HashMap<>();
-	HashMap<String,DistXfmrCodeOCTest> mapCodeOCTests = new HashMap<>();
-	HashMap<String,DistXfmrCodeRating> mapCodeRatings = new HashMap<>();
-	HashMap<String,DistXfmrCodeSCTest> mapCodeSCTests = new HashMap<>();
-	HashMap<String,DistXfmrTank> mapTanks = new HashMap<>();
-	HashMap<String,DistXfmrBank> mapBanks = new HashMap<>();
-	HashMap<String,DistMeasurement> mapMeasurements = new HashMap<>();
+	LinkedHashMap<String,GldLineConfig> mapLineConfigs = new LinkedHashMap<>();
+	/** the same line configurations, by GldLineConfig.GetKey, so each lookup is one hash probe */
+	HashMap<String,GldLineConfig> mapLineConfigKeys = new HashMap<>();
+	/** built from the maps by GetTopology, for both writers */
+	NetworkTopology topology;
+	/** from GetConnectivityNodes */
+	List<String> listConnectivityNodes;
+
+
+	LinkedHashMap<String,DistBaseVoltage> mapBaseVoltages = new LinkedHashMap<>();
+	LinkedHashMap<String,DistBreaker> mapBreakers = new LinkedHashMap<>();
+	LinkedHashMap<String,DistCapacitor> mapCapacitors = new LinkedHashMap<>();
+	LinkedHashMap<String,DistConcentricNeutralCable> mapCNCables = new LinkedHashMap<>();
+	LinkedHashMap<String,DistCoordinates> mapCoordinates = new LinkedHashMap<>();
+	LinkedHashMap<String,DistDisconnector> mapDisconnectors = new LinkedHashMap<>();
+	LinkedHashMap<String,DistFeeder> mapFeeders = new LinkedHashMap<>();
+	LinkedHashMap<String,DistFuse> mapFuses = new LinkedHashMap<>();
+	LinkedHashMap<String,DistGroundDisconnector> mapGroundDisconnectors = new LinkedHashMap<>();
+	LinkedHashMap<String,DistJumper> mapJumpers = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLinesCodeZ> mapLinesCodeZ = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLinesInstanceZ> mapLinesInstanceZ = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLineSpacing> mapSpacings = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLinesSpacingZ> mapLinesSpacingZ = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLoad> mapLoads = new LinkedHashMap<>();
+	LinkedHashMap<String,DistLoadBreakSwitch> mapLoadBreakSwitches = new LinkedHashMap<>();
+	LinkedHashMap<String,DistOverheadWire> mapWires = new LinkedHashMap<>();
+	LinkedHashMap<String,DistPhaseMatrix> mapPhaseMatrices = new LinkedHashMap<>();
+	LinkedHashMap<String,DistPowerXfmrCore> mapXfmrCores = new LinkedHashMap<>();
+	LinkedHashMap<String,DistPowerXfmrMesh> mapXfmrMeshes = new LinkedHashMap<>();
+	LinkedHashMap<String,DistPowerXfmrWinding> mapXfmrWindings = new LinkedHashMap<>();
+	LinkedHashMap<String,DistRecloser> mapReclosers = new LinkedHashMap<>();
+	LinkedHashMap<String,DistRegulator> mapRegulators = new LinkedHashMap<>();
+	LinkedHashMap<String,DistSectionaliser> mapSectionalisers = new LinkedHashMap<>();
+	LinkedHashMap<String,DistSequenceMatrix> mapSequenceMatrices = new LinkedHashMap<>();
+	LinkedHashMap<String,DistSolar> mapSolars = new LinkedHashMap<>();
+	LinkedHashMap<String,DistStorage> mapStorages = new LinkedHashMap<>();
+	LinkedHashMap<String,DistSubstation> mapSubstations = new LinkedHashMap<>();
+	LinkedHashMap<String,DistTapeShieldCable> mapTSCables = new LinkedHashMap<>();
+	LinkedHashMap<String,DistXfmrCodeOCTest> mapCodeOCTests = new LinkedHashMap<>();
+	LinkedHashMap<String,DistXfmrCodeRating> mapCodeRatings = new LinkedHashMap<>();
+	LinkedHashMap<String,DistXfmrCodeSCTest> mapCodeSCTests = new LinkedHashMap<>();
+	LinkedHashMap<String,DistXfmrTank> mapTanks = new LinkedHashMap<>();
+	LinkedHashMap<String,DistXfmrBank> mapBanks = new LinkedHashMap<>();
+	LinkedHashMap<String,DistMeasurement> mapMeasurements = new LinkedHashMap<>();
+
+	/** fills the switch maps above from one query; iterates the switches written to the network model */
+	final SwitchStore switches = new SwitchStore();
+	{
+		switches.Index ("LoadBreakSwitch", mapLoadBreakSwitches, true);
+		switches.Index ("Fuse", mapFuses, true);
+		switches.Index ("Breaker", mapBreakers, true);
+		switches.Index ("Recloser", mapReclosers, true);
+		switches.Index ("Sectionaliser", mapSectionalisers, true);
+		switches.Index ("Disconnector", mapDisconnectors, true);
+		switches.Index ("Jumper", mapJumpers, false);
+		switches.Index ("GroundDisconnector", mapGroundDisconnectors, false);
+	}
 	
 	boolean allMapsLoaded = false;
 
-	void LoadOneCountMap (String szQuery, HashMap<String,Integer> map) {
-		ResultSet results = queryHandler.query (szQuery);
-		while (results.hasNext()) {
-			QuerySolution soln = results.next();
-			String key = DistComponent.SafeName (soln.get("?key").toString());
-			int count = soln.getLiteral("?count").getInt();
-			map.put (key, count);
+	/** number of SPARQL queries that LoadAllMaps may have in flight at once; 1 loads sequentially */
+	int nLoadThreads = 4;
+
+	public void SetLoadThreads (int n) {
+		nLoadThreads = Math.max (1, n);
+	}
+
+	/** number of threads rendering the sections of WriteGLMFile and WriteDSSFile; 1 renders sequentially */
+	int nWriteThreads = Runtime.getRuntime().availableProcessors();
+
+	public void SetWriteThreads (int n) {
+		nWriteThreads = Math.max (1, n);
+	}
+
+	/** ArtifactOutput.PLAIN, GZIP or ZIP for the files written by start */
+	int outputMode = ArtifactOutput.PLAIN;
+
+	public void SetOutputMode (int mode) {
+		outputMode = mode;
+	}
+
+	/** write only the output files whose components changed since the last export to the same root */
+	boolean bIncremental = false;
+
+	public void SetIncremental (boolean b) {
+		bIncremental = b;
+	}
+
+	/** labels of the classes that changed since the last export, or null to write every file */
+	TreeSet<String> setChanged = null;
+
+	/** per-phase instrumentation, or null for none */
+	ExportMetrics metrics = null;
+
+	public void SetMetrics (ExportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	void SetQueryHandler (QueryHandler queryHandler) {
+		if (metrics != null && !(queryHandler instanceof InstrumentedQueryHandler)) {
+			queryHandler = new InstrumentedQueryHandler (queryHandler, metrics);
 		}
+		this.queryHandler = queryHandler;
 	}
 
-	void LoadCountMaps() {
-		LoadOneCountMap (DistXfmrBank.szCountQUERY, mapCountBank);
-		LoadOneCountMap (DistXfmrTank.szCountQUERY, mapCountTank);
-		LoadOneCountMap (DistPowerXfmrMesh.szCountQUERY, mapCountMesh);
-		LoadOneCountMap (DistPowerXfmrWinding.szCountQUERY, mapCountWinding);
-		LoadOneCountMap (DistXfmrCodeRating.szCountQUERY, mapCountCodeRating);
-		LoadOneCountMap (DistXfmrCodeSCTest.szCountQUERY, mapCountCodeSCTest);
+	/** 
+	 *  Runs a query and hands its results to reader, then releases them even if reader stops early
+	 *  or throws, so a streamed HTTP response always returns its connection to the pool
+	 */
+	void ReadQuery (String szQuery, Consumer<ResultSet> reader) {
+		ResultSet results = queryHandler.query (szQuery);
+		try {
+			reader.accept (results);
+		} finally {
+			QueryHandler.release (results);
+		}
 	}
 
 	void LoadBaseVoltages() {
-		ResultSet results = queryHandler.query (DistBaseVoltage.szQUERY);
-		while (results.hasNext()) {
-			DistBaseVoltage obj = new DistBaseVoltage (results);
-			mapBaseVoltages.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistBaseVoltage.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistBaseVoltage obj = new DistBaseVoltage (results);
+				mapBaseVoltages.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadSubstations() {
-		ResultSet results = queryHandler.query (DistSubstation.szQUERY);
-		while (results.hasNext()) {
-			DistSubstation obj = new DistSubstation (results);
-			mapSubstations.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistSubstation.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistSubstation obj = new DistSubstation (results);
+				mapSubstations.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadSolars() {
-		ResultSet results = queryHandler.query (DistSolar.szQUERY);
-		while (results.hasNext()) {
-			DistSolar obj = new DistSolar (results);
-			mapSolars.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistSolar.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistSolar obj = new DistSolar (results);
+				mapSolars.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadMeasurements() {
-		ResultSet results = queryHandler.query (DistMeasurement.szQUERY);
-		while (results.hasNext()) {
-			DistMeasurement obj = new DistMeasurement (results);
-			mapMeasurements.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistMeasurement.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistMeasurement obj = new DistMeasurement (results);
+				mapMeasurements.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadStorages() {
-		ResultSet results = queryHandler.query (DistStorage.szQUERY);
-		while (results.hasNext()) {
-			DistStorage obj = new DistStorage (results);
-			mapStorages.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistStorage.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistStorage obj = new DistStorage (results);
+				mapStorages.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadCapacitors() {
-		ResultSet results = queryHandler.query (DistCapacitor.szQUERY);
-		while (results.hasNext()) {
-			DistCapacitor obj = new DistCapacitor (results);
-			mapCapacitors.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistCapacitor.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistCapacitor obj = new DistCapacitor (results);
+				mapCapacitors.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadLoads() {
-		ResultSet results = queryHandler.query (DistLoad.szQUERY);
-		while (results.hasNext()) {
-			DistLoad obj = new DistLoad (results);
-			mapLoads.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistLoad.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistLoad obj = new DistLoad (results);
+				mapLoads.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadPhaseMatrices() {
-		ResultSet results = queryHandler.query (DistPhaseMatrix.szQUERY);
-		while (results.hasNext()) {
-			DistPhaseMatrix obj = new DistPhaseMatrix (results);
-			mapPhaseMatrices.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistPhaseMatrix.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistPhaseMatrix obj = new DistPhaseMatrix (results);
+				mapPhaseMatrices.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadSequenceMatrices() {
-		ResultSet results = queryHandler.query (DistSequenceMatrix.szQUERY);
-		while (results.hasNext()) {
-			DistSequenceMatrix obj = new DistSequenceMatrix (results);
-			mapSequenceMatrices.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistSequenceMatrix.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistSequenceMatrix obj = new DistSequenceMatrix (results);
+				mapSequenceMatrices.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadXfmrCodeRatings() {
-		ResultSet results = queryHandler.query (DistXfmrCodeRating.szQUERY);
-		while (results.hasNext()) {
-			DistXfmrCodeRating obj = new DistXfmrCodeRating (results, mapCountCodeRating);
-			mapCodeRatings.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistXfmrCodeRating.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistXfmrCodeRating.szGroupKEY);
+			while (groups.hasNext()) {
+				DistXfmrCodeRating obj = new DistXfmrCodeRating (groups.next());
+				mapCodeRatings.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadXfmrCodeOCTests() {
-		ResultSet results = queryHandler.query (DistXfmrCodeOCTest.szQUERY);
-		while (results.hasNext()) {
-			DistXfmrCodeOCTest obj = new DistXfmrCodeOCTest (results);
-			mapCodeOCTests.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistXfmrCodeOCTest.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistXfmrCodeOCTest obj = new DistXfmrCodeOCTest (results);
+				mapCodeOCTests.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadXfmrCodeSCTests() {
-		ResultSet results = queryHandler.query (DistXfmrCodeSCTest.szQUERY);
-		while (results.hasNext()) {
-			DistXfmrCodeSCTest obj = new DistXfmrCodeSCTest (results, mapCountCodeSCTest);
-			mapCodeSCTests.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistXfmrCodeSCTest.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistXfmrCodeSCTest.szGroupKEY);
+			while (groups.hasNext()) {
+				DistXfmrCodeSCTest obj = new DistXfmrCodeSCTest (groups.next());
+				mapCodeSCTests.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadPowerXfmrCore() {
-		ResultSet results = queryHandler.query (DistPowerXfmrCore.szQUERY);
-		while (results.hasNext()) {
-			DistPowerXfmrCore obj = new DistPowerXfmrCore (results);
-			mapXfmrCores.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistPowerXfmrCore.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistPowerXfmrCore obj = new DistPowerXfmrCore (results);
+				mapXfmrCores.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadPowerXfmrMesh() {
-		ResultSet results = queryHandler.query (DistPowerXfmrMesh.szQUERY);
-		while (results.hasNext()) {
-			DistPowerXfmrMesh obj = new DistPowerXfmrMesh (results, mapCountMesh);
-			mapXfmrMeshes.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistPowerXfmrMesh.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistPowerXfmrMesh.szGroupKEY);
+			while (groups.hasNext()) {
+				DistPowerXfmrMesh obj = new DistPowerXfmrMesh (groups.next());
+				mapXfmrMeshes.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadOverheadWires() {
-		ResultSet results = queryHandler.query (DistOverheadWire.szQUERY);
-		while (results.hasNext()) {
-			DistOverheadWire obj = new DistOverheadWire (results);
-			mapWires.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistOverheadWire.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistOverheadWire obj = new DistOverheadWire (results);
+				mapWires.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadTapeShieldCables() {
-		ResultSet results = queryHandler.query (DistTapeShieldCable.szQUERY);
-		while (results.hasNext()) {
-			DistTapeShieldCable obj = new DistTapeShieldCable (results);
-			mapTSCables.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistTapeShieldCable.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistTapeShieldCable obj = new DistTapeShieldCable (results);
+				mapTSCables.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadConcentricNeutralCables() {
-		ResultSet results = queryHandler.query (DistConcentricNeutralCable.szQUERY);
-		while (results.hasNext()) {
-			DistConcentricNeutralCable obj = new DistConcentricNeutralCable (results);
-			mapCNCables.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistConcentricNeutralCable.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistConcentricNeutralCable obj = new DistConcentricNeutralCable (results);
+				mapCNCables.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadLineSpacings() {
-		ResultSet results = queryHandler.query (DistLineSpacing.szQUERY);
-		while (results.hasNext()) {
-			DistLineSpacing obj = new DistLineSpacing (results);
-			mapSpacings.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadLoadBreakSwitches() {
-		ResultSet results = queryHandler.query (DistLoadBreakSwitch.szQUERY);
-		while (results.hasNext()) {
-			DistLoadBreakSwitch obj = new DistLoadBreakSwitch (results);
-			mapLoadBreakSwitches.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadFuses() {
-		ResultSet results = queryHandler.query (DistFuse.szQUERY);
-		while (results.hasNext()) {
-			DistFuse obj = new DistFuse (results);
-			mapFuses.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadDisconnectors() {
-		ResultSet results = queryHandler.query (DistDisconnector.szQUERY);
-		while (results.hasNext()) {
-			DistDisconnector obj = new DistDisconnector (results);
-			mapDisconnectors.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadGroundDisconnectors() {
-		ResultSet results = queryHandler.query (DistGroundDisconnector.szQUERY);
-		while (results.hasNext()) {
-			DistGroundDisconnector obj = new DistGroundDisconnector (results);
-			mapGroundDisconnectors.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadJumpers() {
-		ResultSet results = queryHandler.query (DistJumper.szQUERY);
-		while (results.hasNext()) {
-			DistJumper obj = new DistJumper (results);
-			mapJumpers.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadBreakers() {
-		ResultSet results = queryHandler.query (DistBreaker.szQUERY);
-		while (results.hasNext()) {
-			DistBreaker obj = new DistBreaker (results);
-			mapBreakers.put (obj.GetKey(), obj);
-		}
-	}
-
-	void LoadReclosers() {
-		ResultSet results = queryHandler.query (DistRecloser.szQUERY);
-		while (results.hasNext()) {
-			DistRecloser obj = new DistRecloser (results);
-			mapReclosers.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistLineSpacing.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistLineSpacing obj = new DistLineSpacing (results);
+				mapSpacings.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
-	void LoadSectionalisers() {
-		ResultSet results = queryHandler.query (DistSectionaliser.szQUERY);
-		while (results.hasNext()) {
-			DistSectionaliser obj = new DistSectionaliser (results);
-			mapSectionalisers.put (obj.GetKey(), obj);
-		}
+	void LoadSwitches() {
+		ReadQuery (DistSwitch.szQUERY, results -> {
+			while (results.hasNext()) {
+				switches.Add (DistSwitch.Create (results.next()));
+			}
+		});
 	}
 
 	void LoadLinesInstanceZ() {
-		ResultSet results = queryHandler.query (DistLinesInstanceZ.szQUERY);
-		while (results.hasNext()) {
-			DistLinesInstanceZ obj = new DistLinesInstanceZ (results);
-			mapLinesInstanceZ.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistLinesInstanceZ.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistLinesInstanceZ obj = new DistLinesInstanceZ (results);
+				mapLinesInstanceZ.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadLinesCodeZ() {
-		ResultSet results = queryHandler.query (DistLinesCodeZ.szQUERY);
-		while (results.hasNext()) {
-			DistLinesCodeZ obj = new DistLinesCodeZ (results);
-			mapLinesCodeZ.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistLinesCodeZ.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistLinesCodeZ obj = new DistLinesCodeZ (results);
+				mapLinesCodeZ.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadLinesSpacingZ() {
-		ResultSet results = queryHandler.query (DistLinesSpacingZ.szQUERY);
-		while (results.hasNext()) {
-			DistLinesSpacingZ obj = new DistLinesSpacingZ (results);
-			mapLinesSpacingZ.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistLinesSpacingZ.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistLinesSpacingZ obj = new DistLinesSpacingZ (results);
+				mapLinesSpacingZ.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadRegulators() { 
-		ResultSet results = queryHandler.query (DistRegulator.szQUERY);
-		while (results.hasNext()) {
-			DistRegulator obj = new DistRegulator (results, queryHandler);
-			mapRegulators.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistRegulator.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistRegulator.szGroupKEY);
+			while (groups.hasNext()) {
+				DistRegulator obj = new DistRegulator (groups.next());
+				mapRegulators.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadXfmrTanks() {
-		ResultSet results = queryHandler.query (DistXfmrTank.szQUERY);
-		while (results.hasNext()) {
-			DistXfmrTank obj = new DistXfmrTank (results, mapCountTank);
-			mapTanks.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistXfmrTank.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistXfmrTank.szGroupKEY);
+			while (groups.hasNext()) {
+				DistXfmrTank obj = new DistXfmrTank (groups.next());
+				mapTanks.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadXfmrBanks() {
-		ResultSet results = queryHandler.query (DistXfmrBank.szQUERY);
-		while (results.hasNext()) {
-			DistXfmrBank obj = new DistXfmrBank (results, mapCountBank);
-			mapBanks.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistXfmrBank.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistXfmrBank.szGroupKEY);
+			while (groups.hasNext()) {
+				DistXfmrBank obj = new DistXfmrBank (groups.next());
+				mapBanks.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadPowerXfmrWindings() {
-		ResultSet results = queryHandler.query (DistPowerXfmrWinding.szQUERY);
-		while (results.hasNext()) {
-			DistPowerXfmrWinding obj = new DistPowerXfmrWinding (results, mapCountWinding);
-			mapXfmrWindings.put (obj.GetKey(), obj); 
-		}
+		ReadQuery (DistPowerXfmrWinding.szQUERY, results -> {
+			GroupedResults groups = new GroupedResults (results, DistPowerXfmrWinding.szGroupKEY);
+			while (groups.hasNext()) {
+				DistPowerXfmrWinding obj = new DistPowerXfmrWinding (groups.next());
+				mapXfmrWindings.put (obj.GetKey(), obj); 
+			}
+		});
 	}
 
 	void LoadCoordinates() {
-		ResultSet results = queryHandler.query (DistCoordinates.szQUERY);
-		while (results.hasNext()) {
-			DistCoordinates obj = new DistCoordinates (results);
-			mapCoordinates.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistCoordinates.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistCoordinates obj = new DistCoordinates (results);
+				mapCoordinates.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	void LoadFeeders() {
-		ResultSet results = queryHandler.query (DistFeeder.szQUERY);
-		while (results.hasNext()) {
-			DistFeeder obj = new DistFeeder (results);
-			mapFeeders.put (obj.GetKey(), obj);
-		}
+		ReadQuery (DistFeeder.szQUERY, results -> {
+			while (results.hasNext()) {
+				DistFeeder obj = new DistFeeder (results);
+				mapFeeders.put (obj.GetKey(), obj);
+			}
+		});
 	}
 
 	public void PrintOneMap(HashMap<String,? extends DistComponent> map, String label) {
 		System.out.println(label);
-		SortedSet<String> keys = new TreeSet<String>(map.keySet());
-		for (String key : keys) {
-			System.out.println (map.get(key).DisplayString());
+		for (DistComponent obj : map.values()) {
+			System.out.println (obj.DisplayString());
 		}
 	}
 
@@ -462,44 +506,299 @@ public class CIMImporter extends Object {
 		PrintOneMap (mapTanks, "** XFMR TANKS");
 	}
 
+	/** 
+	 *  Each Load* method fills only its own map, so the loaders can run concurrently. 
+	 *  The maps are still populated in the same row order, one thread per map, so 
+	 *  the output files match those from sequential loading.
+	 *  Afterwards every map is sorted by key, which is then the order of all the output files.
+	 */
 	public void LoadAllMaps() {
-		LoadCountMaps();
-		LoadBaseVoltages();
-		LoadBreakers();
-		LoadCapacitors();
-		LoadConcentricNeutralCables();
-		LoadCoordinates();
-		LoadDisconnectors();
-		LoadFuses();
-		LoadLinesCodeZ();
-		LoadLinesInstanceZ();
-		LoadLineSpacings();
-		LoadLinesSpacingZ();
-		LoadLoadBreakSwitches();
-		LoadLoads();
-		LoadMeasurements();
-		LoadOverheadWires();
-		LoadPhaseMatrices();
-		LoadPowerXfmrCore();
-		LoadPowerXfmrMesh();
-		LoadPowerXfmrWindings();
-		LoadReclosers();
-		LoadRegulators();
-		LoadSectionalisers();
-		LoadSequenceMatrices();
-		LoadSolars();
-		LoadStorages();
-		LoadSubstations();
-		LoadTapeShieldCables();
-		LoadXfmrCodeOCTests();
-		LoadXfmrCodeRatings();
-		LoadXfmrCodeSCTests();
-		LoadXfmrTanks();
-		LoadXfmrBanks();
-		LoadFeeders();
+		topology = null;
+		listConnectivityNodes = null;
+		if (nLoadThreads > 1) {
+			LoadAllMapsParallel (nLoadThreads);
+		} else {
+			LoadAllMapsSequential ();
+		}
+		SortAllMaps ();
 		allMapsLoaded = true;
 	}
 
+	/** @return every component map by a label for its class, e.g. Capacitors for mapCapacitors */
+	LinkedHashMap<String,LinkedHashMap<String,? extends DistComponent>> LabeledMaps () {
+		LinkedHashMap<String,LinkedHashMap<String,? extends DistComponent>> maps = new LinkedHashMap<>();
+		maps.put ("BaseVoltages", mapBaseVoltages);
+		maps.put ("Breakers", mapBreakers);
+		maps.put ("Capacitors", mapCapacitors);
+		maps.put ("CNCables", mapCNCables);
+		maps.put ("Coordinates", mapCoordinates);
+		maps.put ("Disconnectors", mapDisconnectors);
+		maps.put ("Feeders", mapFeeders);
+		maps.put ("Fuses", mapFuses);
+		maps.put ("GroundDisconnectors", mapGroundDisconnectors);
+		maps.put ("Jumpers", mapJumpers);
+		maps.put ("LinesCodeZ", mapLinesCodeZ);
+		maps.put ("LinesInstanceZ", mapLinesInstanceZ);
+		maps.put ("Spacings", mapSpacings);
+		maps.put ("LinesSpacingZ", mapLinesSpacingZ);
+		maps.put ("Loads", mapLoads);
+		maps.put ("LoadBreakSwitches", mapLoadBreakSwitches);
+		maps.put ("Wires", mapWires);
+		maps.put ("PhaseMatrices", mapPhaseMatrices);
+		maps.put ("XfmrCores", mapXfmrCores);
+		maps.put ("XfmrMeshes", mapXfmrMeshes);
+		maps.put ("XfmrWindings", mapXfmrWindings);
+		maps.put ("Reclosers", mapReclosers);
+		maps.put ("Regulators", mapRegulators);
+		maps.put ("Sectionalisers", mapSectionalisers);
+		maps.put ("SequenceMatrices", mapSequenceMatrices);
+		maps.put ("Solars", mapSolars);
+		maps.put ("Storages", mapStorages);
+		maps.put ("Substations", mapSubstations);
+		maps.put ("TSCables", mapTSCables);
+		maps.put ("CodeOCTests", mapCodeOCTests);
+		maps.put ("CodeRatings", mapCodeRatings);
+		maps.put ("CodeSCTests", mapCodeSCTests);
+		maps.put ("Tanks", mapTanks);
+		maps.put ("Banks", mapBanks);
+		maps.put ("Measurements", mapMeasurements);
+		return maps;
+	}
+
+	/** the classes in the dictionary file, besides the feeder */
+	static final String[] DICTIONARY_CLASSES = {"Feeders", "Capacitors", "Regulators", "Solars", "Storages", "LoadBreakSwitches",
+		"Fuses", "Sectionalisers", "Breakers", "Reclosers", "Disconnectors", "Measurements"};
+	/** the classes in the symbol file; regulators and tanks also decide which tanks have symbols */
+	static final String[] SYMBOL_CLASSES = {"Feeders", "Coordinates", "Substations", "Capacitors", "Solars", "Storages", "LinesCodeZ",
+		"LinesInstanceZ", "LinesSpacingZ", "LoadBreakSwitches", "Fuses", "Breakers", "Reclosers", "Sectionalisers", "Disconnectors",
+		"XfmrWindings", "Tanks", "Regulators"};
+
+	/** @return the classes that a GridLAB-D or OpenDSS model depends on, i.e. all but the measurements and the feeder names */
+	List<String> ModelClasses (boolean bCoordinates) {
+		List<String> labels = new ArrayList<>(LabeledMaps().keySet());
+		labels.remove ("Measurements");
+		labels.remove ("Feeders");
+		if (!bCoordinates) {
+			labels.remove ("Coordinates");
+		}
+		return labels;
+	}
+
+	/**
+	 *  Fingerprints the loaded maps, compares them to those of the last export and saves them for the next one.
+	 *  @param fPrints file of saved fingerprints, replaced by those of this export
+	 *  @param options the export options, which must match the saved ones for any file to be skipped
+	 *  @param bNodes true to include the ConnectivityNodes, which GridLAB-D writes even if nothing connects to them
+	 *  @return fingerprints to save once the files are written
+	 */
+	ModelFingerprint CompareFingerprints (String fPrints, String options, boolean bNodes) {
+		ModelFingerprint prints = new ModelFingerprint ();
+		prints.SetOptions (options);
+		for (Map.Entry<String,LinkedHashMap<String,? extends DistComponent>> pair : LabeledMaps().entrySet()) {
+			prints.Add (pair.getKey(), pair.getValue());
+		}
+		if (bNodes) {
+			prints.AddNames ("ConnectivityNodes", GetConnectivityNodes());
+		}
+		setChanged = prints.Changed (ModelFingerprint.Read (fPrints));
+		return prints;
+	}
+
+	/**
+	 *  @param labels the classes that the file depends on, or null if it must always be written
+	 *  @return true unless incremental and the file is left from an earlier export with none of these classes changed
+	 */
+	boolean NeedsWrite (ArtifactOutput art, String fName, Collection<String> labels) {
+		if (!bIncremental || setChanged == null || labels == null || !art.Exists (fName)) {
+			return true;
+		}
+		if (art.IsBundle() && !setChanged.isEmpty()) {
+			return true;
+		}
+		for (String label : labels) {
+			if (setChanged.contains (label)) {
+				return true;
+			}
+		}
+		System.out.println ("Unchanged: " + fName);
+		return false;
+	}
+
+	/** 
+	 *  Reorders one of the map fields by key, in place, as the SwitchStore holds the switch maps,
+	 *  so the writers can iterate it without sorting
+	 *  @return the same map, now in key order
+	 */
+	static <T> LinkedHashMap<String,T> SortByKey (LinkedHashMap<String,T> map) {
+		TreeMap<String,T> sorted = new TreeMap<> (map);
+		map.clear();
+		map.putAll (sorted);
+		return map;
+	}
+
+	void SortAllMaps() {
+		SortByKey (mapBaseVoltages);
+		SortByKey (mapBreakers);
+		SortByKey (mapCapacitors);
+		SortByKey (mapCNCables);
+		SortByKey (mapCoordinates);
+		SortByKey (mapDisconnectors);
+		SortByKey (mapFeeders);
+		SortByKey (mapFuses);
+		SortByKey (mapGroundDisconnectors);
+		SortByKey (mapJumpers);
+		SortByKey (mapLinesCodeZ);
+		SortByKey (mapLinesInstanceZ);
+		SortByKey (mapSpacings);
+		SortByKey (mapLinesSpacingZ);
+		SortByKey (mapLoads);
+		SortByKey (mapLoadBreakSwitches);
+		SortByKey (mapWires);
+		SortByKey (mapPhaseMatrices);
+		SortByKey (mapXfmrCores);
+		SortByKey (mapXfmrMeshes);
+		SortByKey (mapXfmrWindings);
+		SortByKey (mapReclosers);
+		SortByKey (mapRegulators);
+		SortByKey (mapSectionalisers);
+		SortByKey (mapSequenceMatrices);
+		SortByKey (mapSolars);
+		SortByKey (mapStorages);
+		SortByKey (mapSubstations);
+		SortByKey (mapTSCables);
+		SortByKey (mapCodeOCTests);
+		SortByKey (mapCodeRatings);
+		SortByKey (mapCodeSCTests);
+		SortByKey (mapTanks);
+		SortByKey (mapBanks);
+		SortByKey (mapMeasurements);
+	}
+
+	void LoadAllMapsSequential() {
+		Measure ("LoadBaseVoltages", this::LoadBaseVoltages, mapBaseVoltages);
+		Measure ("LoadCapacitors", this::LoadCapacitors, mapCapacitors);
+		Measure ("LoadConcentricNeutralCables", this::LoadConcentricNeutralCables, mapCNCables);
+		Measure ("LoadCoordinates", this::LoadCoordinates, mapCoordinates);
+		Measure ("LoadLinesCodeZ", this::LoadLinesCodeZ, mapLinesCodeZ);
+		Measure ("LoadLinesInstanceZ", this::LoadLinesInstanceZ, mapLinesInstanceZ);
+		Measure ("LoadLineSpacings", this::LoadLineSpacings, mapSpacings);
+		Measure ("LoadLinesSpacingZ", this::LoadLinesSpacingZ, mapLinesSpacingZ);
+		Measure ("LoadLoads", this::LoadLoads, mapLoads);
+		Measure ("LoadMeasurements", this::LoadMeasurements, mapMeasurements);
+		Measure ("LoadOverheadWires", this::LoadOverheadWires, mapWires);
+		Measure ("LoadPhaseMatrices", this::LoadPhaseMatrices, mapPhaseMatrices);
+		Measure ("LoadPowerXfmrCore", this::LoadPowerXfmrCore, mapXfmrCores);
+		Measure ("LoadPowerXfmrMesh", this::LoadPowerXfmrMesh, mapXfmrMeshes);
+		Measure ("LoadPowerXfmrWindings", this::LoadPowerXfmrWindings, mapXfmrWindings);
+		Measure ("LoadRegulators", this::LoadRegulators, mapRegulators);
+		Measure ("LoadSequenceMatrices", this::LoadSequenceMatrices, mapSequenceMatrices);
+		Measure ("LoadSolars", this::LoadSolars, mapSolars);
+		Measure ("LoadStorages", this::LoadStorages, mapStorages);
+		Measure ("LoadSubstations", this::LoadSubstations, mapSubstations);
+		Measure ("LoadSwitches", this::LoadSwitches, switches);
+		Measure ("LoadTapeShieldCables", this::LoadTapeShieldCables, mapTSCables);
+		Measure ("LoadXfmrCodeOCTests", this::LoadXfmrCodeOCTests, mapCodeOCTests);
+		Measure ("LoadXfmrCodeRatings", this::LoadXfmrCodeRatings, mapCodeRatings);
+		Measure ("LoadXfmrCodeSCTests", this::LoadXfmrCodeSCTests, mapCodeSCTests);
+		Measure ("LoadXfmrTanks", this::LoadXfmrTanks, mapTanks);
+		Measure ("LoadXfmrBanks", this::LoadXfmrBanks, mapBanks);
+		Measure ("LoadFeeders", this::LoadFeeders, mapFeeders);
+	}
+
+	void LoadAllMapsParallel (int nThreads) {
+		ExecutorService pool = Executors.newFixedThreadPool (nThreads);
+		try {
+			List<Future<?>> loads = new ArrayList<>();
+			loads.add (pool.submit (() -> Measure ("LoadBaseVoltages", this::LoadBaseVoltages, mapBaseVoltages)));
+			loads.add (pool.submit (() -> Measure ("LoadCapacitors", this::LoadCapacitors, mapCapacitors)));
+			loads.add (pool.submit (() -> Measure ("LoadConcentricNeutralCables", this::LoadConcentricNeutralCables, mapCNCables)));
+			loads.add (pool.submit (() -> Measure ("LoadCoordinates", this::LoadCoordinates, mapCoordinates)));
+			loads.add (pool.submit (() -> Measure ("LoadLinesCodeZ", this::LoadLinesCodeZ, mapLinesCodeZ)));
+			loads.add (pool.submit (() -> Measure ("LoadLinesInstanceZ", this::LoadLinesInstanceZ, mapLinesInstanceZ)));
+			loads.add (pool.submit (() -> Measure ("LoadLineSpacings", this::LoadLineSpacings, mapSpacings)));
+			loads.add (pool.submit (() -> Measure ("LoadLinesSpacingZ", this::LoadLinesSpacingZ, mapLinesSpacingZ)));
+			loads.add (pool.submit (() -> Measure ("LoadLoads", this::LoadLoads, mapLoads)));
+			loads.add (pool.submit (() -> Measure ("LoadMeasurements", this::LoadMeasurements, mapMeasurements)));
+			loads.add (pool.submit (() -> Measure ("LoadOverheadWires", this::LoadOverheadWires, mapWires)));
+			loads.add (pool.submit (() -> Measure ("LoadPhaseMatrices", this::LoadPhaseMatrices, mapPhaseMatrices)));
+			loads.add (pool.submit (() -> Measure ("LoadPowerXfmrCore", this::LoadPowerXfmrCore, mapXfmrCores)));
+			loads.add (pool.submit (() -> Measure ("LoadSequenceMatrices", this::LoadSequenceMatrices, mapSequenceMatrices)));
+			loads.add (pool.submit (() -> Measure ("LoadSolars", this::LoadSolars, mapSolars)));
+			loads.add (pool.submit (() -> Measure ("LoadStorages", this::LoadStorages, mapStorages)));
+			loads.add (pool.submit (() -> Measure ("LoadSubstations", this::LoadSubstations, mapSubstations)));
+			loads.add (pool.submit (() -> Measure ("LoadSwitches", this::LoadSwitches, switches)));
+			loads.add (pool.submit (() -> Measure ("LoadTapeShieldCables", this::LoadTapeShieldCables, mapTSCables)));
+			loads.add (pool.submit (() -> Measure ("LoadXfmrCodeOCTests", this::LoadXfmrCodeOCTests, mapCodeOCTests)));
+			loads.add (pool.submit (() -> Measure ("LoadFeeders", this::LoadFeeders, mapFeeders)));
+			loads.add (pool.submit (() -> Measure ("LoadPowerXfmrMesh", this::LoadPowerXfmrMesh, mapXfmrMeshes)));
+			loads.add (pool.submit (() -> Measure ("LoadPowerXfmrWindings", this::LoadPowerXfmrWindings, mapXfmrWindings)));
+			loads.add (pool.submit (() -> Measure ("LoadXfmrCodeRatings", this::LoadXfmrCodeRatings, mapCodeRatings)));
+			loads.add (pool.submit (() -> Measure ("LoadXfmrCodeSCTests", this::LoadXfmrCodeSCTests, mapCodeSCTests)));
+			loads.add (pool.submit (() -> Measure ("LoadXfmrTanks", this::LoadXfmrTanks, mapTanks)));
+			loads.add (pool.submit (() -> Measure ("LoadXfmrBanks", this::LoadXfmrBanks, mapBanks)));
+			loads.add (pool.submit (() -> Measure ("LoadRegulators", this::LoadRegulators, mapRegulators)));
+			WaitForLoaders (loads);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/** runs one Load* method, charging its time, queries and objects built to a phase when metrics are enabled */
+	void Measure (String phase, Runnable loader, Map<String,?> map) {
+		Measure (phase, loader, map.values());
+	}
+
+	void Measure (String phase, Runnable loader, Collection<?> objects) {
+		if (metrics == null) {
+			loader.run();
+			return;
+		}
+		String outer = metrics.EnterPhase (phase);
+		long t0 = System.nanoTime();
+		try {
+			loader.run();
+		} finally {
+			metrics.ExitPhase (phase, outer, 1.0e-9 * (System.nanoTime() - t0), objects.size(), 0);
+		}
+	}
+
+	/** runs one Write* method, which closes its files, then charges its time and the uncompressed file sizes to a phase */
+	void MeasureWrite (String phase, Runnable writer, ArtifactOutput art, String... files) {
+		if (metrics == null) {
+			writer.run();
+			return;
+		}
+		String outer = metrics.EnterPhase (phase);
+		long t0 = System.nanoTime();
+		try {
+			writer.run();
+		} finally {
+			long bytes = 0;
+			for (String f : files) {
+				bytes += art.Length (f);
+			}
+			metrics.ExitPhase (phase, outer, 1.0e-9 * (System.nanoTime() - t0), 0, bytes);
+		}
+	}
+
+	/** waits for every loader, which also publishes the maps they filled to this thread */
+	private void WaitForLoaders (List<Future<?>> futures) {
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException ("interrupted while loading maps", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new RuntimeException (cause);
+			}
+		}
+	}
+
 	public boolean CheckMaps() {
 		int nLinks, nNodes;
 
@@ -520,179 +819,117 @@ public class CIMImporter extends Object {
 	}
 
 	
-	public void WriteMapDictionary (HashMap<String,? extends DistComponent> map, String label, boolean bLast, PrintWriter out){
-		WriteMapDictionary(map, label, bLast, out, -1);
-	}
-
-	public void WriteMapDictionary (HashMap<String,? extends DistComponent> map, String label, boolean bLast, PrintWriter out, int maxMeasurements) {
-		int count = 1, last = map.size();
-		out.println ("\"" + label + "\":[");
-
-		SortedSet<String> keys = new TreeSet<String>(map.keySet());
-		//If we only want a limited number of measurements restrict them
-		if(maxMeasurements>=0 && keys.size()>maxMeasurements){
-			List<String> tmp = new ArrayList<String>();
-			tmp.addAll(keys);
-			keys = new TreeSet<String>(tmp.subList(0, maxMeasurements));
-		}
-		for (String key : keys) {
-			out.print (map.get(key).GetJSONEntry ());
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
+	/** writes each component on its own line, as part of the current array */
+	private void WriteEntries (Iterable<? extends DistComponent> objs, JsonWriter w, int limit) {
+		int count = 0;
+		for (DistComponent obj : objs) {
+			if (limit >= 0 && count++ >= limit) {
+				break;
 			}
-		}
-		if (bLast) {
-			out.println("]");
-		} else {
-			out.println("],");
+			w.NewLine();
+			obj.WriteJSONEntry (w);
 		}
 	}
 
-	public void WriteDictionaryFile (PrintWriter out, int maxMeasurements) {
-		out.println("{\"feeders\":[");
-		for (HashMap.Entry<String,DistFeeder> pair : mapFeeders.entrySet()) {
-			DistFeeder fdr = pair.getValue();
-			if (fdr.feederID.equals (queryHandler.getFeederSelection())) {
-				out.println("{\"name\":\"" + fdr.feederName + "\",");
-				out.println("\"mRID\":\"" + fdr.feederID + "\",");
-				out.println("\"substation\":\"" + fdr.substationName + "\",");
-				out.println("\"substationID\":\"" + fdr.substationID + "\",");
-				out.println("\"subregion\":\"" + fdr.subregionName + "\",");
-				out.println("\"subregionID\":\"" + fdr.subregionID + "\",");
-				out.println("\"region\":\"" + fdr.regionName + "\",");
-				out.println("\"regionID\":\"" + fdr.regionID + "\",");
-			}
-		}
-		WriteMapDictionary (mapCapacitors, "capacitors", false, out);
-		WriteMapDictionary (mapRegulators, "regulators", false, out);
-		WriteMapDictionary (mapSolars, "solarpanels", false, out);
-		WriteMapDictionary (mapStorages, "batteries", false, out);
-		WriteMapDictionary (mapLoadBreakSwitches, "switches", false, out);
-		WriteMapDictionary (mapFuses, "fuses", false, out);
-		WriteMapDictionary (mapSectionalisers, "sectionalisers", false, out);
-		WriteMapDictionary (mapBreakers, "breakers", false, out);
-		WriteMapDictionary (mapReclosers, "reclosers", false, out);
-		WriteMapDictionary (mapDisconnectors, "disconnectors", false, out);
-		WriteMapDictionary (mapMeasurements, "measurements", true, out, maxMeasurements);
-		out.println("}]}");
-		out.close();
+	private void WriteSymbols (Iterable<? extends DistComponent> objs, JsonWriter w) {
+		for (DistComponent obj : objs) {
+			w.NewLine();
+			obj.WriteJSONSymbols (w, mapCoordinates, mapTanks);
+		}
 	}
 
-	public void WriteMapSymbols (HashMap<String,? extends DistComponent> map, String label, boolean bLast, PrintWriter out) {
-		int count = 1, last = map.size();
-		out.println ("\"" + label + "\":[");
-
-		SortedSet<String> keys = new TreeSet<String>(map.keySet());
-		for (String key : keys) {
-			out.print (map.get(key).GetJSONSymbols (mapCoordinates, mapTanks));
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
+	/** opens the feeder object, with the names and mRIDs of the selected feeder */
+	private void BeginFeederJSON (JsonWriter w) {
+		w.BeginObject().Name("feeders").BeginArray().NewLine().BeginObject();
+		for (DistFeeder fdr : mapFeeders.values()) {
+			if (fdr.feederID.equals (queryHandler.getFeederSelection())) {
+				w.Name("name").Value(fdr.feederName);
+				w.NewLine().Name("mRID").Value(fdr.feederID);
+				w.NewLine().Name("substation").Value(fdr.substationName);
+				w.NewLine().Name("substationID").Value(fdr.substationID);
+				w.NewLine().Name("subregion").Value(fdr.subregionName);
+				w.NewLine().Name("subregionID").Value(fdr.subregionID);
+				w.NewLine().Name("region").Value(fdr.regionName);
+				w.NewLine().Name("regionID").Value(fdr.regionID);
 			}
 		}
-		if (bLast) {
-			out.println("]");
-		} else {
-			out.println("],");
-		}
 	}
 
-	public void WriteJSONSymbolFile (PrintWriter out)  {
-		
-		int count, last;
+	/** closes the feeder object and the writer */
+	private void EndFeederJSON (JsonWriter w) {
+		w.NewLine().EndObject().EndArray().EndObject();
+		w.Close();
+	}
 
-		out.println("{\"feeders\":[");
-		for (HashMap.Entry<String,DistFeeder> pair : mapFeeders.entrySet()) {
-			DistFeeder fdr = pair.getValue();
-			if (fdr.feederID.equals (queryHandler.getFeederSelection())) {
-				out.println("{\"name\":\"" + fdr.feederName + "\",");
-				out.println("\"mRID\":\"" + fdr.feederID + "\",");
-				out.println("\"substation\":\"" + fdr.substationName + "\",");
-				out.println("\"substationID\":\"" + fdr.substationID + "\",");
-				out.println("\"subregion\":\"" + fdr.subregionName + "\",");
-				out.println("\"subregionID\":\"" + fdr.subregionID + "\",");
-				out.println("\"region\":\"" + fdr.regionName + "\",");
-				out.println("\"regionID\":\"" + fdr.regionID + "\",");
-			}
-		}
+	public void WriteMapDictionary (HashMap<String,? extends DistComponent> map, String label, JsonWriter w){
+		WriteMapDictionary(map, label, w, -1);
+	}
 
-		WriteMapSymbols (mapSubstations, "swing_nodes", false, out);
-		WriteMapSymbols (mapCapacitors, "capacitors", false, out);
-		WriteMapSymbols (mapSolars, "solarpanels", false, out);
-		WriteMapSymbols (mapStorages, "batteries", false, out);
+	/** @param maxMeasurements writes only the first maxMeasurements components, if not negative */
+	public void WriteMapDictionary (HashMap<String,? extends DistComponent> map, String label, JsonWriter w, int maxMeasurements) {
+		w.NewLine().Name(label).BeginArray();
+		WriteEntries (map.values(), w, maxMeasurements);
+		w.NewLine().EndArray();
+	}
 
-		out.println("\"overhead_lines\":[");
-		count = 1;
-		last = mapLinesCodeZ.size() + mapLinesInstanceZ.size() + mapLinesSpacingZ.size();
-		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
-			out.print (pair.getValue().GetJSONSymbols(mapCoordinates, mapTanks));
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
-			}
-		}
-		for (HashMap.Entry<String,DistLinesInstanceZ> pair : mapLinesInstanceZ.entrySet()) {
-			out.print (pair.getValue().GetJSONSymbols(mapCoordinates, mapTanks));
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
-			}
-		}
-		for (HashMap.Entry<String,DistLinesSpacingZ> pair : mapLinesSpacingZ.entrySet()) {
-			out.print (pair.getValue().GetJSONSymbols(mapCoordinates, mapTanks));
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
-			}
-		}
-		out.println("],");
+	public void WriteDictionaryFile (PrintWriter out, int maxMeasurements) {
+		JsonWriter w = new JsonWriter (out);
+		BeginFeederJSON (w);
+		WriteMapDictionary (mapCapacitors, "capacitors", w);
+		WriteMapDictionary (mapRegulators, "regulators", w);
+		WriteMapDictionary (mapSolars, "solarpanels", w);
+		WriteMapDictionary (mapStorages, "batteries", w);
+		WriteMapDictionary (mapLoadBreakSwitches, "switches", w);
+		WriteMapDictionary (mapFuses, "fuses", w);
+		WriteMapDictionary (mapSectionalisers, "sectionalisers", w);
+		WriteMapDictionary (mapBreakers, "breakers", w);
+		WriteMapDictionary (mapReclosers, "reclosers", w);
+		WriteMapDictionary (mapDisconnectors, "disconnectors", w);
+		WriteMapDictionary (mapMeasurements, "measurements", w, maxMeasurements);
+		EndFeederJSON (w);
+	}
 
-		WriteMapSymbols (mapLoadBreakSwitches, "switches", false, out);
-		WriteMapSymbols (mapFuses, "fuses", false, out);
-		WriteMapSymbols (mapBreakers, "breakers", false, out);
-		WriteMapSymbols (mapReclosers, "reclosers", false, out);
-		WriteMapSymbols (mapSectionalisers, "sectionalisers", false, out);
-		WriteMapSymbols (mapDisconnectors, "disconnectors", false, out);
+	public void WriteMapSymbols (HashMap<String,? extends DistComponent> map, String label, JsonWriter w) {
+		w.NewLine().Name(label).BeginArray();
+		WriteSymbols (map.values(), w);
+		w.NewLine().EndArray();
+	}
 
-		out.println("\"transformers\":[");
-		count = 1;
-		last =  mapXfmrWindings.size();
-		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
-			if (pair.getValue().glmUsed) {
-				last += 1;
-			}
-		}
-		for (HashMap.Entry<String,DistPowerXfmrWinding> pair : mapXfmrWindings.entrySet()) {
-			out.print (pair.getValue().GetJSONSymbols(mapCoordinates, mapTanks));
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
-			}
-		}
-		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
-			DistXfmrTank obj = pair.getValue();
+	public void WriteJSONSymbolFile (PrintWriter out)  {
+		JsonWriter w = new JsonWriter (out);
+		BeginFeederJSON (w);
+
+		WriteMapSymbols (mapSubstations, "swing_nodes", w);
+		WriteMapSymbols (mapCapacitors, "capacitors", w);
+		WriteMapSymbols (mapSolars, "solarpanels", w);
+		WriteMapSymbols (mapStorages, "batteries", w);
+
+		w.NewLine().Name("overhead_lines").BeginArray();
+		WriteSymbols (mapLinesCodeZ.values(), w);
+		WriteSymbols (mapLinesInstanceZ.values(), w);
+		WriteSymbols (mapLinesSpacingZ.values(), w);
+		w.NewLine().EndArray();
+
+		WriteMapSymbols (mapLoadBreakSwitches, "switches", w);
+		WriteMapSymbols (mapFuses, "fuses", w);
+		WriteMapSymbols (mapBreakers, "breakers", w);
+		WriteMapSymbols (mapReclosers, "reclosers", w);
+		WriteMapSymbols (mapSectionalisers, "sectionalisers", w);
+		WriteMapSymbols (mapDisconnectors, "disconnectors", w);
+
+		w.NewLine().Name("transformers").BeginArray();
+		WriteSymbols (mapXfmrWindings.values(), w);
+		for (DistXfmrTank obj : mapTanks.values()) {
 			if (obj.glmUsed) {
-				out.print(obj.GetJSONSymbols(mapCoordinates, mapTanks));
-				if (count++ < last) {
-					out.println (",");
-				} else {
-					out.println ("");
-				}
+				w.NewLine();
+				obj.WriteJSONSymbols (w, mapCoordinates, mapTanks);
 			}
 		}
-		out.println("],");
+		w.NewLine().EndArray();
 
-		WriteMapSymbols (mapRegulators, "regulators", true, out);
+		WriteMapSymbols (mapRegulators, "regulators", w);
 
-		out.println("}]}");
-		out.close();
+		EndFeederJSON (w);
 	}
 
 	private String GetGLMLineConfiguration (DistLinesSpacingZ ln) {
@@ -740,129 +977,239 @@ public class CIMImporter extends Object {
 		String match_SPC = buf.toString();
 
 		// search for an existing one
-		for (HashMap.Entry<String, GldLineConfig> pair: mapLineConfigs.entrySet()) {
-			GldLineConfig cfg = pair.getValue();
-			config_name = pair.getKey();
-			if (cfg.spacing.equals (match_SPC)) {
-				if (cfg.conductor_A.equals (match_A)) {
-					if (cfg.conductor_B.equals (match_B)) {
-						if (cfg.conductor_C.equals (match_C)) {
-							if (cfg.conductor_N.equals (match_N)) {
-								return config_name;
-							}
-						}
-					}
-				}
-			}
+		String key = GldLineConfig.GetKey (match_SPC, match_A, match_B, match_C, match_N);
+		GldLineConfig cfg = mapLineConfigKeys.get (key);
+		if (cfg != null) {
+			return cfg.name;
 		}
 
 		// need to make a new one
 		config_name = "lcon_" + ln.spacing + "_" + ln.name;
-		GldLineConfig cfg = new GldLineConfig (config_name);
+		cfg = new GldLineConfig (config_name);
 		cfg.spacing = match_SPC;
 		cfg.conductor_A = match_A;
 		cfg.conductor_B = match_B;
 		cfg.conductor_C = match_C;
 		cfg.conductor_N = match_N;
 		mapLineConfigs.put (config_name, cfg);
+		mapLineConfigKeys.put (key, cfg);
 		return config_name;
 	}
 	
-	protected void WriteGLMFile (PrintWriter out, double load_scale, boolean bWantSched, String fSched, 
-																	 boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff) {
-
-		// build a polymorphic map of switches
-		HashMap<String,DistSwitch> mapSwitches = new HashMap<>();
-		mapSwitches.putAll (mapLoadBreakSwitches);
-		mapSwitches.putAll (mapFuses);
-		mapSwitches.putAll (mapBreakers);
-		mapSwitches.putAll (mapReclosers);
-		mapSwitches.putAll (mapSectionalisers);
-		mapSwitches.putAll (mapDisconnectors);
+	/** @return names of the feeder's ConnectivityNodes, including those without equipment, queried on first use */
+	protected List<String> GetConnectivityNodes () {
+		if (listConnectivityNodes == null) {
+			List<String> names = new ArrayList<>();
+			ReadQuery (
+					"SELECT ?name WHERE {"+
+					" ?fdr c:IdentifiedObject.mRID ?fdrid."+
+					" ?s c:ConnectivityNode.ConnectivityNodeContainer ?fdr."+
+					" ?s r:type c:ConnectivityNode."+
+					" ?s c:IdentifiedObject.name ?name."+
+			//		" ?fdr c:IdentifiedObject.name ?feeder."+
+				  "} ORDER by ?name", results -> {
+				while (results.hasNext()) {
+					QuerySolution soln = results.next();
+					names.add (DistComponent.SafeName (soln.get ("?name").toString()));
+				}
+			});
+			listConnectivityNodes = names;
+		}
+		return listConnectivityNodes;
+	}
 
-		// preparatory steps to build the list of nodes
-		ResultSet results = queryHandler.query (
-				"SELECT ?name WHERE {"+
-				" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-				" ?s c:ConnectivityNode.ConnectivityNodeContainer ?fdr."+
-				" ?s r:type c:ConnectivityNode."+
-				" ?s c:IdentifiedObject.name ?name."+
-		//		" ?fdr c:IdentifiedObject.name ?feeder."+
-			  "} ORDER by ?name");
-		while (results.hasNext()) {
-			QuerySolution soln = results.next();
-			String bus = DistComponent.SafeName (soln.get ("?name").toString());
-			mapNodes.put (bus, new GldNode(bus));
+	/** @return the bus-branch topology of the loaded maps, built on first use and shared by the writers */
+	protected NetworkTopology GetTopology () {
+		if (topology == null) {
+			topology = BuildTopology ();
+			ArrayList<String> isolated = topology.UnreachableBuses ();
+			if (isolated.size() > 0) {
+				System.out.println ("*** " + Integer.toString (isolated.size()) + " of " + Integer.toString (topology.NumBuses()) + 
+														" buses are not connected to a source, e.g. " + isolated.get(0));
+			}
 		}
+		return topology;
+	}
+
+	/** 
+	 *  Declares every terminal's phases and base voltage, links the buses through lines, switches and transformers, then propagates.
+	 *  Also sets each component's bus index fields, which the writers use instead of bus name lookups.
+	 */
+	protected NetworkTopology BuildTopology () {
+		NetworkTopology topo = new NetworkTopology ();
+		double rt3 = Math.sqrt(3.0);
+
 		for (HashMap.Entry<String,DistSubstation> pair : mapSubstations.entrySet()) {
 			DistSubstation obj = pair.getValue();
-			GldNode nd = mapNodes.get (obj.bus);
-			nd.bSwing = true;
-			nd.nomvln = obj.basev / Math.sqrt(3.0);
-			nd.phases = "ABC";
+			obj.ibus = topo.SetSwing (obj.bus, obj.basev / rt3);
 		}
-		// do the Tanks first, because they assign primary and secondary phasings
 		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
 			DistXfmrTank obj = pair.getValue();
-			DistXfmrCodeRating code = mapCodeRatings.get (obj.tankinfo);
-			code.glmUsed = true;
 			boolean bServiceTransformer = false;
 			String primaryPhase = "";
+			obj.ibus = new int[obj.size];
 			for (int i = 0; i < obj.size; i++) {
-				GldNode nd = mapNodes.get(obj.bus[i]);
-				nd.nomvln = obj.basev[i] / Math.sqrt(3.0);
-				nd.AddPhases (obj.phs[i]);
-				if (nd.bSecondary) {
+				obj.ibus[i] = topo.Declare (obj.bus[i], obj.phs[i], obj.basev[i] / rt3, NetworkTopology.RANK_TANK);
+				if (PhaseSet.Of (obj.phs[i]).IsSecondary()) {
 					bServiceTransformer = true;
 				} else {
 					primaryPhase = obj.phs[i];
-					if (i > 1) {
-						nd.bTertiaryWinding = true; // unsupported primary node in GridLAB-D - TODO: throw some kind of warning
-					}
+				}
+				if (i > 0) {
+					topo.AddLink (obj.ibus[0], obj.ibus[i], NetworkTopology.LINK_TRANSFORMER);
 				}
 			}
-			if (bServiceTransformer) {
+			if (bServiceTransformer) { // the secondary takes its primary phase from the tank, and passes it down the triplex
 				for (int i = 0; i < obj.size; i++) {
-					GldNode nd = mapNodes.get(obj.bus[i]);
-					if (nd.bSecondary) {
-						nd.AddPhases (primaryPhase);
-						DistCoordinates pt1 = mapCoordinates.get("PowerTransformer:" + obj.pname + ":1");
-						DistCoordinates pt2 = mapCoordinates.get("PowerTransformer:" + obj.pname + ":2");
-						if (pt1.x == 0.0 && pt1.y == 0.0) {
-							if (pt2.x != 0.0 || pt2.y != 0.0) {
-								pt1.x = pt2.x + 3.0;
-								pt1.y = pt2.y + 0.0;
-							}
-						} else if (pt2.x == 0.0 && pt2.y == 0.0) {
-							if (pt1.x != 0.0 || pt1.y != 0.0) {
-								pt2.x = pt1.x + 3.0;
-								pt2.y = pt1.y + 0.0;
-							}
-						}
+					if (PhaseSet.Of (obj.phs[i]).IsSecondary()) {
+						topo.Declare (obj.bus[i], primaryPhase, 0.0, NetworkTopology.RANK_NONE);
 					}
 				}
 			}
 		}
 		for (HashMap.Entry<String,DistLoad> pair : mapLoads.entrySet()) {
 			DistLoad obj = pair.getValue();
-			GldNode nd = mapNodes.get (obj.bus);
-			nd.nomvln = obj.basev / Math.sqrt(3.0);
-			nd.AccumulateLoads (obj.name, obj.phases, obj.p, obj.q, obj.pe, obj.qe, obj.pz, obj.pi, obj.pp, obj.qz, obj.qi, obj.qp, randomZIP);
+			obj.ibus = topo.Declare (obj.bus, obj.phases, obj.basev / rt3, NetworkTopology.RANK_LOAD);
 		}
 		for (HashMap.Entry<String,DistCapacitor> pair : mapCapacitors.entrySet()) {
 			DistCapacitor obj = pair.getValue();
-			GldNode nd = mapNodes.get (obj.bus);
-			nd.nomvln = obj.basev / Math.sqrt(3.0);
-			nd.AddPhases (obj.phs);
-		}
-		for (HashMap.Entry<String, DistLinesInstanceZ> pair: mapLinesInstanceZ.entrySet()) {
-			DistLinesInstanceZ obj = pair.getValue();
-			GldNode nd1 = mapNodes.get (obj.bus1);
-			nd1.nomvln = obj.basev / Math.sqrt(3.0);
-			nd1.AddPhases (obj.phases);
-			GldNode nd2 = mapNodes.get (obj.bus2);
-			nd2.nomvln = nd1.nomvln;
-			nd2.AddPhases (obj.phases);
+			obj.ibus = topo.Declare (obj.bus, obj.phs, obj.basev / rt3, NetworkTopology.RANK_CAPACITOR);
+		}
+		for (HashMap.Entry<String,DistLinesInstanceZ> pair : mapLinesInstanceZ.entrySet()) {
+			AddTopologyLine (topo, pair.getValue(), NetworkTopology.RANK_LINE_INSTANCE);
+		}
+		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
+			AddTopologyLine (topo, pair.getValue(), NetworkTopology.RANK_LINE_CODE);
+		}
+		for (HashMap.Entry<String,DistLinesSpacingZ> pair : mapLinesSpacingZ.entrySet()) {
+			AddTopologyLine (topo, pair.getValue(), NetworkTopology.RANK_LINE_SPACING);
+		}
+		for (DistSwitch obj : switches) {
+			if (obj.glm_phases.equals("S")) {
+				obj.ibus1 = topo.AddBus (obj.bus1);
+				obj.ibus2 = topo.AddBus (obj.bus2);
+				topo.AddLink (obj.ibus1, obj.ibus2, NetworkTopology.LINK_SECONDARY);
+			} else {
+				obj.ibus1 = topo.Declare (obj.bus1, obj.phases, obj.basev / rt3, NetworkTopology.RANK_SWITCH);
+				obj.ibus2 = topo.Declare (obj.bus2, obj.phases, obj.basev / rt3, NetworkTopology.RANK_SWITCH);
+				topo.AddLink (obj.ibus1, obj.ibus2, NetworkTopology.LINK_LINE);
+			}
+		}
+		for (HashMap.Entry<String,DistPowerXfmrWinding> pair : mapXfmrWindings.entrySet()) {
+			DistPowerXfmrWinding obj = pair.getValue();
+			obj.ibus = new int[obj.size];
+			for (int i = 0; i < obj.size; i++) {
+				obj.ibus[i] = topo.Declare (obj.bus[i], "ABC", obj.basev[i] / rt3, NetworkTopology.RANK_WINDING);
+				if (i > 0) {
+					topo.AddLink (obj.ibus[0], obj.ibus[i], NetworkTopology.LINK_TRANSFORMER);
+				}
+			}
+		}
+		for (HashMap.Entry<String,DistSolar> pair : mapSolars.entrySet()) {
+			DistSolar obj = pair.getValue();
+			obj.ibus = topo.Declare (obj.bus, obj.phases, 0.0, NetworkTopology.RANK_NONE);
+		}
+		for (HashMap.Entry<String,DistStorage> pair : mapStorages.entrySet()) {
+			DistStorage obj = pair.getValue();
+			obj.ibus = topo.Declare (obj.bus, obj.phases, 0.0, NetworkTopology.RANK_NONE);
+		}
+
+		topo.Propagate ();
+		return topo;
+	}
+
+	private void AddTopologyLine (NetworkTopology topo, DistLineSegment obj, int rank) {
+		double vln = obj.basev / Math.sqrt(3.0);
+		obj.ibus1 = topo.Declare (obj.bus1, obj.phases, vln, rank);
+		obj.ibus2 = topo.Declare (obj.bus2, obj.phases, vln, rank);
+		if (PhaseSet.Of (obj.phases).Has (PhaseSet.S)) {
+			topo.AddLink (obj.ibus1, obj.ibus2, NetworkTopology.LINK_SECONDARY);
+		} else {
+			topo.AddLink (obj.ibus1, obj.ibus2, NetworkTopology.LINK_LINE);
+		}
+	}
+
+	/** regulator tanks are written as regulators, so neither they nor their codes are GridLAB-D transformers or transformer symbols */
+	void UnflagRegulatorTanks () {
+		for (HashMap.Entry<String,DistRegulator> pair : mapRegulators.entrySet()) {
+			DistRegulator reg = pair.getValue();
+			for (int i = 0; i < reg.size; i++) {
+				DistXfmrTank tank = mapTanks.get (reg.tname[i]); // TODO: revisit if GridLAB-D can model un-banked regulator tanks
+				DistXfmrCodeRating code = mapCodeRatings.get (tank.tankinfo);
+				code.glmUsed = false;
+				tank.glmUsed = false;
+			}
+		}
+	}
+
+	/** 
+	 *  Service transformers and triplex lines with coordinates at only one end get the other end 3 units to the right,
+	 *  so each has a visible symbol. The symbols file depends on this, so it runs even when the glm file is not rewritten.
+	 */
+	void OffsetSecondaryCoordinates () {
+		NetworkTopology topo = GetTopology ();
+		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
+			DistXfmrTank obj = pair.getValue();
+			for (int i = 0; i < obj.size; i++) {
+				if (topo.IsSecondary (obj.ibus[i])) {
+					OffsetSecondEnd ("PowerTransformer:" + obj.pname);
+					break;
+				}
+			}
+		}
+		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
+			DistLinesCodeZ obj = pair.getValue();
+			if (PhaseSet.Of (obj.phases).Has (PhaseSet.S)) {
+				OffsetSecondEnd ("ACLineSegment:" + obj.name);
+			}
+		}
+	}
+
+	/** @param key e.g. PowerTransformer:name, for the coordinates of its ends 1 and 2 */
+	void OffsetSecondEnd (String key) {
+		DistCoordinates pt1 = mapCoordinates.get(key + ":1");
+		DistCoordinates pt2 = mapCoordinates.get(key + ":2");
+		if (pt1.x == 0.0 && pt1.y == 0.0) {
+			if (pt2.x != 0.0 || pt2.y != 0.0) {
+				pt1.x = pt2.x + 3.0;
+				pt1.y = pt2.y + 0.0;
+			}
+		} else if (pt2.x == 0.0 && pt2.y == 0.0) {
+			if (pt1.x != 0.0 || pt1.y != 0.0) {
+				pt2.x = pt1.x + 3.0;
+				pt2.y = pt1.y + 0.0;
+			}
+		}
+	}
+
+	protected void WriteGLMFile (PrintWriter out, double load_scale, boolean bWantSched, String fSched, 
+																	 boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff) {
+
+		// the topology assigns all node phases and voltages in one pass, independent of map order
+		NetworkTopology topo = GetTopology ();
+		GldNodeTable nodes = new GldNodeTable (topo);
+		OffsetSecondaryCoordinates (); // before the triplex phases get their primary phase appended
+
+		// preparatory steps to build the list of nodes
+		for (String name : GetConnectivityNodes ()) {
+			nodes.AddNode (name);
+		}
+		for (HashMap.Entry<String,DistLoad> pair : mapLoads.entrySet()) {
+			DistLoad obj = pair.getValue();
+			nodes.Get (obj.ibus).AccumulateLoads (obj.name, obj.phases, obj.p, obj.q, obj.pe, obj.qe, obj.pz, obj.pi, obj.pp, obj.qz, obj.qi, obj.qp, randomZIP);
+		}
+		nodes.ApplyTopology ();
+
+		// the remaining passes only flag nodes and copy the assigned phasing onto components
+		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
+			DistXfmrTank obj = pair.getValue();
+			DistXfmrCodeRating code = mapCodeRatings.get (obj.tankinfo);
+			code.glmUsed = true;
+			for (int i = 0; i < obj.size; i++) {
+				if (!nodes.IsSecondary (obj.ibus[i]) && i > 1) {
+					nodes.SetTertiaryWinding (obj.ibus[i]); // unsupported primary node in GridLAB-D - TODO: throw some kind of warning
+				}
+			}
 		}
 		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
 			DistLinesCodeZ obj = pair.getValue();
@@ -875,36 +1222,14 @@ public class CIMImporter extends Object {
 //					System.out.println ("Sequence Z " + zseq.name + " using " + obj.phases + " for " + obj.name);
 				}
 			}
-			GldNode nd1 = mapNodes.get (obj.bus1);
-			nd1.nomvln = obj.basev / Math.sqrt(3.0);
-			GldNode nd2 = mapNodes.get (obj.bus2);
-			nd2.nomvln = nd1.nomvln;
-			if (obj.phases.contains("s")) {  // add primary phase to this triplex
-				nd1.bSecondary = true;
-				nd2.bSecondary = true;
-				if (nd2.phases.length() > 0) {
-					nd1.AddPhases (nd2.phases);
-					obj.phases = obj.phases + ":" + nd2.phases;
-				} else if (nd1.phases.length() > 0) {
-					nd2.AddPhases (nd1.phases);
-					obj.phases = obj.phases + ":" + nd1.phases;
+			if (PhaseSet.Of (obj.phases).Has (PhaseSet.S)) {  // add primary phase to this triplex
+				String phs1 = nodes.GetPrimaryPhases (obj.ibus1);
+				String phs2 = nodes.GetPrimaryPhases (obj.ibus2);
+				if (phs2.length() > 0) {
+					obj.phases = obj.phases + ":" + phs2;
+				} else if (phs1.length() > 0) {
+					obj.phases = obj.phases + ":" + phs1;
 				}
-				DistCoordinates pt1 = mapCoordinates.get("ACLineSegment:" + obj.name + ":1");
-				DistCoordinates pt2 = mapCoordinates.get("ACLineSegment:" + obj.name + ":2");
-				if (pt1.x == 0.0 && pt1.y == 0.0) {
-					if (pt2.x != 0.0 || pt2.y != 0.0) {
-						pt1.x = pt2.x + 3.0;
-						pt1.y = pt2.y + 0.0;
-					}
-				} else if (pt2.x == 0.0 && pt2.y == 0.0) {
-					if (pt1.x != 0.0 || pt1.y != 0.0) {
-						pt2.x = pt1.x + 3.0;
-						pt2.y = pt1.y + 0.0;
-					}
-				}
-			} else {
-				nd1.AddPhases (obj.phases);
-				nd2.AddPhases (obj.phases);
 			}
 		}
 		for (HashMap.Entry<String,DistLinesSpacingZ> pair : mapLinesSpacingZ.entrySet()) {
@@ -915,175 +1240,113 @@ public class CIMImporter extends Object {
 			if (spc != null) {
 				spc.MarkGLMPermutationsUsed(obj.phases);
 			}
-			GldNode nd1 = mapNodes.get (obj.bus1);
-			nd1.nomvln = obj.basev / Math.sqrt(3.0);
-			nd1.AddPhases (obj.phases);
-			GldNode nd2 = mapNodes.get (obj.bus2);
-			nd2.nomvln = nd1.nomvln;
-			nd2.AddPhases (obj.phases);
-		}
-		for (HashMap.Entry<String,DistSwitch> pair : mapSwitches.entrySet()) {
-			DistSwitch obj = pair.getValue();
-			GldNode nd1 = mapNodes.get (obj.bus1);
-			GldNode nd2 = mapNodes.get (obj.bus2);
-			if (obj.glm_phases.equals("S")) {  // TODO - we should be using a graph component like networkx (but for Java) to assign phasing
-				String phs1 = nd1.GetPhases();
-				String phs2 = nd2.GetPhases();
-				if (phs1.contains ("S")) {
-					obj.glm_phases = nd1.GetPhases();
-					nd2.ResetPhases (phs1);
-				} else if (phs2.contains ("S")) {
-					obj.glm_phases = nd2.GetPhases();
-					nd1.ResetPhases (phs2);
+		}
+		for (DistSwitch obj : switches) {
+			if (obj.glm_phases.equals("S")) {
+				if (nodes.IsSecondary (obj.ibus1)) {
+					obj.glm_phases = nodes.GetPhases (obj.ibus1);
+				} else if (nodes.IsSecondary (obj.ibus2)) {
+					obj.glm_phases = nodes.GetPhases (obj.ibus2);
 				}
-			} else {
-				nd1.nomvln = obj.basev / Math.sqrt(3.0);
-				nd1.AddPhases (obj.phases);
-				nd2.nomvln = nd1.nomvln;
-				nd2.AddPhases (obj.phases);
 			}
 		}
 		for (HashMap.Entry<String,DistPowerXfmrWinding> pair : mapXfmrWindings.entrySet()) {
 			DistPowerXfmrWinding obj = pair.getValue();
-			for (int i = 0; i < obj.size; i++) {
-				GldNode nd = mapNodes.get(obj.bus[i]);
-				nd.nomvln = obj.basev[i] / Math.sqrt(3.0);
-				nd.AddPhases ("ABC");
-				if (i > 1) {
-					nd.bTertiaryWinding = true; // unsupported node in GridLAB-D - TODO: throw some kind of warning
-				}
+			for (int i = 2; i < obj.size; i++) {
+				nodes.SetTertiaryWinding (obj.ibus[i]); // unsupported node in GridLAB-D - TODO: throw some kind of warning
 			}
 		}
 		for (HashMap.Entry<String,DistSolar> pair : mapSolars.entrySet()) {
 			DistSolar obj = pair.getValue();
-			GldNode nd = mapNodes.get (obj.bus);
-			nd.bInverters = true;
-			if (nd.nomvln < 0.0) {
+			nodes.SetInverters (obj.ibus);
+			if (nodes.nomvln[obj.ibus] < 0.0) {
 				if (obj.phases.equals("ABC") || obj.phases.equals("AB") || obj.phases.equals("AC") || obj.phases.equals("BC")) {
-					nd.nomvln = obj.ratedU / Math.sqrt(3.0);
+					nodes.nomvln[obj.ibus] = obj.ratedU / Math.sqrt(3.0);
 				} else {
-					nd.nomvln = obj.ratedU;
+					nodes.nomvln[obj.ibus] = obj.ratedU;
 				}
 			}
-			nd.AddPhases (obj.phases);
-			if (nd.bSecondary) {
-				obj.phases = nd.GetPhases();
+			if (nodes.IsSecondary (obj.ibus)) {
+				obj.phases = nodes.GetPhases (obj.ibus);
 			}
 		}
 		for (HashMap.Entry<String,DistStorage> pair : mapStorages.entrySet()) {
 			DistStorage obj = pair.getValue();
-			GldNode nd = mapNodes.get (obj.bus);
-			nd.bInverters = true;
-			if (nd.nomvln < 0.0) {
+			nodes.SetInverters (obj.ibus);
+			if (nodes.nomvln[obj.ibus] < 0.0) {
 				if (obj.phases.equals("ABC") || obj.phases.equals("AB") || obj.phases.equals("AC") || obj.phases.equals("BC")) {
-					nd.nomvln = obj.ratedU / Math.sqrt(3.0);
+					nodes.nomvln[obj.ibus] = obj.ratedU / Math.sqrt(3.0);
 				} else {
-					nd.nomvln = obj.ratedU;
+					nodes.nomvln[obj.ibus] = obj.ratedU;
 				}
 			}
-			nd.AddPhases (obj.phases);
-			if (nd.bSecondary) {
-				obj.phases = nd.GetPhases();
+			if (nodes.IsSecondary (obj.ibus)) {
+				obj.phases = nodes.GetPhases (obj.ibus);
 			}
 		}
-		for (HashMap.Entry<String,DistRegulator> pair : mapRegulators.entrySet()) {
-			DistRegulator reg = pair.getValue();
-			DistXfmrTank tank = mapTanks.get (reg.tname[0]); // TODO: revisit if GridLAB-D can model un-banked regulator tanks
-			DistXfmrCodeRating code = mapCodeRatings.get (tank.tankinfo);
-			out.print (reg.GetGLM (tank));
-			code.glmUsed = false;
-			tank.glmUsed = false;
-			for (int i = 1; i < reg.size; i++) {
-				tank = mapTanks.get (reg.tname[i]);
-				code = mapCodeRatings.get (tank.tankinfo);
-				code.glmUsed = false;
-				tank.glmUsed = false;
+		UnflagRegulatorTanks ();
+		for (DistSwitch obj : switches) {
+			if (obj.glm_phases.contains ("S")) { // need to parent the nodes instead of writing a switch - TODO: this is hard-wired to PNNL taxonomy
+				if (obj.bus1.contains ("_tn_")) {
+					nodes.Get (obj.ibus2).CopyLoad (nodes.Get (obj.ibus1));
+					nodes.Remove (obj.ibus1);
+				} else {
+					nodes.Get (obj.ibus1).CopyLoad (nodes.Get (obj.ibus2));
+					nodes.Remove (obj.ibus2);
+				}
 			}
 		}
 
+		// from here on the sections only read the maps and nodes, so they may render at once
+		SectionWriter sw = new SectionWriter ();
+		sw.AddEach (mapRegulators.values(), (reg, buf, aux) -> buf.append (reg.GetGLM (mapTanks.get (reg.tname[0]))));
+
 		// GLM configurations
-		for (HashMap.Entry<String,DistOverheadWire> pair : mapWires.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistConcentricNeutralCable> pair : mapCNCables.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistTapeShieldCable> pair : mapTSCables.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistLineSpacing> pair : mapSpacings.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,GldLineConfig> pair : mapLineConfigs.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistPhaseMatrix> pair : mapPhaseMatrices.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistSequenceMatrix> pair : mapSequenceMatrices.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistXfmrCodeRating> pair : mapCodeRatings.entrySet()) {
-			DistXfmrCodeRating code = pair.getValue();
+		sw.AddEach (mapWires.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapCNCables.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapTSCables.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapSpacings.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapLineConfigs.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapPhaseMatrices.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapSequenceMatrices.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapCodeRatings.values(), (code, buf, aux) -> {
 			if (code.glmUsed) {
 				DistXfmrCodeSCTest sct = mapCodeSCTests.get (code.tname);
 				DistXfmrCodeOCTest oct = mapCodeOCTests.get (code.tname);
-				out.print (code.GetGLM(sct, oct));
+				buf.append (code.GetGLM(sct, oct));
 			}
-		}
+		});
 
 		// GLM circuit components
-		for (HashMap.Entry<String,DistCapacitor> pair : mapCapacitors.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistSolar> pair : mapSolars.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistStorage> pair : mapStorages.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistLinesSpacingZ> pair : mapLinesSpacingZ.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistLinesInstanceZ> pair : mapLinesInstanceZ.entrySet()) {
-			out.print (pair.getValue().GetGLM());
-		}
-		for (HashMap.Entry<String,DistSwitch> pair : mapSwitches.entrySet()) {
-			DistSwitch obj = pair.getValue();
-			if (obj.glm_phases.contains ("S")) { // need to parent the nodes instead of writing a switch - TODO: this is hard-wired to PNNL taxonomy
-				GldNode nd1 = mapNodes.get (obj.bus1);
-				GldNode nd2 = mapNodes.get (obj.bus2);
-				if (nd1.name.contains ("_tn_")) {
-					nd2.CopyLoad (nd1);
-					mapNodes.remove (obj.bus1);
-				} else {
-					nd1.CopyLoad (nd2);
-					mapNodes.remove (obj.bus2);
-				}
-			} else {
-				out.print(obj.GetGLM());
+		sw.AddEach (mapCapacitors.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapSolars.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapStorages.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapLinesSpacingZ.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapLinesCodeZ.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (mapLinesInstanceZ.values(), (obj, buf, aux) -> buf.append (obj.GetGLM()));
+		sw.AddEach (switches, (obj, buf, aux) -> {
+			if (!obj.glm_phases.contains ("S")) { // secondary switches were merged into their nodes above
+				buf.append (obj.GetGLM());
 			}
-		}
-		for (HashMap.Entry<String,DistPowerXfmrWinding> pair : mapXfmrWindings.entrySet()) {
-			DistPowerXfmrWinding obj = pair.getValue();
+		});
+		sw.AddEach (mapXfmrWindings.values(), (obj, buf, aux) -> {
 			DistPowerXfmrMesh mesh = mapXfmrMeshes.get (obj.name);
 			DistPowerXfmrCore core = mapXfmrCores.get (obj.name);
-			out.print (pair.getValue().GetGLM(mesh, core));
-		}
-		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
-			DistXfmrTank obj = pair.getValue();
+			buf.append (obj.GetGLM(mesh, core));
+		});
+		sw.AddEach (mapTanks.values(), (obj, buf, aux) -> {
 			if (obj.glmUsed) {
-				out.print (obj.GetGLM());
+				buf.append (obj.GetGLM());
 			}
-		}
+		});
 
 		// GLM nodes and loads
-		for (HashMap.Entry<String,GldNode> pair : mapNodes.entrySet()) {
-			out.print (pair.getValue().GetGLM (load_scale, bWantSched, fSched, bWantZIP, Zcoeff, Icoeff, Pcoeff));
-		}
+		sw.AddEach (nodes.mapIndex.values(), (idx, buf, aux) -> {
+			if (!nodes.IsRemoved (idx)) {
+				buf.append (nodes.Get (idx).GetGLM (load_scale, bWantSched, fSched, bWantZIP, Zcoeff, Icoeff, Pcoeff));
+			}
+		});
+		sw.Write (out, null, nWriteThreads);
 
 		out.close();
 	}
@@ -1091,7 +1354,7 @@ public class CIMImporter extends Object {
 	protected void WriteDSSCoordinates (PrintWriter out)  {
 		String bus;
 		DistCoordinates pt1, pt2;
-		HashMap<String,Double[]> mapBusXY = new HashMap<String,Double[]>();
+		TreeMap<String,Double[]> mapBusXY = new TreeMap<>();
 
 		// loads, capacitors, transformers and energy sources have a single bus location, assumed to be correct
 		for (HashMap.Entry<String,DistCoordinates> pair : mapCoordinates.entrySet()) {
@@ -1145,52 +1408,16 @@ public class CIMImporter extends Object {
 			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
 			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
 		}
-		for (HashMap.Entry<String,DistLoadBreakSwitch> pair : mapLoadBreakSwitches.entrySet()) {
-			DistLoadBreakSwitch obj = pair.getValue();
-			pt1 = mapCoordinates.get("LoadBreakSwitch:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("LoadBreakSwitch:" + obj.name + ":2");
-			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
-			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
-		}
-		for (HashMap.Entry<String,DistFuse> pair : mapFuses.entrySet()) { // TODO - polymorphic switch maps
-			DistFuse obj = pair.getValue();
-			pt1 = mapCoordinates.get("Fuse:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("Fuse:" + obj.name + ":2");
-			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
-			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
-		}
-		for (HashMap.Entry<String,DistRecloser> pair : mapReclosers.entrySet()) {
-			DistRecloser obj = pair.getValue();
-			pt1 = mapCoordinates.get("Recloser:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("Recloser:" + obj.name + ":2");
-			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
-			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
-		}
-		for (HashMap.Entry<String,DistBreaker> pair : mapBreakers.entrySet()) {
-			DistBreaker obj = pair.getValue();
-			pt1 = mapCoordinates.get("Breaker:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("Breaker:" + obj.name + ":2");
-			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
-			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
-		}
-		for (HashMap.Entry<String,DistSectionaliser> pair : mapSectionalisers.entrySet()) {
-			DistSectionaliser obj = pair.getValue();
-			pt1 = mapCoordinates.get("Sectionaliser:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("Sectionaliser:" + obj.name + ":2");
-			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
-			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
-		}
-		for (HashMap.Entry<String,DistDisconnector> pair : mapDisconnectors.entrySet()) {
-			DistDisconnector obj = pair.getValue();
-			pt1 = mapCoordinates.get("Disconnector:" + obj.name + ":1");
-			pt2 = mapCoordinates.get("Disconnector:" + obj.name + ":2");
+		for (DistSwitch obj : switches) {
+			pt1 = mapCoordinates.get(obj.CIMClass() + ":" + obj.name + ":1");
+			pt2 = mapCoordinates.get(obj.CIMClass() + ":" + obj.name + ":2");
 			mapBusXY.put (obj.bus1, new Double [] {pt1.x, pt1.y});
 			mapBusXY.put (obj.bus2, new Double [] {pt2.x, pt2.y});
 		}
 
 		// The bus locations in mapBusXY should now be unique, and topologically consistent, so write them.
 		out.println("// bus locations - after");
-		for (HashMap.Entry<String,Double[]> pair : mapBusXY.entrySet()) {
+		for (Map.Entry<String,Double[]> pair : mapBusXY.entrySet()) {
 			Double[] xy = pair.getValue();
 			bus = pair.getKey();
 			out.println(bus + "," + Double.toString(xy[0]) + "," + Double.toString(xy[1]));
@@ -1210,136 +1437,141 @@ public class CIMImporter extends Object {
 	protected void WriteDSSFile (PrintWriter out, PrintWriter outID, String fXY, String fID, double load_scale, boolean bWantZIP, 
 														double Zcoeff, double Icoeff, double Pcoeff)  {
 
-		for (HashMap.Entry<String,DistSubstation> pair : mapSubstations.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Circuit." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-
-		out.println();
-		for (HashMap.Entry<String,DistOverheadWire> pair : mapWires.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Wiredata." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistConcentricNeutralCable> pair : mapCNCables.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("CNData." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistTapeShieldCable> pair : mapTSCables.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("TSData." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLineSpacing> pair : mapSpacings.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("LineSpacing." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistPhaseMatrix> pair : mapPhaseMatrices.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Linecode." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistSequenceMatrix> pair : mapSequenceMatrices.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Linecode." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistXfmrCodeRating> pair : mapCodeRatings.entrySet()) {
-			DistXfmrCodeRating obj = pair.getValue();
+		// OpenDSS takes the nodes of each bus from the elements' own phases, e.g. .1.2 for s1s2, so unlike
+		// WriteGLMFile this needs no node phasing; the topology only reports buses isolated from the source,
+		// which OpenDSS would reject, and is shared with WriteGLMFile when both files are written
+		GetTopology ();
+
+		SectionWriter sw = new SectionWriter ();
+		sw.AddEach (mapSubstations.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Circuit." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+
+		sw.AddBlankLine ();
+		sw.AddEach (mapWires.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Wiredata." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapCNCables.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("CNData." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapTSCables.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("TSData." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapSpacings.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("LineSpacing." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapPhaseMatrices.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Linecode." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapSequenceMatrices.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Linecode." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapCodeRatings.values(), (obj, buf, id) -> {
 			DistXfmrCodeSCTest sct = mapCodeSCTests.get (obj.tname);
 			DistXfmrCodeOCTest oct = mapCodeOCTests.get (obj.tname);
-			out.print (obj.GetDSS(sct, oct));
-			outID.println ("Xfmrcode." + obj.tname + "\t" + GUIDfromCIMmRID (obj.id));
-		}
-
-		out.println();
-		for (HashMap.Entry<String,DistSolar> pair : mapSolars.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("PVSystem." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistStorage> pair : mapStorages.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Storage." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLoad> pair : mapLoads.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Load." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLoadBreakSwitch> pair : mapLoadBreakSwitches.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistFuse> pair : mapFuses.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistRecloser> pair : mapReclosers.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistSectionaliser> pair : mapSectionalisers.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistBreaker> pair : mapBreakers.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistDisconnector> pair : mapDisconnectors.entrySet()) { // TODO - polymorphic mapSwitches
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLinesCodeZ> pair : mapLinesCodeZ.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLinesSpacingZ> pair : mapLinesSpacingZ.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistLinesInstanceZ> pair : mapLinesInstanceZ.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Line." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistPowerXfmrWinding> pair : mapXfmrWindings.entrySet()) {
-			DistPowerXfmrWinding obj = pair.getValue();
+			buf.append (obj.GetDSS(sct, oct));
+			id.append ("Xfmrcode." + obj.tname + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+
+		sw.AddBlankLine ();
+		sw.AddEach (mapSolars.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("PVSystem." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapStorages.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Storage." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapLoads.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Load." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapLoadBreakSwitches.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapFuses.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapReclosers.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapSectionalisers.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapBreakers.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapDisconnectors.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapLinesCodeZ.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapLinesSpacingZ.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapLinesInstanceZ.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Line." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapXfmrWindings.values(), (obj, buf, id) -> {
 			DistPowerXfmrMesh mesh = mapXfmrMeshes.get (obj.name);
 			DistPowerXfmrCore core = mapXfmrCores.get (obj.name);
-			out.print (obj.GetDSS(mesh, core));
-			outID.println ("Transformer." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistXfmrTank> pair : mapTanks.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Transformer." + pair.getValue().tname + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
-		out.println();
-		for (HashMap.Entry<String,DistRegulator> pair : mapRegulators.entrySet()) {
-			DistRegulator obj = pair.getValue();
-			out.print(obj.GetDSS());
+			buf.append (obj.GetDSS(mesh, core));
+			id.append ("Transformer." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapTanks.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Transformer." + obj.tname + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+		sw.AddBlankLine ();
+		sw.AddEach (mapRegulators.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
 			for (int i = 0; i < obj.size; i++) {
-				outID.println("RegControl." + obj.rname[i] + "\t" + GUIDfromCIMmRID (obj.id[i]));
+				id.append ("RegControl." + obj.rname[i] + "\t" + GUIDfromCIMmRID (obj.id[i])).append (SectionWriter.NL);
 			}
-		}
-		out.println(); // capacitors last in case the capcontrols reference a preceeding element
-		for (HashMap.Entry<String,DistCapacitor> pair : mapCapacitors.entrySet()) {
-			out.print (pair.getValue().GetDSS());
-			outID.println ("Capacitor." + pair.getValue().name + "\t" + GUIDfromCIMmRID (pair.getValue().id));
-		}
+		});
+		sw.AddBlankLine (); // capacitors last in case the capcontrols reference a preceeding element
+		sw.AddEach (mapCapacitors.values(), (obj, buf, id) -> {
+			buf.append (obj.GetDSS());
+			id.append ("Capacitor." + obj.name + "\t" + GUIDfromCIMmRID (obj.id)).append (SectionWriter.NL);
+		});
+
+		sw.Write (out, outID, nWriteThreads);
 
 		out.println();
 		out.print ("set voltagebases=[");
@@ -1364,22 +1596,14 @@ public class CIMImporter extends Object {
 	
 	protected void WriteIndexFile (PrintWriter out)  {
 		LoadFeeders ();
+		SortByKey (mapFeeders);
 		PrintOneMap (mapFeeders, "*** FEEDERS ***");
 
-		out.println("{\"feeders\":[");
-
-		int count = 1, last = mapFeeders.size();
-
-		for (HashMap.Entry<String,DistFeeder> pair : mapFeeders.entrySet()) {
-			out.print (pair.getValue().GetJSONEntry());
-			if (count++ < last) {
-				out.println (",");
-			} else {
-				out.println ("");
-			}
-		}
-		out.println("]}");
-		out.close();
+		JsonWriter w = new JsonWriter (out);
+		w.BeginObject().Name("feeders").BeginArray();
+		WriteEntries (mapFeeders.values(), w, -1);
+		w.NewLine().EndArray().EndObject();
+		w.Close();
 	}
 
 	public void start(QueryHandler queryHandler, String fTarget, String fRoot, String fSched, double load_scale, boolean bWantSched, boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff) throws FileNotFoundException{
@@ -1401,42 +1625,81 @@ public class CIMImporter extends Object {
 	 * @throws FileNotFoundException
 	 */
 	public void start(QueryHandler queryHandler, String fTarget, String fRoot, String fSched, double load_scale, boolean bWantSched, boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff, int maxMeasurements) throws FileNotFoundException{
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		String fOut, fXY, fID, fDict;		
+		ArtifactOutput art = new ArtifactOutput (outputMode, fRoot + "_" + fTarget + ".zip");
+		String fPrints = fRoot + "_" + fTarget + "_fingerprints.txt";
+		String options = fTarget + " " + queryHandler.getFeederSelection() + " " + Double.toString (load_scale) + " " + bWantSched + " " + 
+			fSched + " " + bWantZIP + " " + Double.toString (Zcoeff) + " " + Double.toString (Icoeff) + " " + Double.toString (Pcoeff) + " " + 
+			Integer.toString (maxMeasurements) + " " + Integer.toString (outputMode);
+		ModelFingerprint prints = null;
+		setChanged = null;
 
-		if (fTarget.equals("glm")) {
-			LoadAllMaps();
-			CheckMaps();
-//			PrintAllMaps();
-			fDict = fRoot + "_dict.json";
-			fOut = fRoot + "_base.glm";
-			fXY = fRoot + "_symbols.json";
-			PrintWriter pOut = new PrintWriter(fOut);
-			WriteGLMFile(pOut, load_scale, bWantSched, fSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
-			PrintWriter pXY = new PrintWriter(fXY);
-			WriteJSONSymbolFile (pXY);
-			PrintWriter pDict = new PrintWriter(fDict);
-			WriteDictionaryFile (pDict, maxMeasurements);
-		} else if (fTarget.equals("dss")) {
-			LoadAllMaps();
-			CheckMaps();
-			fDict = fRoot + "_dict.json";
-			fOut = fRoot + "_base.dss";
-			fXY = fRoot + "_busxy.dss";
-			fID = fRoot + "_guid.dss";
-			PrintWriter pOut = new PrintWriter(fOut);
-			PrintWriter pID = new PrintWriter(fID);
-			WriteDSSFile (pOut, pID, fXY, fID, load_scale, bWantZIP, Zcoeff, Icoeff, Pcoeff);
-			PrintWriter pXY = new PrintWriter(fXY);
-			WriteDSSCoordinates (pXY);
-			PrintWriter pSym = new PrintWriter (fRoot + "_symbols.json");
-			WriteJSONSymbolFile (pSym);
-			PrintWriter pDict = new PrintWriter(fDict);
-			WriteDictionaryFile (pDict, maxMeasurements);
-		}	else if (fTarget.equals("idx")) {
-			fOut = fRoot + "_feeder_index.json";
-			PrintWriter pOut = new PrintWriter(fOut);
-			WriteIndexFile (pOut);
+		try {
+			if (fTarget.equals("glm")) {
+				LoadAllMaps();
+				CheckMaps();
+//				PrintAllMaps();
+				if (bIncremental) {
+					prints = CompareFingerprints (fPrints, options, true);
+				}
+				fDict = fRoot + "_dict.json";
+				fOut = fRoot + "_base.glm";
+				fXY = fRoot + "_symbols.json";
+				List<String> labels = ModelClasses (true);
+				labels.add ("ConnectivityNodes");
+				if (NeedsWrite (art, fOut, randomZIP ? null : labels)) {
+					PrintWriter pOut = art.Open (fOut);
+					MeasureWrite ("WriteGLMFile", () -> WriteGLMFile(pOut, load_scale, bWantSched, fSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff), art, fOut);
+				} else {
+					UnflagRegulatorTanks ();
+					OffsetSecondaryCoordinates ();
+				}
+				if (NeedsWrite (art, fXY, Arrays.asList (SYMBOL_CLASSES))) {
+					PrintWriter pXY = art.Open (fXY);
+					MeasureWrite ("WriteJSONSymbolFile", () -> WriteJSONSymbolFile (pXY), art, fXY);
+				}
+				if (NeedsWrite (art, fDict, Arrays.asList (DICTIONARY_CLASSES))) {
+					PrintWriter pDict = art.Open (fDict);
+					MeasureWrite ("WriteDictionaryFile", () -> WriteDictionaryFile (pDict, maxMeasurements), art, fDict);
+				}
+			} else if (fTarget.equals("dss")) {
+				LoadAllMaps();
+				CheckMaps();
+				if (bIncremental) {
+					prints = CompareFingerprints (fPrints, options, false);
+				}
+				fDict = fRoot + "_dict.json";
+				fOut = fRoot + "_base.dss";
+				fXY = fRoot + "_busxy.dss";
+				fID = fRoot + "_guid.dss";
+				if (NeedsWrite (art, fOut, ModelClasses (false)) || NeedsWrite (art, fID, ModelClasses (false))) {
+					PrintWriter pOut = art.Open (fOut);
+					PrintWriter pID = art.Open (fID);
+					MeasureWrite ("WriteDSSFile", () -> WriteDSSFile (pOut, pID, fXY, fID, load_scale, bWantZIP, Zcoeff, Icoeff, Pcoeff), art, fOut, fID);
+				}
+				if (NeedsWrite (art, fXY, ModelClasses (true))) {
+					PrintWriter pXY = art.Open (fXY);
+					MeasureWrite ("WriteDSSCoordinates", () -> WriteDSSCoordinates (pXY), art, fXY);
+				}
+				if (NeedsWrite (art, fRoot + "_symbols.json", Arrays.asList (SYMBOL_CLASSES))) {
+					PrintWriter pSym = art.Open (fRoot + "_symbols.json");
+					MeasureWrite ("WriteJSONSymbolFile", () -> WriteJSONSymbolFile (pSym), art, fRoot + "_symbols.json");
+				}
+				if (NeedsWrite (art, fDict, Arrays.asList (DICTIONARY_CLASSES))) {
+					PrintWriter pDict = art.Open (fDict);
+					MeasureWrite ("WriteDictionaryFile", () -> WriteDictionaryFile (pDict, maxMeasurements), art, fDict);
+				}
+			}	else if (fTarget.equals("idx")) {
+				fOut = fRoot + "_feeder_index.json";
+				PrintWriter pOut = art.Open (fOut);
+				MeasureWrite ("WriteIndexFile", () -> WriteIndexFile (pOut), art, fOut);
+			}
+		} finally {
+			art.Close ();
+		}
+		if (prints != null) {
+			prints.Write (fPrints);
 		}
 	}
 	
@@ -1455,7 +1718,7 @@ public class CIMImporter extends Object {
 	 * @param Pcoeff
 	 */
 	public void generateGLMFile(QueryHandler queryHandler, PrintWriter out, String fSched, double load_scale, boolean bWantSched, boolean bWantZIP, boolean randomZIP, double Zcoeff, double Icoeff, double Pcoeff) {
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		if(!allMapsLoaded){
 			LoadAllMaps();
 		}
@@ -1469,7 +1732,7 @@ public class CIMImporter extends Object {
 	 * @param out
 	 */
 	public void generateJSONSymbolFile(QueryHandler queryHandler, PrintWriter out){
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		if(!allMapsLoaded){
 			LoadAllMaps();
 		}
@@ -1487,7 +1750,7 @@ public class CIMImporter extends Object {
 	 * @param out
 	 */
 	public void generateDictionaryFile(QueryHandler queryHandler, PrintWriter out, int maxMeasurements){
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		if(!allMapsLoaded){
 			LoadAllMaps();
 		}
@@ -1510,7 +1773,7 @@ public class CIMImporter extends Object {
 	 */
 	public void generateDSSFile(QueryHandler queryHandler, PrintWriter out, PrintWriter outID, String fXY, String fID, double load_scale, boolean bWantZIP, 
 														double Zcoeff, double Icoeff, double Pcoeff){
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		if(!allMapsLoaded){
 			LoadAllMaps();
 		}
@@ -1524,7 +1787,7 @@ public class CIMImporter extends Object {
 	 * @param out
 	 */
 	public void generateDSSCoordinates(QueryHandler queryHandler, PrintWriter out){
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		if(!allMapsLoaded){
 			LoadAllMaps();
 		}
@@ -1539,7 +1802,7 @@ public class CIMImporter extends Object {
 	 * @param out
 	 */
 	public void generateFeederIndexFile(QueryHandler queryHandler, PrintWriter out){
-		this.queryHandler = queryHandler;
+		SetQueryHandler (queryHandler);
 		
 		WriteIndexFile(out);
 	}
@@ -1547,11 +1810,25 @@ public class CIMImporter extends Object {
 	public static void main (String args[]) throws FileNotFoundException {
 		String fRoot = "";
 		double freq = 60.0, load_scale = 1.0;
-		boolean bWantSched = false, bWantZIP = false, bSelectFeeder = false, randomZIP = false;
+		boolean bWantSched = false, bWantZIP = false, bSelectFeeder = false, randomZIP = false, bLocalModel = false, bCheckLocal = false;
 		String fSched = "";
 		String fTarget = "dss";
 		String feeder_mRID = "";
+		String fCache = "";
+		String fStoreVersion = "";
+		String fEmbedded = "";
+		String fBatch = "";
+		String fFormat = HTTPBlazegraphQueryHandler.FORMAT_TSV;
+		boolean bQueryStats = false;
+		String fReport = "";
+		int nFeederThreads = 2;
 		double Zcoeff = 0.0, Icoeff = 0.0, Pcoeff = 0.0;
+		int nLoadThreads = 4;
+		int nWriteThreads = Runtime.getRuntime().availableProcessors();
+		int outputMode = ArtifactOutput.PLAIN;
+		boolean bIncremental = false;
+		int nConnections = 0;
+		int nReadTimeout = HTTPBlazegraphQueryHandler.DEFAULT_READ_TIMEOUT;
 		String blazegraphURI = "http://localhost:9999/blazegraph/namespace/kb/sparql";
 		if (args.length < 1) {
 			System.out.println ("Usage: java CIMImporter [options] output_root");
@@ -1564,6 +1841,22 @@ public class CIMImporter extends Object {
 			System.out.println ("       -i={0..1}          // constant I portion (defaults to 0 for CIM-defined LoadResponseCharacteristic)");
 			System.out.println ("       -p={0..1}          // constant P portion (defaults to 0 for CIM-defined LoadResponseCharacteristic)");
 			System.out.println ("       -r={0, 1}          // determine ZIP load fraction based on given xml file or randomized fractions");
+			System.out.println ("       -w={tsv|json|xml}  // SPARQL results format requested over HTTP; defaults to tsv");
+			System.out.println ("       -v={0, 1}          // 1 to list the rows, bytes and parse time of each query over HTTP, and the -m=2 mismatches");
+			System.out.println ("       -x={report.json}   // write time, rows, bytes and objects for each query and Load/Write phase; also published over JMX");
+			System.out.println ("       -t={1..n}          // number of concurrent queries while loading; defaults to 4, 1 for sequential");
+			System.out.println ("       -k={1..n}          // number of threads rendering glm or dss output; defaults to the number of processors, 1 for sequential");
+			System.out.println ("       -g={none|gzip|zip} // compress each output file to .gz, or bundle them into output_root_target.zip; defaults to none");
+			System.out.println ("       -d={0, 1}          // 1 to rewrite only the files whose components changed since the last export, as saved in output_root_target_fingerprints.txt");
+			System.out.println ("       -m={0, 1, 2}       // 1 to copy each selected feeder into a local model with a few bulk queries, then query locally;");
+			System.out.println ("                          //   2 to also compare the rows of each query with the endpoint's on first use, which runs it twice");
+			System.out.println ("       -c={cache_dir}     // cache query results in this directory, reused until the -a label changes");
+			System.out.println ("       -a={version}       // label of the triple-store contents, required with -c, e.g. a commit id; change it whenever the store is edited");
+			System.out.println ("       -b={all|mRID,mRID} // batch export of all feeders, or a comma-separated list, to output_root_feedername files");
+			System.out.println ("       -j={1..n}          // number of feeders to export at once in batch mode; defaults to 2");
+			System.out.println ("       -e={cim_file}      // load a CIM XML file into an embedded Blazegraph journal (cim_file.jnl, reused) instead of using -u");
+			System.out.println ("       -q={1..n}          // maximum open HTTP connections to the endpoint, kept alive between queries; defaults to 16, or -t times -j if more");
+			System.out.println ("       -y={seconds}       // HTTP read timeout for each query, and the longest wait for a free connection; defaults to 600, 0 for no read timeout");
 			System.out.println ("       -u={http://localhost:9999/blazegraph/namespace/kb/sparql} // blazegraph uri (if connecting over HTTP); defaults to http://localhost:9999/blazegraph/namespace/kb/sparql");
 
 			System.out.println ("Example 1: java CIMImporter -l=1 -i=1 -n=zipload_schedule ieee8500");
@@ -1617,6 +1910,37 @@ public class CIMImporter extends Object {
 					bSelectFeeder = true;
 				} else if (opt == 'u') {
 					blazegraphURI = optVal;
+				} else if (opt == 'm' && Integer.parseInt(optVal) > 0) {
+					bLocalModel = true;
+					bCheckLocal = Integer.parseInt(optVal) == 2;
+				} else if (opt == 'c') {
+					fCache = optVal;
+				} else if (opt == 'a') {
+					fStoreVersion = optVal;
+				} else if (opt == 'e') {
+					fEmbedded = optVal;
+				} else if (opt == 'b') {
+					fBatch = optVal;
+				} else if (opt == 'j') {
+					nFeederThreads = Integer.parseInt(optVal);
+				} else if (opt == 'w') {
+					fFormat = optVal;
+				} else if (opt == 'v' && Integer.parseInt(optVal) == 1) {
+					bQueryStats = true;
+				} else if (opt == 'x') {
+					fReport = optVal;
+				} else if (opt == 't') {
+					nLoadThreads = Integer.parseInt(optVal);
+				} else if (opt == 'k') {
+					nWriteThreads = Integer.parseInt(optVal);
+				} else if (opt == 'g') {
+					outputMode = ArtifactOutput.ParseMode (optVal);
+				} else if (opt == 'd' && Integer.parseInt(optVal) == 1) {
+					bIncremental = true;
+				} else if (opt == 'q') {
+					nConnections = Integer.parseInt(optVal);
+				} else if (opt == 'y') {
+					nReadTimeout = Integer.parseInt(optVal);
 				}
 			} else {
 				if (fTarget.equals("glm")) {
@@ -1633,17 +1957,147 @@ public class CIMImporter extends Object {
 			++i;
 		}
 		
+		if (fCache.length() > 0 && fStoreVersion.length() < 1) {
+			System.out.println ("The query cache (-c) needs a label of the triple-store contents with -a");
+			System.exit(0);
+		}
+		if (fEmbedded.length() > 0) {
+			if (fCache.length() > 0 || bLocalModel) {
+				System.out.println ("The query cache (-c) and local model (-m) need an endpoint; they can not be used with -e");
+				System.exit(0);
+			}
+			InternalBlazegraphQueryHandler qh = null;
+			try {
+				qh = new InternalBlazegraphQueryHandler (fEmbedded, fEmbedded + ".jnl");
+				ExportMetrics metrics = null;
+				if (fReport.length() > 0) {
+					metrics = new ExportMetrics();
+					metrics.RegisterMBean();
+				}
+				if (fBatch.length() > 0) {
+					List<String> mRIDs = new ArrayList<>();
+					if (!fBatch.equals ("all")) {
+						for (String mRID : fBatch.split (",")) {
+							mRIDs.add (mRID.trim());
+						}
+					}
+					BatchExporter batch = new BatchExporter (qh, qh::forFeeder, nFeederThreads, nLoadThreads);
+					batch.SetMetrics (metrics);
+					batch.SetWriteThreads (nWriteThreads);
+					batch.SetOutputMode (outputMode);
+					batch.SetIncremental (bIncremental);
+					int nFailed = batch.Export (mRIDs, fTarget, fRoot, fSched, load_scale,
+																			bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+					if (nFailed > 0) {
+						System.out.println (Integer.toString (nFailed) + " feeders were not exported");
+					}
+				} else {
+					if (bSelectFeeder) {
+						qh.addFeederSelection (feeder_mRID);
+					}
+					CIMImporter importer = new CIMImporter();
+					importer.SetLoadThreads (nLoadThreads);
+					importer.SetWriteThreads (nWriteThreads);
+					importer.SetOutputMode (outputMode);
+					importer.SetIncremental (bIncremental);
+					importer.SetMetrics (metrics);
+					importer.start(qh, fTarget, fRoot, fSched, load_scale,
+												 bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+				}
+				if (metrics != null) {
+					metrics.WriteJSONReport (new PrintWriter (fReport));
+				}
+			} catch (RuntimeException e) {
+				System.out.println ("Can not produce a model: " + e.getMessage());
+				e.printStackTrace();
+			} finally {
+				if (qh != null) {
+					qh.close();
+				}
+			}
+			return;
+		}
+
+		HTTPBlazegraphQueryHandler qh = null;
 		try {
-			HTTPBlazegraphQueryHandler qh = new HTTPBlazegraphQueryHandler(blazegraphURI);
+			if (bLocalModel) {
+				if (!bSelectFeeder && fBatch.length() < 1) {
+					System.out.println ("A local model (-m) needs a feeder selection with -s or -b");
+					System.exit(0);
+				}
+				FeederModelQueryHandler fmqh = new FeederModelQueryHandler(blazegraphURI);
+				fmqh.setCheckQueries (bCheckLocal);
+				fmqh.setVerbose (bQueryStats);
+				qh = fmqh;
+			} else {
+				qh = new HTTPBlazegraphQueryHandler(blazegraphURI);
+			}
+			qh.setResultFormat (fFormat);
+			if (nConnections < 1) {
+				int nQueries = nLoadThreads * (fBatch.length() > 0 ? nFeederThreads : 1);
+				nConnections = Math.max (HTTPBlazegraphQueryHandler.DEFAULT_CONNECTIONS, nQueries);
+			}
+			qh.setHttpClient (HTTPBlazegraphQueryHandler.createHttpClient (nConnections,
+				HTTPBlazegraphQueryHandler.DEFAULT_CONNECT_TIMEOUT, nReadTimeout));
+			ExportMetrics metrics = null;
+			if (fReport.length() > 0) {
+				metrics = new ExportMetrics();
+				metrics.RegisterMBean();
+				qh.setMetrics (metrics);
+			}
+			if (fBatch.length() > 0) {
+				List<String> mRIDs = new ArrayList<>();
+				if (!fBatch.equals ("all")) {
+					for (String mRID : fBatch.split (",")) {
+						mRIDs.add (mRID.trim());
+					}
+				}
+				BatchExporter batch = new BatchExporter (qh, fCache, fStoreVersion, nFeederThreads, nLoadThreads);
+				batch.SetMetrics (metrics);
+				batch.SetWriteThreads (nWriteThreads);
+				batch.SetOutputMode (outputMode);
+				batch.SetIncremental (bIncremental);
+				int nFailed = batch.Export (mRIDs, fTarget, fRoot, fSched, load_scale,
+																		bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+				if (nFailed > 0) {
+					System.out.println (Integer.toString (nFailed) + " feeders were not exported");
+				}
+				if (metrics != null) {
+					metrics.WriteJSONReport (new PrintWriter (fReport));
+				}
+				return;
+			}
 			if (bSelectFeeder) {
 				qh.addFeederSelection (feeder_mRID);
 //				System.out.println ("Selecting only feeder " + feeder_mRID);
 			}
-			new CIMImporter().start(qh, fTarget, fRoot, fSched, load_scale,
-															bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+			QueryHandler handler = qh;
+			if (fCache.length() > 0) {
+				handler = new CachingQueryHandler (qh, fCache, fStoreVersion);
+			}
+			CIMImporter importer = new CIMImporter();
+			importer.SetLoadThreads (nLoadThreads);
+			importer.SetWriteThreads (nWriteThreads);
+			importer.SetOutputMode (outputMode);
+			importer.SetIncremental (bIncremental);
+			importer.SetMetrics (metrics);
+			importer.start(handler, fTarget, fRoot, fSched, load_scale,
+										 bWantSched, bWantZIP, randomZIP, Zcoeff, Icoeff, Pcoeff);
+			if (metrics != null) {
+				metrics.WriteJSONReport (new PrintWriter (fReport));
+			}
+			if (bQueryStats) {
+				for (HTTPBlazegraphQueryHandler.QueryStats qs : qh.getQueryStats()) {
+					System.out.println (qs.DisplayString());
+				}
+			}
 		} catch (RuntimeException e) {
 			System.out.println ("Can not produce a model: " + e.getMessage());
 			e.printStackTrace();
+		} finally {
+			if (qh != null) {
+				qh.close();
+			}
 		}
 		
 	}
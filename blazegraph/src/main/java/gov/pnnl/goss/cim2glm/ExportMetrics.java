@@ -0,0 +1,199 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import gov.pnnl.goss.cim2glm.components.JsonWriter;
+
+/**
+ Accumulates wall time, query rows, result bytes, objects built and output bytes for
+ each CIMImporter Load* and Write* phase.
+ <p>Queries are charged to the phase running on the calling thread, so the loaders can
+ run concurrently. The totals can be read over JMX, and the per-phase numbers are
+ written as a JSON report.</p>
+*/
+public class ExportMetrics implements ExportMetricsMBean {
+	public static final String OBJECT_NAME = "gov.pnnl.goss.cim2glm:type=ExportMetrics";
+	static final String NO_PHASE = "(none)";
+
+	static class Phase {
+		String name;
+		int calls;
+		double seconds;
+		int queries;
+		double querySeconds;
+		long rows;
+		long resultBytes;
+		long objects;
+		long outputBytes;
+
+		Phase (String name) {
+			this.name = name;
+		}
+
+		/** times are rounded to the microsecond; JsonWriter writes them the same in any locale */
+		void WriteJSONEntry (JsonWriter w) {
+			w.BeginObject ();
+			w.Name ("name").Value (name);
+			w.Name ("calls").Value (calls);
+			w.Name ("seconds").Value (Math.round (seconds * 1.0e6) / 1.0e6);
+			w.Name ("queries").Value (queries);
+			w.Name ("query_seconds").Value (Math.round (querySeconds * 1.0e6) / 1.0e6);
+			w.Name ("rows").Value (rows);
+			w.Name ("result_bytes").Value (resultBytes);
+			w.Name ("objects").Value (objects);
+			w.Name ("output_bytes").Value (outputBytes);
+			w.EndObject ();
+		}
+	}
+
+	LinkedHashMap<String,Phase> phases = new LinkedHashMap<>();
+	ThreadLocal<String> current = new ThreadLocal<>();
+
+	private Phase GetPhase (String name) {
+		Phase p = phases.get (name);
+		if (p == null) {
+			p = new Phase (name);
+			phases.put (name, p);
+		}
+		return p;
+	}
+
+	private String CurrentPhase () {
+		String name = current.get();
+		return name == null ? NO_PHASE : name;
+	}
+
+	/**
+	 *  charges queries on this thread to the named phase, until ExitPhase
+	 *  @return the enclosing phase, to be passed back to ExitPhase
+	 */
+	public String EnterPhase (String name) {
+		String outer = current.get();
+		current.set (name);
+		return outer;
+	}
+
+	public synchronized void ExitPhase (String name, String outer, double seconds, long objects, long outputBytes) {
+		Phase p = GetPhase (name);
+		++p.calls;
+		p.seconds += seconds;
+		p.objects += objects;
+		p.outputBytes += outputBytes;
+		current.set (outer);
+	}
+
+	public synchronized void AddQuery (double seconds, long rows) {
+		Phase p = GetPhase (CurrentPhase());
+		++p.queries;
+		p.querySeconds += seconds;
+		p.rows += rows;
+	}
+
+	public synchronized void AddResultBytes (long bytes) {
+		GetPhase (CurrentPhase()).resultBytes += bytes;
+	}
+
+	private synchronized List<Phase> Snapshot () {
+		return new ArrayList<>(phases.values());
+	}
+
+	public void WriteJSONReport (PrintWriter out) {
+		List<Phase> list = Snapshot();
+		Phase total = new Phase ("total");
+		for (Phase p : list) {
+			total.calls += p.calls;
+			total.seconds += p.seconds;
+			total.queries += p.queries;
+			total.querySeconds += p.querySeconds;
+			total.rows += p.rows;
+			total.resultBytes += p.resultBytes;
+			total.objects += p.objects;
+			total.outputBytes += p.outputBytes;
+		}
+		JsonWriter w = new JsonWriter (out);
+		w.BeginObject ();
+		w.Name ("phases").BeginArray ();
+		for (Phase p : list) {
+			w.NewLine ();
+			p.WriteJSONEntry (w);
+		}
+		w.NewLine ().EndArray ();
+		w.Name ("total");
+		total.WriteJSONEntry (w);
+		w.EndObject ();
+		w.Close ();
+	}
+
+	/** registers this instance with the platform MBean server, replacing any earlier one */
+	public void RegisterMBean () {
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName (OBJECT_NAME);
+			if (mbs.isRegistered (name)) {
+				mbs.unregisterMBean (name);
+			}
+			mbs.registerMBean (this, name);
+		} catch (JMException e) {
+			System.out.println ("Unable to register export metrics with JMX: " + e.getMessage());
+		}
+	}
+
+	public synchronized int getQueryCount() {
+		int n = 0;
+		for (Phase p : phases.values()) n += p.queries;
+		return n;
+	}
+	public synchronized double getQuerySeconds() {
+		double t = 0.0;
+		for (Phase p : phases.values()) t += p.querySeconds;
+		return t;
+	}
+	public synchronized long getRowsReturned() {
+		long n = 0;
+		for (Phase p : phases.values()) n += p.rows;
+		return n;
+	}
+	public synchronized long getResultBytes() {
+		long n = 0;
+		for (Phase p : phases.values()) n += p.resultBytes;
+		return n;
+	}
+	public synchronized long getObjectsBuilt() {
+		long n = 0;
+		for (Phase p : phases.values()) n += p.objects;
+		return n;
+	}
+	public synchronized long getOutputBytes() {
+		long n = 0;
+		for (Phase p : phases.values()) n += p.outputBytes;
+		return n;
+	}
+	public synchronized double getLoadSeconds() {
+		double t = 0.0;
+		for (Phase p : phases.values()) if (p.name.startsWith ("Load")) t += p.seconds;
+		return t;
+	}
+	public synchronized double getWriteSeconds() {
+		double t = 0.0;
+		for (Phase p : phases.values()) if (p.name.startsWith ("Write")) t += p.seconds;
+		return t;
+	}
+	public String getReport() {
+		StringWriter sw = new StringWriter();
+		WriteJSONReport (new PrintWriter (sw));
+		return sw.toString();
+	}
+}
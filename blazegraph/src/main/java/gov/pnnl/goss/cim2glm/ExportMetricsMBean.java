@@ -0,0 +1,19 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+/** JMX view of the export totals, for monitoring production conversions */
+public interface ExportMetricsMBean {
+	int getQueryCount();
+	double getQuerySeconds();
+	long getRowsReturned();
+	long getResultBytes();
+	long getObjectsBuilt();
+	long getOutputBytes();
+	double getLoadSeconds();
+	double getWriteSeconds();
+	/** @return the full per-phase report, as written by WriteJSONReport */
+	String getReport();
+}
@@ -28,6 +28,17 @@ public class GldLineConfig {
 //		bTriplex = false;
 	}
 
+	/** 
+	 *  @return the canonical (spacing, A, B, C, N) tuple, equal for configurations that can be shared
+	 */
+	public static String GetKey (String spacing, String conductor_A, String conductor_B, String conductor_C, String conductor_N) {
+		return spacing + "\t" + conductor_A + "\t" + conductor_B + "\t" + conductor_C + "\t" + conductor_N;
+	}
+
+	public String GetKey () {
+		return GetKey (spacing, conductor_A, conductor_B, conductor_C, conductor_N);
+	}
+
 	static String GetMatchWire (String wclass, String name) {
 		if (wclass.equals("OverheadWireInfo")) {
 			return "wire_" + name;
@@ -4,13 +4,16 @@ package gov.pnnl.goss.cim2glm;
 //	All rights reserved.
 //	----------------------------------------------------------
 
-import java.text.DecimalFormat;
 import org.apache.commons.math3.complex.Complex;
 import java.util.Random;
 
+import gov.pnnl.goss.cim2glm.components.DistFormat;
+import gov.pnnl.goss.cim2glm.components.PhaseSet;
+
 /** 
  Helper class to accumulate nodes and loads. 
  <p>All EnergyConsumer data will be attached to node objects, then written as load objects. This preserves the input ConnectivityNode names</p> 
+ <p>The data lives in one row of a GldNodeTable; this is a short-lived view of that row.</p>
  <p>TODO - another option is to leave all nodes un-loaded, and attach all loads to 
  parent nodes, closer to what OpenDSS does</p>  
 */
@@ -25,136 +28,56 @@ public class GldNode {
 	 */
 	static final Complex neg120 = new Complex (-0.5, -0.5 * Math.sqrt(3.0));
 
+	static final DistFormat df2 = new DistFormat(2);
+
 	/** 
 	 *  @param c complex number
 	 *  @return formatted string for GridLAB-D input files with 'j' at the end
 		 */
 	static String CFormat (Complex c) {
-		String sgn;
-		if (c.getImaginary() < 0.0)  {
-			sgn = "-";
-		} else {
-			sgn = "+";
-		}
-		return String.format("%6g", c.getReal()) + sgn + String.format("%6g", Math.abs(c.getImaginary())) + "j";
+		return DistFormat.CFormat (c);
 	}
 
 	/** root name of the node or meter, will have `nd_` prepended */
 	public final String name;
-	/** name of the load, if any, will have `ld_` prepended */
-	public String loadname;
-	/** ABC allowed */
-	public String phases;
-	/** this nominal voltage is always line-to-neutral */
-	public double nomvln;
-	/** real power on phase A or s1, constant impedance portion */
-	public double pa_z;
-	/** real power on phase B or s2, constant impedance portion */
-	public double pb_z;
-	/** real power on phase C, constant impedance portion */
-	public double pc_z;
-	/** reactive power on phase A or s1, constant impedance portion */
-	public double qa_z;
-	/** reactive power on phase B or s2, constant impedance portion */
-	public double qb_z;
-	/** reactive power on phase C, constant impedance portion */
-	public double qc_z;
-	/** real power on phase A or s1, constant current portion */
-	public double pa_i;
-	/** real power on phase B or s2, constant current portion */
-	public double pb_i;
-	/** real power on phase C, constant current portion */
-	public double pc_i;
-	/** reactive power on phase A or s1, constant current portion */
-	public double qa_i;
-	/** reactive power on phase B or s2, constant current portion */
-	public double qb_i;
-	/** reactive power on phase C, constant current portion */
-	public double qc_i;
-	/** real power on phase A or s1, constant power portion */
-	public double pa_p;
-	/** real power on phase B or s2, constant power portion */
-	public double pb_p;
-	/** real power on phase C, constant power portion */
-	public double pc_p;
-	/** reactive power on phase A or s1, constant power portion */
-	public double qa_p;
-	/** reactive power on phase B or s2, constant power portion */
-	public double qb_p;
-	/** reactive power on phase C, constant power portion */
-	public double qc_p;
-	/** will add N or D phasing, if not S */
-	public boolean bDelta;	
-	/** denotes the SWING bus, aka substation source bus */
-	public boolean bSwing;
-	/** signifies are inverters connected to this bus */
-	public boolean bInverters;
-	/** signifies this bus is connected to a tertiary (or higher) transformer winding,
-	 *  which is not supported in GridLAB-D. */
-	public boolean bTertiaryWinding;
 
- /** if bSecondary true, the member variables for phase A and B 
-  * loads actually correspond to secondary phases 1 and 2. For 
-  * GridLAB-D, these are written to phase AS, BS or CS, depending
-  * on the primary phase, which we find from the service 
-  * transformer or triplex. 
-  */ 
+	final GldNodeTable table;
+	final int idx;
+	/** offset of this node's loads in table.loads */
+	final int row;
 
-	public boolean bSecondary; 
-
-	/** constructor defaults to zero load and zero phases present
-	 *  @param name CIM name of the bus */
-	public GldNode(String name) {
-		this.name = name;
-		nomvln = -1.0;
-		phases = "";
-		loadname = "";
-		pa_z = pb_z = pc_z = qa_z = qb_z = qc_z = 0.0;
-		pa_i = pb_i = pc_i = qa_i = qb_i = qc_i = 0.0;
-		pa_p = pb_p = pc_p = qa_p = qb_p = qc_p = 0.0;
-		bDelta = false;
-		bSwing = false;
-		bSecondary = false;
-		bInverters = false;
-		bTertiaryWinding = false;
+	/** @param table where the node's data is stored
+	 *  @param idx row of this node in the table */
+	GldNode (GldNodeTable table, int idx) {
+		this.table = table;
+		this.idx = idx;
+		this.row = idx * GldNodeTable.STRIDE;
+		this.name = table.names[idx];
 	}
 
 	/** accumulates phases present
 	 *  @param phs phases to add, may contain ABCDSs
 	 *  @return always true */
 	public boolean AddPhases(String phs) {
-		StringBuilder buf = new StringBuilder("");
-		if (phases.contains("A") || phs.contains("A")) buf.append("A");
-		if (phases.contains("B") || phs.contains("B")) buf.append("B");
-		if (phases.contains("C") || phs.contains("C")) buf.append("C");
-		if (phs.toLowerCase().contains("s")) {
-			bSecondary = true;
-		} else if (phs.contains("ABC")) {
-			bSecondary = false;
+		PhaseSet ps = PhaseSet.Of (phs);
+		table.phaseBits[idx] |= ps.PrimaryBits();
+		if (ps.IsSecondary()) {
+			table.flags[idx] |= GldNodeTable.FLAG_SECONDARY;
+		} else if (ps.Has (PhaseSet.ABC)) {
+			table.flags[idx] &= ~GldNodeTable.FLAG_SECONDARY;
 		}
-		phases = buf.toString();
-//		if (name.contains("_load_3")) {
-//			System.out.println ("_load_3 setting phases to " + phs);
-//			new Exception().printStackTrace();
-//		}
-//		if (name.contains("_tn_296")) {
-//			System.out.println ("_tn_296 setting phases to " + phs);
-//			new Exception().printStackTrace();
-//		}
 		return true;
 	}
 
-	public boolean ResetPhases(String phs) {
-		phases = "";
-		bSecondary = false;
-		return AddPhases (phs);
-	}
-
 	/** @return phasing string for GridLAB-D with appropriate D, S or N suffix */
 	public String GetPhases() {
-		if (bDelta && !bSecondary) return phases + "D";
-		if (bSecondary) return phases + "S";
-		return phases + "N";
+		return table.GetPhases (idx);
+	}
+
+	private static void AddPhaseLoads (double[] ld, int off, double fa, double fb, double fc, double total, double fraction) {
+		ld[off] += fa * total * fraction;
+		ld[off + 1] += fb * total * fraction;
+		ld[off + 2] += fc * total * fraction;
 	}
 
 	/** Distributes a total load (pL+jqL) among the phases (phs) present on GridLAB-D node
@@ -172,19 +95,18 @@ public class GldNode {
 	@return void */ 
 	public void AccumulateLoads (String ldname, String phs, double pL, double qL, double Pv, double Qv,
 															 double Pz, double Pi, double Pp, double Qz, double Qi, double Qp, boolean randomZIP) {
-		DecimalFormat df2 = new DecimalFormat("#0.00");
-
 		double fa = 0.0, fb = 0.0, fc = 0.0, denom = 0.0;
-		loadname = "ld_" + ldname;
-		if (phs.contains("A") || phs.contains("s")) {
+		table.loadname[idx] = "ld_" + ldname;
+		PhaseSet ps = PhaseSet.Of (phs);
+		if (ps.Has (PhaseSet.A | PhaseSet.S)) {
 			fa = 1.0;
 			denom += 1.0;
 		}
-		if (phs.contains("B") || phs.contains("s")) {  // TODO - allow for s1 and s2
+		if (ps.Has (PhaseSet.B | PhaseSet.S)) {  // TODO - allow for s1 and s2
 			fb = 1.0;
 			denom += 1.0;
 		}
-		if (phs.contains("C")) {
+		if (ps.Has (PhaseSet.C)) {
 			fc = 1.0;
 			denom += 1.0;
 		}
@@ -248,24 +170,13 @@ public class GldNode {
 		pL *= 1000.0;
 		qL *= 1000.0;
 		AddPhases(phs);
-		pa_z += fa * pL * fpz;
-		pb_z += fb * pL * fpz;
-		pc_z += fc * pL * fpz;
-		qa_z += fa * qL * fqz;
-		qb_z += fb * qL * fqz;
-		qc_z += fc * qL * fqz;
-		pa_i += fa * pL * fpi;
-		pb_i += fb * pL * fpi;
-		pc_i += fc * pL * fpi;
-		qa_i += fa * qL * fqi;
-		qb_i += fb * qL * fqi;
-		qc_i += fc * qL * fqi;
-		pa_p += fa * pL * fpp;
-		pb_p += fb * pL * fpp;
-		pc_p += fc * pL * fpp;
-		qa_p += fa * qL * fqp;
-		qb_p += fb * qL * fqp;
-		qc_p += fc * qL * fqp;
+		double[] ld = table.loads;
+		AddPhaseLoads (ld, row + GldNodeTable.PZ, fa, fb, fc, pL, fpz);
+		AddPhaseLoads (ld, row + GldNodeTable.QZ, fa, fb, fc, qL, fqz);
+		AddPhaseLoads (ld, row + GldNodeTable.PI, fa, fb, fc, pL, fpi);
+		AddPhaseLoads (ld, row + GldNodeTable.QI, fa, fb, fc, qL, fqi);
+		AddPhaseLoads (ld, row + GldNodeTable.PP, fa, fb, fc, pL, fpp);
+		AddPhaseLoads (ld, row + GldNodeTable.QP, fa, fb, fc, qL, fqp);
 
 	}
 
@@ -279,112 +190,59 @@ public class GldNode {
 		I = I / total;
 		P = P / total;
 
-		total = pa_z + pa_i + pa_p;
-		pa_z = total * Z;
-		pa_i = total * I;
-		pa_p = total * P;
-		total = qa_z + qa_i + qa_p;
-		qa_z = total * Z;
-		qa_i = total * I;
-		qa_p = total * P;
-
-		total = pb_z + pb_i + pb_p;
-		pb_z = total * Z;
-		pb_i = total * I;
-		pb_p = total * P;
-		total = qb_z + qb_i + qb_p;
-		qb_z = total * Z;
-		qb_i = total * I;
-		qb_p = total * P;
-
-		total = pc_z + pc_i + pc_p;
-		pc_z = total * Z;
-		pc_i = total * I;
-		pc_p = total * P;
-		total = qc_z + qc_i + qc_p;
-		qc_z = total * Z;
-		qc_i = total * I;
-		qc_p = total * P;
+		double[] ld = table.loads;
+		for (int k = 0; k < 3; k++) {
+			int z = row + GldNodeTable.PZ + k, i = row + GldNodeTable.PI + k, p = row + GldNodeTable.PP + k;
+			total = ld[z] + ld[i] + ld[p];
+			ld[z] = total * Z;
+			ld[i] = total * I;
+			ld[p] = total * P;
+			z = row + GldNodeTable.QZ + k;
+			i = row + GldNodeTable.QI + k;
+			p = row + GldNodeTable.QP + k;
+			total = ld[z] + ld[i] + ld[p];
+			ld[z] = total * Z;
+			ld[i] = total * I;
+			ld[p] = total * P;
+		}
 	}
 
 	/** scales the load by a factor that probably came from the command line's -l option
 	 *  @param scale multiplying factor on all of the load components */
 	public void RescaleLoad(double scale) {
-		pa_z *= scale;
-		pb_z *= scale;
-		pc_z *= scale;
-		qa_z *= scale;
-		qb_z *= scale;
-		qc_z *= scale;
-		pa_i *= scale;
-		pb_i *= scale;
-		pc_i *= scale;
-		qa_i *= scale;
-		qb_i *= scale;
-		qc_i *= scale;
-		pa_p *= scale;
-		pb_p *= scale;
-		pc_p *= scale;
-		qa_p *= scale;
-		qb_p *= scale;
-		qc_p *= scale;
+		double[] ld = table.loads;
+		for (int k = row; k < row + GldNodeTable.STRIDE; k++) {
+			ld[k] *= scale;
+		}
 	}
 
 	/** @return true if a non-zero real or reactive load on any phase */
 	public boolean HasLoad() {
-		if (pa_z != 0.0) return true;
-		if (pb_z != 0.0) return true;
-		if (pc_z != 0.0) return true;
-		if (qa_z != 0.0) return true;
-		if (qb_z != 0.0) return true;
-		if (qc_z != 0.0) return true;
-		if (pa_i != 0.0) return true;
-		if (pb_i != 0.0) return true;
-		if (pc_i != 0.0) return true;
-		if (qa_i != 0.0) return true;
-		if (qb_i != 0.0) return true;
-		if (qc_i != 0.0) return true;
-		if (pa_p != 0.0) return true;
-		if (pb_p != 0.0) return true;
-		if (pc_p != 0.0) return true;
-		if (qa_p != 0.0) return true;
-		if (qb_p != 0.0) return true;
-		if (qc_p != 0.0) return true;
+		double[] ld = table.loads;
+		for (int k = row; k < row + GldNodeTable.STRIDE; k++) {
+			if (ld[k] != 0.0) return true;
+		}
 		return false;
 	}
 
 	public boolean CopyLoad (GldNode src) {
-		loadname = src.name;
-		pa_z = src.pa_z;
-		pa_i = src.pa_i;
-		pa_p = src.pa_p;
-		qa_z = src.qa_z;
-		qa_i = src.qa_i;
-		qa_p = src.qa_p;
-		pb_z = src.pb_z;
-		pb_i = src.pb_i;
-		pb_p = src.pb_p;
-		qb_z = src.qb_z;
-		qb_i = src.qb_i;
-		qb_p = src.qb_p;
-		pc_z = src.pc_z;
-		pc_i = src.pc_i;
-		pc_p = src.pc_p;
-		qc_z = src.qc_z;
-		qc_i = src.qc_i;
-		qc_p = src.qc_p;
+		table.loadname[idx] = src.name;
+		System.arraycopy (src.table.loads, src.row, table.loads, row, GldNodeTable.STRIDE);
 		return true;
 	}
 
 	public String GetGLM (double load_scale, boolean bWantSched, String fSched, boolean bWantZIP, double Zcoeff, double Icoeff, double Pcoeff) {
 		StringBuilder buf = new StringBuilder();
-		DecimalFormat df2 = new DecimalFormat("#0.00");
+		String loadname = table.loadname[idx];
+		double nomvln = table.nomvln[idx];
+		boolean bSecondary = table.Has (idx, GldNodeTable.FLAG_SECONDARY);
+		boolean bInverters = table.Has (idx, GldNodeTable.FLAG_INVERTERS);
 
-		if (bTertiaryWinding) { // we have to skip it
+		if (table.Has (idx, GldNodeTable.FLAG_TERTIARY)) { // we have to skip it
 			return "";
 		}
 
-		if (bSwing) {
+		if (table.Has (idx, GldNodeTable.FLAG_SWING)) {
 			buf.append ("object substation {\n");
 			buf.append ("  name \"" + name + "\";\n");
 			buf.append ("  bustype SWING;\n");
@@ -399,6 +257,13 @@ public class GldNode {
 			if (bWantZIP) {
 				ApplyZIP (Zcoeff, Icoeff, Pcoeff);
 			}
+			double[] ld = table.loads;
+			double pa_z = ld[row + GldNodeTable.PZ], pb_z = ld[row + GldNodeTable.PZ + 1], pc_z = ld[row + GldNodeTable.PZ + 2];
+			double qa_z = ld[row + GldNodeTable.QZ], qb_z = ld[row + GldNodeTable.QZ + 1], qc_z = ld[row + GldNodeTable.QZ + 2];
+			double pa_i = ld[row + GldNodeTable.PI], pb_i = ld[row + GldNodeTable.PI + 1], pc_i = ld[row + GldNodeTable.PI + 2];
+			double qa_i = ld[row + GldNodeTable.QI], qb_i = ld[row + GldNodeTable.QI + 1], qc_i = ld[row + GldNodeTable.QI + 2];
+			double pa_p = ld[row + GldNodeTable.PP], pb_p = ld[row + GldNodeTable.PP + 1], pc_p = ld[row + GldNodeTable.PP + 2];
+			double qa_p = ld[row + GldNodeTable.QP], qb_p = ld[row + GldNodeTable.QP + 1], qc_p = ld[row + GldNodeTable.QP + 2];
 
 			Complex va = new Complex (nomvln);
 			Complex vb = va.multiply (neg120);
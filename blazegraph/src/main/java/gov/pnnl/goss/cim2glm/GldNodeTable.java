@@ -0,0 +1,158 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import gov.pnnl.goss.cim2glm.components.PhaseSet;
+
+/**
+ GridLAB-D nodes of one feeder, stored as parallel primitive arrays over the bus indices of a NetworkTopology.
+ <p>A bus that has equipment keeps the index the topology gave it, so the writers reach it through the
+ components' ibus fields without hashing the name. ConnectivityNodes without equipment are appended after
+ those. Only buses added with AddNode are written, in the order they were added.</p>
+ <p>GldNode is a view of one row.</p>
+*/
+public class GldNodeTable {
+	// offsets into each node's row of loads; add 0, 1 or 2 for phase A or s1, B or s2, C
+	static final int PZ = 0;
+	static final int PI = 3;
+	static final int PP = 6;
+	static final int QZ = 9;
+	static final int QI = 12;
+	static final int QP = 15;
+	static final int STRIDE = 18;
+
+	static final byte FLAG_SWING = 1;
+	static final byte FLAG_SECONDARY = 2;
+	static final byte FLAG_DELTA = 4;
+	static final byte FLAG_INVERTERS = 8;
+	static final byte FLAG_TERTIARY = 16;
+	static final byte FLAG_REMOVED = 32;
+
+	final NetworkTopology topo;
+	/** the nodes to write, by name; iterated for output in the order of AddNode */
+	final HashMap<String,Integer> mapIndex = new LinkedHashMap<>();
+	int size;
+	String[] names;
+	String[] loadname;
+	/** always line-to-neutral */
+	double[] nomvln;
+	/** PhaseSet A, B and C bits */
+	int[] phaseBits;
+	byte[] flags;
+	double[] loads;
+
+	/** @param topo gives the phases, voltage and swing status of every bus with equipment */
+	public GldNodeTable (NetworkTopology topo) {
+		this.topo = topo;
+		size = topo.NumBuses();
+		int cap = size + 16;
+		names = new String[cap];
+		loadname = new String[cap];
+		nomvln = new double[cap];
+		phaseBits = new int[cap];
+		flags = new byte[cap];
+		loads = new double[STRIDE * cap];
+		for (int i = 0; i < size; i++) {
+			names[i] = topo.GetBusName (i);
+			loadname[i] = "";
+			nomvln[i] = -1.0;
+		}
+	}
+
+	/** adds a node to be written, as for a ConnectivityNode
+	 *  @return index of the node */
+	public int AddNode (String bus) {
+		int idx = topo.GetIndex (bus);
+		if (idx < 0) {
+			Integer old = mapIndex.get (bus);
+			if (old != null) {
+				return old;
+			}
+			idx = size++;
+			if (size > flags.length) {
+				int n = 2 * flags.length;
+				names = Arrays.copyOf (names, n);
+				loadname = Arrays.copyOf (loadname, n);
+				nomvln = Arrays.copyOf (nomvln, n);
+				phaseBits = Arrays.copyOf (phaseBits, n);
+				flags = Arrays.copyOf (flags, n);
+				loads = Arrays.copyOf (loads, STRIDE * n);
+			}
+			names[idx] = bus;
+			loadname[idx] = "";
+			nomvln[idx] = -1.0;
+		}
+		mapIndex.put (bus, idx);
+		return idx;
+	}
+
+	/** @return view of one node, for loads and output */
+	public GldNode Get (int idx) {
+		return new GldNode (this, idx);
+	}
+
+	public int Size () {
+		return size;
+	}
+
+	/** copies phases, secondary and swing status, and nominal voltage from the topology, replacing those from AddPhases */
+	public void ApplyTopology () {
+		for (int i = 0; i < topo.NumBuses(); i++) {
+			phaseBits[i] = topo.GetPhaseBits (i);
+			nomvln[i] = topo.GetNominalVoltage (i);
+			flags[i] &= ~(FLAG_SECONDARY | FLAG_SWING);
+			if (topo.IsSecondary (i)) {
+				flags[i] |= FLAG_SECONDARY;
+			}
+			if (topo.IsSwing (i)) {
+				flags[i] |= FLAG_SWING;
+			}
+		}
+	}
+
+	boolean Has (int idx, byte flag) {
+		return (flags[idx] & flag) != 0;
+	}
+
+	void Set (int idx, byte flag) {
+		flags[idx] |= flag;
+	}
+
+	public boolean IsSecondary (int idx) {
+		return Has (idx, FLAG_SECONDARY);
+	}
+
+	public void SetInverters (int idx) {
+		Set (idx, FLAG_INVERTERS);
+	}
+
+	/** unsupported in GridLAB-D, so the node is skipped */
+	public void SetTertiaryWinding (int idx) {
+		Set (idx, FLAG_TERTIARY);
+	}
+
+	/** the node will not be written, e.g. because it was merged into its parent */
+	public void Remove (int idx) {
+		Set (idx, FLAG_REMOVED);
+	}
+
+	public boolean IsRemoved (int idx) {
+		return Has (idx, FLAG_REMOVED);
+	}
+
+	/** @return ABC phases without a suffix */
+	public String GetPrimaryPhases (int idx) {
+		return PhaseSet.Letters (phaseBits[idx]);
+	}
+
+	/** @return phasing string for GridLAB-D with appropriate D, S or N suffix */
+	public String GetPhases (int idx) {
+		return PhaseSet.GLMNodeString (phaseBits[idx], Has (idx, FLAG_SECONDARY), Has (idx, FLAG_DELTA));
+	}
+}
@@ -0,0 +1,154 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
+
+/**
+ Fingerprints of every component of one export, by class label and key, saved beside the output files.
+ <p>On the next export to the same output root, Changed compares the new fingerprints with the saved
+ ones, so the writers can skip output files that depend only on unchanged classes. The export options
+ are saved too; if they differ, every class counts as changed.</p>
+*/
+public class ModelFingerprint {
+	static final String HEADER = "# cim2glm fingerprints 1";
+
+	String options = "";
+	/** for each class label, the fingerprint of each component by key */
+	final TreeMap<String,TreeMap<String,Long>> mapClasses = new TreeMap<>();
+
+	/** @param options everything besides the components that changes the output, e.g. load scaling */
+	public void SetOptions (String options) {
+		this.options = options;
+	}
+
+	public void Add (String label, HashMap<String,? extends DistComponent> map) {
+		TreeMap<String,Long> prints = new TreeMap<>();
+		for (Map.Entry<String,? extends DistComponent> pair : map.entrySet()) {
+			prints.put (pair.getKey(), pair.getValue().Fingerprint());
+		}
+		mapClasses.put (label, prints);
+	}
+
+	/** for query results that only list names, e.g. ConnectivityNodes */
+	public void AddNames (String label, List<String> names) {
+		TreeMap<String,Long> prints = new TreeMap<>();
+		for (String name : names) {
+			prints.put (name, 0L);
+		}
+		mapClasses.put (label, prints);
+	}
+
+	/** @return the fingerprints saved by Write, or null if there are none */
+	public static ModelFingerprint Read (String fName) {
+		File f = new File (fName);
+		if (!f.exists()) {
+			return null;
+		}
+		ModelFingerprint fp = new ModelFingerprint();
+		try (BufferedReader rdr = new BufferedReader (new InputStreamReader (new FileInputStream (f), StandardCharsets.UTF_8))) {
+			String line = rdr.readLine();
+			if (line == null || !line.equals (HEADER)) {
+				System.out.println ("Ignoring " + fName + ", which was not written by this version");
+				return null;
+			}
+			line = rdr.readLine();
+			if (line == null || !line.startsWith ("options\t")) {
+				return null;
+			}
+			fp.options = line.substring (8);
+			while ((line = rdr.readLine()) != null) {
+				int i1 = line.indexOf ('\t');
+				int i2 = line.lastIndexOf ('\t');
+				if (i1 < 0 || i2 <= i1) {
+					continue;
+				}
+				String label = line.substring (0, i1);
+				TreeMap<String,Long> prints = fp.mapClasses.get (label);
+				if (prints == null) {
+					prints = new TreeMap<>();
+					fp.mapClasses.put (label, prints);
+				}
+				prints.put (line.substring (i1 + 1, i2), Long.parseUnsignedLong (line.substring (i2 + 1), 16));
+			}
+		} catch (IOException | NumberFormatException e) {
+			System.out.println ("Ignoring " + fName + ": " + e.getMessage());
+			return null;
+		}
+		return fp;
+	}
+
+	/** one line per component, so the file can be compared with diff */
+	public void Write (String fName) {
+		try (PrintWriter out = new PrintWriter (fName, "UTF-8")) {
+			out.println (HEADER);
+			out.println ("options\t" + options);
+			for (Map.Entry<String,TreeMap<String,Long>> cls : mapClasses.entrySet()) {
+				for (Map.Entry<String,Long> pair : cls.getValue().entrySet()) {
+					out.println (cls.getKey() + "\t" + pair.getKey() + "\t" + Long.toHexString (pair.getValue()));
+				}
+			}
+		} catch (FileNotFoundException | UnsupportedEncodingException e) {
+			System.out.println ("Unable to save fingerprints in " + fName + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 *  Lists the classes with added, removed or changed components, with a summary of each.
+	 *  @param old the saved fingerprints, or null for the first export
+	 *  @return labels of the changed classes, or null if everything must be written
+	 */
+	public TreeSet<String> Changed (ModelFingerprint old) {
+		if (old == null) {
+			return null;
+		}
+		if (!old.options.equals (options)) {
+			System.out.println ("Export options changed, writing all files");
+			return null;
+		}
+		TreeSet<String> labels = new TreeSet<>(mapClasses.keySet());
+		labels.addAll (old.mapClasses.keySet());
+		TreeSet<String> changed = new TreeSet<>();
+		for (String label : labels) {
+			TreeMap<String,Long> now = mapClasses.getOrDefault (label, new TreeMap<>());
+			TreeMap<String,Long> was = old.mapClasses.getOrDefault (label, new TreeMap<>());
+			int nAdded = 0, nChanged = 0, nRemoved = 0;
+			for (Map.Entry<String,Long> pair : now.entrySet()) {
+				Long h = was.get (pair.getKey());
+				if (h == null) {
+					++nAdded;
+				} else if (!h.equals (pair.getValue())) {
+					++nChanged;
+				}
+			}
+			for (String key : was.keySet()) {
+				if (!now.containsKey (key)) {
+					++nRemoved;
+				}
+			}
+			if (nAdded + nChanged + nRemoved > 0) {
+				changed.add (label);
+				System.out.println (label + ": " + Integer.toString (nChanged) + " changed, " + Integer.toString (nAdded) +
+														" added, " + Integer.toString (nRemoved) + " removed");
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,282 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import gov.pnnl.goss.cim2glm.components.PhaseSet;
+
+/**
+ Bus-branch topology of one feeder, built once from all of the link types and shared by the writers.
+ <p>Buses are numbered in the order they are first seen, and the links are kept as a compressed sparse
+ row (CSR) adjacency over those numbers. Each piece of equipment first declares what it knows about its
+ own terminals, i.e. phases and base voltage. Propagate then makes one breadth-first pass from the swing
+ bus, and one pass over the secondary (triplex) links, so the result does not depend on the order in
+ which the component maps are walked.</p>
+*/
+public class NetworkTopology {
+	/** line or non-secondary switch; the same voltage at both ends */
+	public static final int LINK_LINE = 0;
+	/** triplex line or secondary switch; carries the service transformer's primary phase */
+	public static final int LINK_SECONDARY = 1;
+	/** between two windings of a transformer; voltage is not carried across */
+	public static final int LINK_TRANSFORMER = 2;
+
+	/** declares phases only, no voltage */
+	public static final int RANK_NONE = 0;
+	// where equipment disagrees on a bus voltage, the higher rank wins; this follows the
+	// order of the passes WriteGLMFile used to make, so such models still get the same output
+	public static final int RANK_SOURCE = 1;
+	public static final int RANK_TANK = 2;
+	public static final int RANK_LOAD = 3;
+	public static final int RANK_CAPACITOR = 4;
+	public static final int RANK_LINE_INSTANCE = 5;
+	public static final int RANK_LINE_CODE = 6;
+	public static final int RANK_LINE_SPACING = 7;
+	public static final int RANK_SWITCH = 8;
+	public static final int RANK_WINDING = 9;
+
+	static final byte FLAG_S = 1;
+	static final byte FLAG_ABC = 2;
+	static final byte FLAG_SWING = 4;
+	static final byte FLAG_REACHED = 8;
+
+	private final HashMap<String,Integer> mapIndex = new HashMap<>();
+	private final ArrayList<String> names = new ArrayList<>();
+	private int[] phaseBits = new int[256];
+	private byte[] flags = new byte[256];
+	private double[] nomvln = new double[256];
+	private int[] vrank = new int[256];
+
+	private int nLinks = 0;
+	private int[] linkFrom = new int[256];
+	private int[] linkTo = new int[256];
+	private byte[] linkKind = new byte[256];
+
+	/** CSR adjacency; the neighbors of bus i are adjBus[rowStart[i]] .. adjBus[rowStart[i+1]-1] */
+	private int[] rowStart;
+	private int[] adjBus;
+	private byte[] adjKind;
+
+	/** @return the index of this bus, adding it if necessary */
+	public int AddBus (String bus) {
+		Integer idx = mapIndex.get (bus);
+		if (idx != null) {
+			return idx;
+		}
+		int i = names.size();
+		if (i >= flags.length) {
+			int n = 2 * flags.length;
+			phaseBits = Arrays.copyOf (phaseBits, n);
+			flags = Arrays.copyOf (flags, n);
+			nomvln = Arrays.copyOf (nomvln, n);
+			vrank = Arrays.copyOf (vrank, n);
+		}
+		names.add (bus);
+		mapIndex.put (bus, i);
+		nomvln[i] = -1.0;
+		rowStart = null;
+		return i;
+	}
+
+	/** @return index of the bus, or -1 if no equipment connects to it */
+	public int GetIndex (String bus) {
+		Integer idx = mapIndex.get (bus);
+		if (idx == null) {
+			return -1;
+		}
+		return idx;
+	}
+
+	public int NumBuses () {
+		return names.size();
+	}
+
+	public int NumLinks () {
+		return nLinks;
+	}
+
+	public String GetBusName (int idx) {
+		return names.get (idx);
+	}
+
+	/**
+	 *  Records what one piece of equipment knows about a bus it connects to.
+	 *  @param bus name of the bus
+	 *  @param phs phases of the equipment at this bus, may contain ABCs
+	 *  @param vln line-to-neutral base voltage, ignored for RANK_NONE
+	 *  @param rank one of the RANK_ values
+	 *  @return index of the bus
+	 */
+	public int Declare (String bus, String phs, double vln, int rank) {
+		int i = AddBus (bus);
+		PhaseSet ps = PhaseSet.Of (phs);
+		phaseBits[i] |= ps.PrimaryBits();
+		if (ps.IsSecondary()) {
+			flags[i] |= FLAG_S;
+		} else if (ps.Has (PhaseSet.ABC)) {
+			flags[i] |= FLAG_ABC;
+		}
+		if (rank > RANK_NONE && rank >= vrank[i]) {
+			nomvln[i] = vln;
+			vrank[i] = rank;
+		}
+		return i;
+	}
+
+	/** marks a source bus, from which Propagate starts */
+	public int SetSwing (String bus, double vln) {
+		int i = Declare (bus, "ABC", vln, RANK_SOURCE);
+		flags[i] |= FLAG_SWING;
+		return i;
+	}
+
+	/**
+	 *  @param i index of one bus, from AddBus or Declare
+	 *  @param j index of the other bus
+	 *  @param kind one of the LINK_ values
+	 */
+	public void AddLink (int i, int j, int kind) {
+		if (nLinks >= linkKind.length) {
+			int n = 2 * linkKind.length;
+			linkFrom = Arrays.copyOf (linkFrom, n);
+			linkTo = Arrays.copyOf (linkTo, n);
+			linkKind = Arrays.copyOf (linkKind, n);
+		}
+		linkFrom[nLinks] = i;
+		linkTo[nLinks] = j;
+		linkKind[nLinks] = (byte) kind;
+		++nLinks;
+		rowStart = null;
+	}
+
+	/** converts the link list to CSR, both directions, with a counting sort on the bus index */
+	private void BuildAdjacency () {
+		int nb = names.size();
+		rowStart = new int[nb + 1];
+		adjBus = new int[2 * nLinks];
+		adjKind = new byte[2 * nLinks];
+		for (int k = 0; k < nLinks; k++) {
+			++rowStart[linkFrom[k] + 1];
+			++rowStart[linkTo[k] + 1];
+		}
+		for (int i = 0; i < nb; i++) {
+			rowStart[i + 1] += rowStart[i];
+		}
+		int[] fill = Arrays.copyOf (rowStart, nb);
+		for (int k = 0; k < nLinks; k++) {
+			int i = linkFrom[k];
+			int j = linkTo[k];
+			adjBus[fill[i]] = j;
+			adjKind[fill[i]++] = linkKind[k];
+			adjBus[fill[j]] = i;
+			adjKind[fill[j]++] = linkKind[k];
+		}
+	}
+
+	/**
+	 *  Visits every bus connected to a swing bus, filling in the voltage of buses that have none
+	 *  declared from the bus it was reached from, except across transformers. Then marks each group
+	 *  of buses joined by secondary links as secondary, with all of the primary phases found in that group.
+	 */
+	public void Propagate () {
+		BuildAdjacency ();
+		int nb = names.size();
+		int[] queue = new int[nb];
+		int head = 0, tail = 0;
+		for (int i = 0; i < nb; i++) {
+			flags[i] &= ~FLAG_REACHED;
+			if ((flags[i] & FLAG_SWING) != 0) {
+				flags[i] |= FLAG_REACHED;
+				queue[tail++] = i;
+			}
+		}
+		while (head < tail) {
+			int i = queue[head++];
+			for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+				int j = adjBus[k];
+				if ((flags[j] & FLAG_REACHED) != 0) {
+					continue;
+				}
+				flags[j] |= FLAG_REACHED;
+				if (vrank[j] == RANK_NONE && adjKind[k] != LINK_TRANSFORMER) {
+					nomvln[j] = nomvln[i];
+				}
+				queue[tail++] = j;
+			}
+		}
+
+		// secondary groups; the queue holds one group at a time. A group normally has one service transformer,
+		// so this is its primary phase; if several feed one group, all of their phases are kept, where the
+		// old pass copied phases along the triplex lines in hash order, so the result depended on that order
+		boolean[] seen = new boolean[nb];
+		for (int s = 0; s < nb; s++) {
+			if (seen[s] || (flags[s] & FLAG_S) == 0) {
+				continue;
+			}
+			seen[s] = true;
+			head = tail = 0;
+			queue[tail++] = s;
+			int bits = 0;
+			while (head < tail) {
+				int i = queue[head++];
+				bits |= phaseBits[i];
+				for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+					int j = adjBus[k];
+					if (adjKind[k] == LINK_SECONDARY && !seen[j]) {
+						seen[j] = true;
+						queue[tail++] = j;
+					}
+				}
+			}
+			for (int k = 0; k < tail; k++) {
+				phaseBits[queue[k]] |= bits;
+				flags[queue[k]] |= FLAG_S;
+			}
+		}
+	}
+
+	/** @return PhaseSet A, B and C bits present at the bus */
+	public int GetPhaseBits (int idx) {
+		return phaseBits[idx];
+	}
+
+	/** @return ABC phases present at the bus, in that order, without any N, D or S suffix */
+	public String GetPhases (int idx) {
+		return PhaseSet.Letters (phaseBits[idx]);
+	}
+
+	/** @return true if triplex or a service transformer secondary connects here, and no three-phase equipment */
+	public boolean IsSecondary (int idx) {
+		return (flags[idx] & FLAG_S) != 0 && (flags[idx] & FLAG_ABC) == 0;
+	}
+
+	public boolean IsSwing (int idx) {
+		return (flags[idx] & FLAG_SWING) != 0;
+	}
+
+	/** @return true if Propagate found a path to a swing bus */
+	public boolean IsReachable (int idx) {
+		return (flags[idx] & FLAG_REACHED) != 0;
+	}
+
+	/** @return line-to-neutral nominal voltage, or -1 if unknown */
+	public double GetNominalVoltage (int idx) {
+		return nomvln[idx];
+	}
+
+	/** @return names of the buses that Propagate could not reach from a swing bus */
+	public ArrayList<String> UnreachableBuses () {
+		ArrayList<String> list = new ArrayList<>();
+		for (int i = 0; i < names.size(); i++) {
+			if ((flags[i] & FLAG_REACHED) == 0) {
+				list.add (names.get (i));
+			}
+		}
+		return list;
+	}
+}
@@ -0,0 +1,104 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ Renders the sections of one output file, e.g. all of the overhead wires, into separate buffers, then writes them in order.
+ <p>A section only reads the component maps, so with more than one thread the sections render at once on a
+ ForkJoinPool. Long sections are split into chunks of CHUNK components. Buffers are written in the order the
+ sections were added, as each one finishes, so the output is the same as from rendering them one after another.</p>
+ <p>Each section has a main buffer, and an auxiliary one for a companion file like the OpenDSS GUIDs.</p>
+*/
+public class SectionWriter {
+	/** the same line ending that PrintWriter.println writes */
+	public static final String NL = System.lineSeparator();
+	/** components per chunk of a long section */
+	static final int CHUNK = 512;
+
+	/** fills the buffers of one section */
+	public interface Section {
+		void Render (StringBuilder buf, StringBuilder aux);
+	}
+
+	/** renders one component of a section */
+	public interface Item<T> {
+		void Render (T obj, StringBuilder buf, StringBuilder aux);
+	}
+
+	private final List<Section> sections = new ArrayList<>();
+
+	public SectionWriter Add (Section s) {
+		sections.add (s);
+		return this;
+	}
+
+	/** adds a section for each CHUNK of items, in their iteration order */
+	public <T> SectionWriter AddEach (Collection<T> items, Item<? super T> item) {
+		List<T> list = new ArrayList<> (items);
+		for (int start = 0; start < list.size(); start += CHUNK) {
+			final List<T> chunk = list.subList (start, Math.min (start + CHUNK, list.size()));
+			sections.add ((buf, aux) -> {
+				for (T obj : chunk) {
+					item.Render (obj, buf, aux);
+				}
+			});
+		}
+		return this;
+	}
+
+	/** adds a blank line to the main output, as out.println() would */
+	public SectionWriter AddBlankLine () {
+		sections.add ((buf, aux) -> buf.append (NL));
+		return this;
+	}
+
+	private static StringBuilder[] RenderOne (Section s) {
+		StringBuilder[] bufs = {new StringBuilder(), new StringBuilder()};
+		s.Render (bufs[0], bufs[1]);
+		return bufs;
+	}
+
+	/**
+	 *  Renders all of the sections, then clears them; neither writer is closed.
+	 *  @param aux receives the auxiliary buffers, may be null if no section uses them
+	 *  @param nThreads 1 renders on the calling thread
+	 */
+	public void Write (PrintWriter out, PrintWriter aux, int nThreads) {
+		if (nThreads <= 1 || sections.size() < 2) {
+			for (Section s : sections) {
+				Print (RenderOne (s), out, aux);
+			}
+			sections.clear();
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool (nThreads);
+		try {
+			List<ForkJoinTask<StringBuilder[]>> tasks = new ArrayList<>();
+			for (Section s : sections) {
+				tasks.add (pool.submit (() -> RenderOne (s)));
+			}
+			for (ForkJoinTask<StringBuilder[]> task : tasks) {
+				Print (task.join(), out, aux);
+			}
+		} finally {
+			pool.shutdownNow();
+			sections.clear();
+		}
+	}
+
+	private static void Print (StringBuilder[] bufs, PrintWriter out, PrintWriter aux) {
+		out.append (bufs[0]);
+		if (aux != null) {
+			aux.append (bufs[1]);
+		}
+	}
+}
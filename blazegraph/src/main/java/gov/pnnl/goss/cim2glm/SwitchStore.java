@@ -0,0 +1,85 @@
+package gov.pnnl.goss.cim2glm;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import gov.pnnl.goss.cim2glm.components.DistSwitch;
+
+/**
+ All of the switches of a model, decoded from DistSwitch.szQUERY and indexed by CIM class.
+ <p>Each class fills its own typed map, e.g. mapFuses, for the writers with one section per class.
+ As a read-only collection, the store holds the switches of each network class, class by class in
+ the order they were indexed, so the writers that treat all switches alike need no merged copy.</p>
+*/
+public class SwitchStore extends AbstractCollection<DistSwitch> {
+	private final LinkedHashMap<String,LinkedHashMap<String,DistSwitch>> mapByClass = new LinkedHashMap<>();
+	/** the classes written into the network model, i.e. not jumpers or ground disconnectors */
+	private final List<LinkedHashMap<String,DistSwitch>> listNetwork = new ArrayList<>();
+
+	/**
+	 *  @param cimClass as returned by CIMClass, e.g. Fuse
+	 *  @param map receives the switches of that class
+	 *  @param bNetwork true if these switches are written as links of the network model
+	 */
+	@SuppressWarnings("unchecked")
+	public void Index (String cimClass, LinkedHashMap<String,? extends DistSwitch> map, boolean bNetwork) {
+		LinkedHashMap<String,DistSwitch> m = (LinkedHashMap<String,DistSwitch>) map; // Add only puts switches of cimClass
+		mapByClass.put (cimClass, m);
+		if (bNetwork) {
+			listNetwork.add (m);
+		}
+	}
+
+	public void Add (DistSwitch obj) {
+		LinkedHashMap<String,DistSwitch> map = mapByClass.get (obj.CIMClass());
+		if (map == null) {
+			throw new RuntimeException ("no switch map for " + obj.CIMClass());
+		}
+		map.put (obj.GetKey(), obj);
+	}
+
+	/** @return the number of switches in the network classes */
+	@Override
+	public int size () {
+		int n = 0;
+		for (LinkedHashMap<String,DistSwitch> map : listNetwork) {
+			n += map.size();
+		}
+		return n;
+	}
+
+	@Override
+	public Iterator<DistSwitch> iterator () {
+		return new Iterator<DistSwitch>() {
+			int iMap = 0;
+			Iterator<DistSwitch> it = null;
+
+			@Override
+			public boolean hasNext () {
+				while (it == null || !it.hasNext()) {
+					if (iMap >= listNetwork.size()) {
+						return false;
+					}
+					it = listNetwork.get (iMap++).values().iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public DistSwitch next () {
+				if (!hasNext()) {
+					throw new NoSuchElementException ();
+				}
+				return it.next();
+			}
+		};
+	}
+}
@@ -21,12 +21,10 @@ public class DistBaseVoltage extends DistComponent {
 	public String name;
 	double vnom;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.EndObject ();
 	}
 
 	public DistBaseVoltage (ResultSet results) {
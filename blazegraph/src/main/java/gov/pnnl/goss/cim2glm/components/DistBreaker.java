@@ -14,6 +14,10 @@ public class DistBreaker extends DistSwitch {
 		super (results);
 	}
 
+	public DistBreaker (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "Breaker";
 	}
@@ -51,6 +51,7 @@ public class DistCapacitor extends DistComponent {
 	public String id;
 	public String name;
 	public String bus;
+	public int ibus;
 	public String phs;
 	public String conn;
 	public String grnd;
@@ -73,51 +74,29 @@ public class DistCapacitor extends DistComponent {
 	private boolean bDelta;
 	private int nphases;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name + "\"");
-		buf.append (",\"mRID\":\"" + id + "\"");
-		buf.append (",\"CN1\":\"" + bus + "\"");
-		buf.append (",\"phases\":\"" + phs + "\"");
-		buf.append (",\"kvar_A\":" + df1.format(kvar_A));
-		buf.append (",\"kvar_B\":" + df1.format(kvar_B));
-		buf.append (",\"kvar_C\":" + df1.format(kvar_C));
-		buf.append (",\"nominalVoltage\":" + df1.format(basev));
-		buf.append (",\"nomU\":" + df1.format(nomu));
-		buf.append (",\"phaseConnection\":\"" + conn + "\"");
-		buf.append (",\"grounded\":" + grnd.toLowerCase());
-		buf.append (",\"enabled\":" + ctrl.toLowerCase());
-		if (mode == null) {
-			buf.append(",\"mode\":null");
-		} else {
-			buf.append(",\"mode\":\"" + mode + "\"");
-		}
-		buf.append (",\"targetValue\":" + df1.format (setpoint));
-		buf.append (",\"targetDeadband\":" + df1.format (deadband));
-		buf.append (",\"aVRDelay\":" + df1.format (delay));
-		if (moneq == null) {
-			buf.append(",\"monitoredName\":null");
-		} else {
-			buf.append(",\"monitoredName\":\"" + moneq + "\"");
-		}
-		if (monclass == null) {
-			buf.append(",\"monitoredClass\":null");
-		} else {
-			buf.append(",\"monitoredClass\":\"" + monclass + "\"");
-		}
-		if (monbus == null) {
-			buf.append(",\"monitoredBus\":null");
-		} else {
-			buf.append(",\"monitoredBus\":\"" + monbus + "\"");
-		}
-		if (monphs == null) {
-			buf.append(",\"monitoredPhase\":null");
-		} else {
-			buf.append(",\"monitoredPhase\":\"" + monphs + "\"");
-		}
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.Name ("CN1").Value (bus);
+		w.Name ("phases").Value (phs);
+		w.Name ("kvar_A").Value (kvar_A, df1);
+		w.Name ("kvar_B").Value (kvar_B, df1);
+		w.Name ("kvar_C").Value (kvar_C, df1);
+		w.Name ("nominalVoltage").Value (basev, df1);
+		w.Name ("nomU").Value (nomu, df1);
+		w.Name ("phaseConnection").Value (conn);
+		w.Name ("grounded").Value (Boolean.parseBoolean (grnd));
+		w.Name ("enabled").Value (Boolean.parseBoolean (ctrl));
+		w.Name ("mode").Value (mode);
+		w.Name ("targetValue").Value (setpoint, df1);
+		w.Name ("targetDeadband").Value (deadband, df1);
+		w.Name ("aVRDelay").Value (delay, df1);
+		w.Name ("monitoredName").Value (moneq);
+		w.Name ("monitoredClass").Value (monclass);
+		w.Name ("monitoredBus").Value (monbus);
+		w.Name ("monitoredPhase").Value (monphs);
+		w.EndObject ();
 	}
 
 	private String DSSCapMode (String s) {
@@ -131,10 +110,10 @@ public class DistCapacitor extends DistComponent {
 	}
 
 	private void SetDerivedParameters() {
-		int bA = 0, bB = 0, bC = 0;
-		if (phs.contains ("A")) bA = 1;
-		if (phs.contains ("B")) bB = 1;
-		if (phs.contains ("C")) bC = 1;
+		PhaseSet ps = PhaseSet.Of (phs);
+		int bA = ps.Has (PhaseSet.A) ? 1 : 0;
+		int bB = ps.Has (PhaseSet.B) ? 1 : 0;
+		int bC = ps.Has (PhaseSet.C) ? 1 : 0;
 		double kvar_ph = kvar / (bA + bB + bC);
 		kvar_A = kvar_ph * bA;
 		kvar_B = kvar_ph * bB;
@@ -199,21 +178,19 @@ public class DistCapacitor extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt = map.get("LinearShuntCompensator:" + name + ":1");
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"parent\":\"" + bus +"\"");
-		buf.append (",\"phases\":\"" + phs +"\"");
-		buf.append (",\"kvar_A\":" + df1.format(kvar_A));
-		buf.append (",\"kvar_B\":" + df1.format(kvar_B));
-		buf.append (",\"kvar_C\":" + df1.format(kvar_C));
-		buf.append (",\"x1\":" + Double.toString(pt.x));
-		buf.append (",\"y1\":" + Double.toString(pt.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("parent").Value (bus);
+		w.Name ("phases").Value (phs);
+		w.Name ("kvar_A").Value (kvar_A, df1);
+		w.Name ("kvar_B").Value (kvar_B, df1);
+		w.Name ("kvar_C").Value (kvar_C, df1);
+		w.Name ("x1").Value (pt.x);
+		w.Name ("y1").Value (pt.y);
+		w.EndObject ();
 	}
 
 	public String GetGLM() {
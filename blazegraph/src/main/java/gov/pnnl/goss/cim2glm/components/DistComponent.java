@@ -7,8 +7,14 @@ package gov.pnnl.goss.cim2glm.components;
 import org.apache.jena.query.*; 
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.commons.math3.complex.Complex;
-import java.text.DecimalFormat;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 public abstract class DistComponent {
 	public static final String nsCIM = "http://iec.ch/TC57/2012/CIM-schema-cim17#";
@@ -20,13 +26,13 @@ public abstract class DistComponent {
 	static final double gMperMILE = 1609.344;
 	static final double gFTperM = 3.2809;
 
-	static final DecimalFormat df1 = new DecimalFormat("#0.0");
-	static final DecimalFormat df2 = new DecimalFormat("#0.00");
-	static final DecimalFormat df3 = new DecimalFormat("#0.000");
-	static final DecimalFormat df4 = new DecimalFormat("#0.0000");
-	static final DecimalFormat df5 = new DecimalFormat("#0.00000");
-	static final DecimalFormat df6 = new DecimalFormat("#0.000000");
-	static final DecimalFormat df12 = new DecimalFormat("#0.000000000000");
+	static final DistFormat df1 = new DistFormat(1);
+	static final DistFormat df2 = new DistFormat(2);
+	static final DistFormat df3 = new DistFormat(3);
+	static final DistFormat df4 = new DistFormat(4);
+	static final DistFormat df5 = new DistFormat(5);
+	static final DistFormat df6 = new DistFormat(6);
+	static final DistFormat df12 = new DistFormat(12);
 
 //	public static ResultSet RunQuery (String szQuery) {
 //		String qPrefix = "PREFIX r: <" + nsRDF + "> PREFIX c: <" + nsCIM + "> PREFIX xsd:<" + nsXSD + "> ";
@@ -46,10 +52,18 @@ public abstract class DistComponent {
 		return def;
 	}
 
+	/** like RDFNode.toString(), but without the datatype suffix on typed literals, and without building a new String */
+	static String LexicalForm (RDFNode nd) {
+		if (nd.isLiteral()) {
+			return nd.asLiteral().getLexicalForm();
+		}
+		return nd.toString();
+	}
+
 	static int OptionalInt (QuerySolution soln, String parm, int def) {
 		RDFNode nd = soln.get(parm);
 		if (nd != null) {
-			String str = nd.toString();
+			String str = LexicalForm (nd);
 			if (str.length() > 0) {
 				return Integer.parseInt (str);
 			}
@@ -60,7 +74,7 @@ public abstract class DistComponent {
 	static double OptionalDouble (QuerySolution soln, String parm, double def) {
 		RDFNode nd = soln.get(parm);
 		if (nd != null) {
-			String str = nd.toString();
+			String str = LexicalForm (nd);
 			if (str.length() > 0) {
 				return Double.parseDouble (str);
 			}
@@ -71,7 +85,7 @@ public abstract class DistComponent {
 	static boolean OptionalBoolean (QuerySolution soln, String parm, boolean def) {
 		RDFNode nd = soln.get(parm);
 		if (nd != null) {
-			String str = nd.toString();
+			String str = LexicalForm (nd);
 			if (str.length() > 0) {
 				return Boolean.parseBoolean (str);
 			}
@@ -127,23 +141,11 @@ public abstract class DistComponent {
 	}
 
 	static String FirstDSSPhase (String phs) {
-		if (phs.contains ("A")) return "1";
-		if (phs.contains ("B")) return "2";
-		return "3";
+		return PhaseSet.Of (phs).FirstDSSPhase();
 	}
 
 	static int DSSPhaseCount (String phs, boolean bDelta) {
-		int nphases = 0;
-		if (phs.contains ("A")) nphases += 1;
-		if (phs.contains ("B")) nphases += 1;
-		if (phs.contains ("C")) nphases += 1;
-		if (phs.contains ("s1")) nphases += 1;
-		if (phs.contains ("s2")) nphases += 1;
-		if ((nphases < 3) && bDelta) {
-			nphases = 1;
-		}
-//		System.out.println (phs + "," + Boolean.toString(bDelta) + "," + Integer.toString(nphases));
-		return nphases;
+		return PhaseSet.Of (phs).DSSPhaseCount (bDelta);
 	}
 
 	static String DSSConn (boolean bDelta) {
@@ -154,84 +156,19 @@ public abstract class DistComponent {
 	}
 
 	static String DSSShuntPhases (String bus, String phs, boolean bDelta) {
-		if (phs.contains ("ABC")) {
-			return bus + ".1.2.3";
-		}
-		if (!bDelta) {
-			return DSSBusPhases(bus, phs);
-		}
-//		if (phs_cnt == 1) {
-			if (phs.contains ("A")) {
-				return bus + ".1.2";
-			} else if (phs.contains ("B")) {
-				return bus + ".2.3";
-			} else if (phs.contains ("C")) {
-				return bus + ".3.1";
-			}
-//		}
-		// TODO - can we have two-phase delta in the CIM?
-//		if (phs.contains ("AB")) {
-//			return ".1.2.3";
-//		} else if (phs.contains ("AC")) {
-//			return ".3.1.2";
-//		}
-		// phs.contains ("BC")) for 2-phase delta
-		return bus;// ".2.3.1";
+		return PhaseSet.Of (phs).DSSShuntBus (bus, bDelta);
 	}
 
 	static String DSSBusPhases (String bus, String phs) {
-    if (phs.contains ("ABC")) {
-      return bus + ".1.2.3";
-    } else if (phs.contains ("AB") || phs.contains ("A:B")) {
-      return bus + ".1.2";
-		} else if (phs.contains ("12")) {
-			return bus + ".1.2";
-    } else if (phs.contains ("AC") || phs.contains ("A:C")) {
-      return bus + ".1.3";
-    } else if (phs.contains ("BC") || phs.contains ("B:C")) {
-      return bus + ".2.3";
-		} else if (phs.contains ("B:A")) {
-			return bus + ".2.1";
-		} else if (phs.contains ("C:A")) {
-			return bus + ".3.1";
-		} else if (phs.contains ("C:B")) {
-			return bus + ".3.2";
-		} else if (phs.contains ("s1:s2")) {
-			return bus + ".1.2";
-		} else if (phs.contains ("s2:s1")) {
-			return bus + ".2.1";
-		} else if (phs.contains ("s1")) {
-			return bus + ".1";
-		} else if (phs.contains ("s2")) {
-			return bus + ".2";
-    } else if (phs.contains ("A")) {
-      return bus + ".1";
-    } else if (phs.contains ("B")) {
-      return bus + ".2";
-    } else if (phs.contains ("C")) {
-      return bus + ".3";
-		} else if (phs.contains ("1")) {
-			return bus + ".1";
-		} else if (phs.contains ("2")) {
-			return bus + ".2";
-    } else {
-      return bus;  // defaults to 3 phases
-    }
-  }
+		return PhaseSet.Of (phs).DSSBus (bus);
+	}
 
 	static String DSSXfmrBusPhases (String bus, String phs) {
-		if (phs.contains("s2")) return (bus + ".0.2");
-		if (phs.contains("s1")) return (bus + ".1.0");
-		return DSSBusPhases (bus, phs);
+		return PhaseSet.Of (phs).DSSXfmrBus (bus);
 	}
 
 	static String GLMPhaseString (String cim_phases) {
-		StringBuilder ret = new StringBuilder();
-		if (cim_phases.contains ("A")) ret.append ("A");
-		if (cim_phases.contains ("B")) ret.append ("B");
-		if (cim_phases.contains ("C")) ret.append ("C");
-		if (cim_phases.contains ("s")) ret.append ("S");
-		return ret.toString();
+		return PhaseSet.Of (cim_phases).GLMString();
 	}
 
 	/** 
@@ -249,13 +186,7 @@ public abstract class DistComponent {
 	 *  @return formatted string for GridLAB-D input files with 'j' at the end
 		 */
 	static String CFormat (Complex c) {
-		String sgn;
-		if (c.getImaginary() < 0.0)  {
-			sgn = "-";
-		} else {
-			sgn = "+";
-		}
-		return String.format("%6g", c.getReal()) + sgn + String.format("%6g", Math.abs(c.getImaginary())) + "j";
+		return DistFormat.CFormat (c);
 	}
 
 	/** <p>Map CIM connectionKind to GridLAB-D winding connections. TODO: some of the returnable types aren't actually supported in GridLAB-D</p>
@@ -386,10 +317,103 @@ public abstract class DistComponent {
 
  	public abstract String DisplayString();
  	public abstract String GetKey();
-	public abstract String GetJSONEntry();
+	/** writes the dictionary entry of this component as one JSON object */
+	public abstract void WriteJSONEntry (JsonWriter w);
+
+	/** @return WriteJSONEntry as a String */
+	public String GetJSONEntry () {
+		StringWriter sw = new StringWriter ();
+		JsonWriter w = new JsonWriter (sw);
+		WriteJSONEntry (w);
+		w.Flush ();
+		return sw.toString();
+	}
+
+	/** writes the symbol of this component, with its coordinates, as one JSON object; nothing if it has no symbol */
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	}
 
+	/** @return WriteJSONSymbols as a String, empty if there is no symbol */
 	public String GetJSONSymbols (HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
-		return "";
+		StringWriter sw = new StringWriter ();
+		JsonWriter w = new JsonWriter (sw);
+		WriteJSONSymbols (w, map, mapTank);
+		w.Flush ();
+		return sw.toString();
+	}
+
+	/** the instance fields of each component class, sorted by name so the fingerprint does not depend on the JVM */
+	private static final ClassValue<Field[]> fingerprintFields = new ClassValue<Field[]>() {
+		@Override
+		protected Field[] computeValue (Class<?> cls) {
+			List<Field> fields = new ArrayList<>();
+			for (Class<?> c = cls; c != DistComponent.class && c != null; c = c.getSuperclass()) {
+				for (Field f : c.getDeclaredFields()) {
+					if ((f.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && !f.isSynthetic()) {
+						f.setAccessible (true);
+						fields.add (f);
+					}
+				}
+			}
+			fields.sort (Comparator.comparing ((Field f) -> f.getDeclaringClass().getName()).thenComparing (Field::getName));
+			return fields.toArray (new Field[0]);
+		}
+	};
+
+	private static long Mix (long h, long v) {
+		v ^= v >>> 33;
+		v *= 0xff51afd7ed558ccdL;
+		v ^= v >>> 33;
+		return (h ^ v) * 0x9e3779b97f4a7c15L + 0x632be59bd9b4e019L;
+	}
+
+	private static long HashValue (long h, Object v) {
+		if (v == null) {
+			return Mix (h, 0x5bd1e995L);
+		} else if (v instanceof String) {
+			String s = (String) v;
+			h = Mix (h, s.length());
+			for (int i = 0; i < s.length(); i++) {
+				h = Mix (h, s.charAt (i));
+			}
+			return h;
+		} else if (v instanceof Double || v instanceof Float) {
+			return Mix (h, Double.doubleToLongBits (((Number) v).doubleValue()));
+		} else if (v instanceof Number) {
+			return Mix (h, ((Number) v).longValue());
+		} else if (v instanceof Boolean) {
+			return Mix (h, ((Boolean) v) ? 1 : 2);
+		} else if (v instanceof Character) {
+			return Mix (h, (Character) v);
+		} else if (v instanceof Complex) {
+			h = Mix (h, Double.doubleToLongBits (((Complex) v).getReal()));
+			return Mix (h, Double.doubleToLongBits (((Complex) v).getImaginary()));
+		} else if (v.getClass().isArray()) {
+			int n = Array.getLength (v);
+			h = Mix (h, n);
+			for (int i = 0; i < n; i++) {
+				h = HashValue (h, Array.get (v, i));
+			}
+			return h;
+		}
+		return HashValue (h, v.toString());
+	}
+
+	/**
+	 *  @return 64-bit hash of the fields decoded from the query, to detect which components changed between exports.
+	 *  Static and transient fields are left out. The writers fill in some fields, e.g. bus indices and GridLAB-D phasing,
+	 *  so take the fingerprint after loading and before writing.
+	 */
+	public long Fingerprint () {
+		long h = HashValue (0, getClass().getName());
+		try {
+			for (Field f : fingerprintFields.get (getClass())) {
+				h = HashValue (h, f.get (this));
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException ("can not fingerprint " + GetKey() + ": " + e.getMessage(), e);
+		}
+		return h;
 	}
 }
 
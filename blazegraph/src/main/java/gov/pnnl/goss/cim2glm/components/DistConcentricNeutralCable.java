@@ -53,13 +53,11 @@ public class DistConcentricNeutralCable extends DistCable {
 	public double strand_rad;
 	public double strand_rdc;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	public DistConcentricNeutralCable (ResultSet results) {
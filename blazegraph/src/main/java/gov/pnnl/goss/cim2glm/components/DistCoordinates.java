@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 
 public class DistCoordinates extends DistComponent {
 	public static final String szQUERY =
@@ -31,28 +32,28 @@ public class DistCoordinates extends DistComponent {
 		"}"+
 		" ORDER BY ?class ?name ?seq ?x ?y";
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?x", "?y", "?seq", "?class");
+
 	public String name;
 	public double x;
 	public double y;
 	public int seq;
 	public String cname;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.EndObject ();
 	}
 
 	public DistCoordinates (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			x = Double.parseDouble (soln.get("?x").toString());
-			y = Double.parseDouble (soln.get("?y").toString());
-			seq = Integer.parseInt (soln.get("?seq").toString());
-			cname = soln.get("?class").toString();
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			name = SafeName (decoder.GetString (row, 0));
+			x = decoder.GetDouble (row, 1);
+			y = decoder.GetDouble (row, 2);
+			seq = decoder.GetInt (row, 3);
+			cname = decoder.GetString (row, 4);
 		}		
 	}
 
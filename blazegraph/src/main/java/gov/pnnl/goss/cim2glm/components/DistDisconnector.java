@@ -14,6 +14,10 @@ public class DistDisconnector extends DistSwitch {
 		super (results);
 	}
 
+	public DistDisconnector (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "Disconnector";
 	}
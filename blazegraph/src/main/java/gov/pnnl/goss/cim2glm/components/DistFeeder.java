@@ -34,19 +34,17 @@ public class DistFeeder extends DistComponent {
 	public String regionName;
 	public String regionID;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + feederName +"\"");
-		buf.append (",\"mRID\":\"" + feederID +"\"");
-		buf.append (",\"substationName\":\"" + substationName + "\"");
-		buf.append (",\"substationID\":\"" + substationID + "\"");
-		buf.append (",\"subregionName\":\"" + subregionName + "\"");
-		buf.append (",\"subregionID\":\"" + subregionID + "\"");
-		buf.append (",\"regionName\":\"" + regionName + "\"");
-		buf.append (",\"regionID\":\"" + regionID + "\"");
-		buf.append("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (feederName);
+		w.Name ("mRID").Value (feederID);
+		w.Name ("substationName").Value (substationName);
+		w.Name ("substationID").Value (substationID);
+		w.Name ("subregionName").Value (subregionName);
+		w.Name ("subregionID").Value (subregionID);
+		w.Name ("regionName").Value (regionName);
+		w.Name ("regionID").Value (regionID);
+		w.EndObject ();
 	}
 
 	public DistFeeder (ResultSet results) {
@@ -0,0 +1,211 @@
+package gov.pnnl.goss.cim2glm.components;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ Number formatting for the GridLAB-D and OpenDSS writers, without DecimalFormat or String.format on the common path.
+ <p>An instance writes a fixed number of decimals, with the same digits as DecimalFormat("#0.00...") would give,
+ and format keeps that signature so the df fields of DistComponent are drop-in. The static G methods match
+ String.format("%6g"). Neither keeps any state, so one instance can be shared by writers on several threads.</p>
+ <p>Values that are not finite, very large, or within rounding error of a tie are handed to the JDK formatter,
+ with Locale.ROOT symbols so the decimal point is always a '.'. FormatCheck in the benchmarks compares the two.</p>
+*/
+public final class DistFormat {
+	private static final double[] POW10 = {1.0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8, 1.0e9, 1.0e10, 1.0e11, 1.0e12};
+	private static final long[] LPOW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+		1000000000L, 10000000000L, 100000000000L, 1000000000000L};
+	/** below this, the scaled value is within 2e-4 of exact, so frac only needs checking near 0.5 */
+	private static final double FAST_LIMIT = 1.0e12;
+
+	private final int decimals;
+	private final ThreadLocal<DecimalFormat> fallback;
+
+	/** @param decimals digits after the point, from 0 to 12 */
+	public DistFormat (int decimals) {
+		if (decimals < 0 || decimals >= POW10.length) {
+			throw new RuntimeException ("DistFormat supports 0 to " + (POW10.length - 1) + " decimals, not " + decimals);
+		}
+		this.decimals = decimals;
+		StringBuilder pattern = new StringBuilder ("#0");
+		if (decimals > 0) {
+			pattern.append ('.');
+			for (int i = 0; i < decimals; i++) {
+				pattern.append ('0');
+			}
+		}
+		final String szPattern = pattern.toString();
+		fallback = ThreadLocal.withInitial (() -> new DecimalFormat (szPattern, DecimalFormatSymbols.getInstance (Locale.ROOT)));
+	}
+
+	/** @return the same string as DecimalFormat("#0.00...").format(v) */
+	public String format (double v) {
+		return append (new StringBuilder (24), v).toString();
+	}
+
+	/** appends format(v) to buf without building a String */
+	public StringBuilder append (StringBuilder buf, double v) {
+		if (Double.isNaN (v) || Double.isInfinite (v)) {
+			return buf.append (fallback.get().format (v));
+		}
+		double a = Math.abs (v);
+		double scaled = a * POW10[decimals];
+		if (scaled >= FAST_LIMIT) {
+			return buf.append (fallback.get().format (v));
+		}
+		double fl = Math.floor (scaled);
+		double frac = scaled - fl;
+		if (frac > 0.499 && frac < 0.501) { // the JDK rounds half-even on the exact value
+			return buf.append (fallback.get().format (v));
+		}
+		long units = (long) fl;
+		if (frac > 0.5) {
+			++units;
+		}
+		if (v < 0.0 || (v == 0.0 && 1.0 / v < 0.0)) {
+			buf.append ('-');
+		}
+		buf.append (units / LPOW10[decimals]);
+		if (decimals > 0) {
+			buf.append ('.');
+			long f = units % LPOW10[decimals];
+			for (int k = decimals - 1; k > 0 && f < LPOW10[k]; k--) {
+				buf.append ('0');
+			}
+			buf.append (f);
+		}
+		return buf;
+	}
+
+	/** @return the same string as String.format("%6g", v) */
+	public static String G (double v) {
+		return AppendG (new StringBuilder (16), v).toString();
+	}
+
+	/**
+	 *  Appends String.format("%6g", v), i.e. six significant digits in decimal or scientific form.
+	 *  Like java.util.Formatter, this rounds half-up from the shortest digits that Double.toString gives.
+	 */
+	public static StringBuilder AppendG (StringBuilder buf, double v) {
+		if (Double.isNaN (v) || Double.isInfinite (v)) {
+			return buf.append (String.format (Locale.ROOT, "%6g", v));
+		}
+		int start = buf.length();
+		if (v < 0.0 || (v == 0.0 && 1.0 / v < 0.0)) {
+			buf.append ('-');
+		}
+		char[] d = {'0', '0', '0', '0', '0', '0'};
+		int decExp = 1;
+		if (v != 0.0) {
+			decExp = ShortestDigits (Math.abs (v), d);
+		}
+		int e = decExp - 1;
+		if (e < -4 || e >= 6) {
+			buf.append (d[0]).append ('.').append (d, 1, 5).append ('e');
+			if (e < 0) {
+				buf.append ('-');
+				e = -e;
+			} else {
+				buf.append ('+');
+			}
+			if (e < 10) {
+				buf.append ('0');
+			}
+			buf.append (e);
+		} else if (decExp <= 0) {
+			buf.append ("0.");
+			for (int k = decExp; k < 0; k++) {
+				buf.append ('0');
+			}
+			buf.append (d, 0, 6);
+		} else {
+			buf.append (d, 0, decExp);
+			if (decExp < 6) {
+				buf.append ('.').append (d, decExp, 6 - decExp);
+			}
+		}
+		while (buf.length() - start < 6) {
+			buf.insert (start, ' ');
+		}
+		return buf;
+	}
+
+	/**
+	 *  Fills d with the first six significant digits of a, rounded half-up, padded with zeros.
+	 *  @param a positive and finite
+	 *  @return decimal exponent, such that a = 0.d * 10^exponent
+	 */
+	private static int ShortestDigits (double a, char[] d) {
+		String s = Double.toString (a);
+		int len = s.length();
+		int ePos = s.indexOf ('E');
+		int e10 = 0;
+		if (ePos >= 0) {
+			e10 = Integer.parseInt (s.substring (ePos + 1));
+			len = ePos;
+		}
+		int decExp = e10;
+		int nd = 0;
+		boolean leading = true;
+		boolean beforePoint = true;
+		boolean roundUp = false;
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt (i);
+			if (c == '.') {
+				beforePoint = false;
+				continue;
+			}
+			if (leading && c == '0') {
+				if (!beforePoint) {
+					--decExp;
+				}
+				continue;
+			}
+			if (leading) {
+				leading = false;
+			}
+			if (beforePoint) {
+				++decExp;
+			}
+			if (nd < 6) {
+				d[nd] = c;
+			} else if (nd == 6) {
+				roundUp = c >= '5';
+			}
+			++nd;
+		}
+		if (roundUp) {
+			int k = 5;
+			while (k >= 0 && d[k] == '9') {
+				d[k--] = '0';
+			}
+			if (k >= 0) {
+				++d[k];
+			} else {
+				d[0] = '1';
+				++decExp;
+			}
+		}
+		return decExp;
+	}
+
+	/** @return c formatted for GridLAB-D, as AppendComplex */
+	public static String CFormat (Complex c) {
+		return AppendComplex (new StringBuilder (32), c).toString();
+	}
+
+	/** appends c with a 'j' at the end, the real and imaginary parts as for AppendG */
+	public static StringBuilder AppendComplex (StringBuilder buf, Complex c) {
+		AppendG (buf, c.getReal());
+		buf.append (c.getImaginary() < 0.0 ? '-' : '+');
+		AppendG (buf, Math.abs (c.getImaginary()));
+		return buf.append ('j');
+	}
+}
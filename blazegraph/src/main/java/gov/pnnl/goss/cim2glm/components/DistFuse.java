@@ -14,6 +14,10 @@ public class DistFuse extends DistSwitch {
 		super (results);
 	}
 
+	public DistFuse (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "Fuse";
 	}
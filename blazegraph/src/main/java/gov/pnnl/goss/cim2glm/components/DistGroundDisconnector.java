@@ -14,6 +14,10 @@ public class DistGroundDisconnector extends DistSwitch {
 		super (results);
 	}
 
+	public DistGroundDisconnector (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "GroundDisconnector";
 	}
@@ -14,6 +14,10 @@ public class DistJumper extends DistSwitch {
 		super (results);
 	}
 
+	public DistJumper (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "Jumper";
 	}
@@ -12,6 +12,9 @@ public abstract class DistLineSegment extends DistComponent {
 	public String name;
 	public String bus1;
 	public String bus2;
+	/** bus indices in the feeder topology, set when CIMImporter builds it */
+	public int ibus1;
+	public int ibus2;
 	public String phases;
 	public double len;
 	public double basev;
@@ -23,8 +26,9 @@ public abstract class DistLineSegment extends DistComponent {
 	public abstract String LabelString();
 
 	protected void AppendSharedGLMAttributes (StringBuilder buf, String config_root, boolean bSpacing) {
+		PhaseSet ps = PhaseSet.Of (phases);
 
-		if (phases.contains ("s")) {
+		if (ps.Has (PhaseSet.S)) {
 			bTriplex = true;
 			buf.append ("object triplex_line {\n");
 			buf.append ("  name \"tpx_" + name + "\";\n");
@@ -40,13 +44,7 @@ public abstract class DistLineSegment extends DistComponent {
 
 		buf.append ("  from \"" + bus1 + "\";\n");
 		buf.append ("  to \"" + bus2 + "\";\n");
-		StringBuilder phs = new StringBuilder();
-		if (phases.contains ("A")) phs.append ("A");
-		if (phases.contains ("B")) phs.append ("B");
-		if (phases.contains ("C")) phs.append ("C");
-		if (bTriplex) phs.append ("S");
-		if (phases.contains ("N")) phs.append ("N");
-		glm_phases = phs.toString();
+		glm_phases = ps.GLMLineString();
 		buf.append ("  phases " + glm_phases + ";\n");
 		buf.append ("  length " + df4.format(len * gFTperM) + ";\n");
 		if (bSpacing) {
@@ -59,30 +57,24 @@ public abstract class DistLineSegment extends DistComponent {
 		buf.append ("}\n");
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt1 = map.get("ACLineSegment:" + name + ":1");
 		DistCoordinates pt2 = map.get("ACLineSegment:" + name + ":2");
-		StringBuilder lbl_phs = new StringBuilder ();
-		if (phases.contains("A")) lbl_phs.append("A");
-		if (phases.contains("B")) lbl_phs.append("B");
-		if (phases.contains("C")) lbl_phs.append("C");
-		if (phases.contains("s")) lbl_phs.append("S");
-		if (lbl_phs.length() < 1) lbl_phs.append("ABC");
+		String lbl_phs = GLMPhaseString (phases);
+		if (lbl_phs.length() < 1) lbl_phs = "ABC";
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name + "\"");
-		buf.append (",\"from\":\"" + bus1 + "\"");
-		buf.append (",\"to\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"" + lbl_phs.toString() +"\"");
-		buf.append (",\"length\":" + df2.format(len * gFTperM));
-		buf.append (",\"configuration\":\"" + LabelString() + "\"");
-		buf.append (",\"x1\":" + Double.toString(pt1.x));
-		buf.append (",\"y1\":" + Double.toString(pt1.y));
-		buf.append (",\"x2\":" + Double.toString(pt2.x));
-		buf.append (",\"y2\":" + Double.toString(pt2.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("from").Value (bus1);
+		w.Name ("to").Value (bus2);
+		w.Name ("phases").Value (lbl_phs);
+		w.Name ("length").Value (len * gFTperM, df2);
+		w.Name ("configuration").Value (LabelString());
+		w.Name ("x1").Value (pt1.x);
+		w.Name ("y1").Value (pt1.y);
+		w.Name ("x2").Value (pt2.x);
+		w.Name ("y2").Value (pt2.y);
+		w.EndObject ();
 	}
 }
 
@@ -58,13 +58,11 @@ public class DistLineSpacing extends DistComponent {
 	private boolean has_neutral;
 	private int nphases;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	private void FindNeutral () {
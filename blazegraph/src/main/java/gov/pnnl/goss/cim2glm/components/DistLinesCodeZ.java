@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 
 public class DistLinesCodeZ extends DistLineSegment {
 	public static final String szQUERY =
@@ -36,27 +37,27 @@ public class DistLinesCodeZ extends DistLineSegment {
 
 	public String lname;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?id", "?bus1", "?bus2", "?phases", "?basev", "?len", "?lname");
+
 	public DistLinesCodeZ (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			id = soln.get("?id").toString();
-			bus1 = SafeName (soln.get("?bus1").toString()); 
-			bus2 = SafeName (soln.get("?bus2").toString()); 
-			phases = OptionalString (soln, "?phases", "ABC");
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			name = SafeName (decoder.GetString (row, 0));
+			id = decoder.GetString (row, 1);
+			bus1 = SafeName (decoder.GetString (row, 2)); 
+			bus2 = SafeName (decoder.GetString (row, 3)); 
+			phases = decoder.OptionalString (row, 4, "ABC");
 			phases = phases.replace ('\n', ':');
-			basev = Double.parseDouble (soln.get("?basev").toString());
-			len = Double.parseDouble (soln.get("?len").toString());
-			lname = soln.get("?lname").toString();
+			basev = decoder.GetDouble (row, 5);
+			len = decoder.GetDouble (row, 6);
+			lname = decoder.GetString (row, 7);
 		}		
 	}
 
@@ -43,13 +43,11 @@ public class DistLinesInstanceZ extends DistLineSegment {
 	public double x0; 
 	public double b0; 
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	public DistLinesInstanceZ (ResultSet results) {
@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 
 public class DistLinesSpacingZ extends DistLineSegment {
 	public static final String szQUERY =
@@ -70,32 +71,33 @@ public class DistLinesSpacingZ extends DistLineSegment {
 
 	public String glm_config;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?id", "?bus1", "?bus2", "?len", "?basev", "?spacing",
+																										 "?wname", "?wclass", "?phases", "?phwires", "?phclasses");
+
 	public DistLinesSpacingZ (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			id = soln.get("?id").toString();
-			bus1 = SafeName (soln.get("?bus1").toString()); 
-			bus2 = SafeName (soln.get("?bus2").toString()); 
-			len = Double.parseDouble (soln.get("?len").toString());
-			basev = Double.parseDouble (soln.get("?basev").toString());
-			spacing = soln.get("?spacing").toString();
-			wname = soln.get("?wname").toString();
-			wclass = soln.get("?wclass").toString();
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			name = SafeName (decoder.GetString (row, 0));
+			id = decoder.GetString (row, 1);
+			bus1 = SafeName (decoder.GetString (row, 2)); 
+			bus2 = SafeName (decoder.GetString (row, 3)); 
+			len = decoder.GetDouble (row, 4);
+			basev = decoder.GetDouble (row, 5);
+			spacing = decoder.GetString (row, 6);
+			wname = decoder.GetString (row, 7);
+			wclass = decoder.GetString (row, 8);
 			nwires = 0;
-			phases = OptionalString (soln, "?phases", "");
+			phases = decoder.OptionalString (row, 9, "");
 			if (phases.length() > 0) {
-				String phwires = OptionalString (soln, "?phwires", "");
-				String phclasses = OptionalString (soln, "?phclasses", "");
+				String phwires = decoder.OptionalString (row, 10, "");
+				String phclasses = decoder.OptionalString (row, 11, "");
 				wire_phases = phases.split("\\n");
 				nwires = wire_phases.length;
 				wire_names = new String[nwires];
@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 
 public class DistLoad extends DistComponent {
 	public static final String szQUERY = 
@@ -44,6 +45,7 @@ public class DistLoad extends DistComponent {
 	public String id;
 	public String name;
 	public String bus;
+	public int ibus;
 	public String phases;
 	public String conn;
 	public double basev;
@@ -61,35 +63,36 @@ public class DistLoad extends DistComponent {
 	private int dss_load_model;
 	private boolean bDelta;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?id", "?bus", "?basev", "?phases", "?conn", "?p", "?q",
+																										 "?pz", "?qz", "?pi", "?qi", "?pp", "?qp", "?pe", "?qe");
+
 	public DistLoad (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			id = soln.get("?id").toString();
-			bus = SafeName (soln.get("?bus").toString());
-			basev = Double.parseDouble (soln.get("?basev").toString());
-			phases = OptionalString (soln, "?phases", "ABC");
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			name = SafeName (decoder.GetString (row, 0));
+			id = decoder.GetString (row, 1);
+			bus = SafeName (decoder.GetString (row, 2));
+			basev = decoder.GetDouble (row, 3);
+			phases = decoder.OptionalString (row, 4, "ABC");
 			phases = phases.replace ('\n', ':');
-			conn = soln.get("?conn").toString();
-			p = 0.001 * Double.parseDouble (soln.get("?p").toString());
-			q = 0.001 * Double.parseDouble (soln.get("?q").toString());
-			pz = Double.parseDouble (soln.get("?pz").toString());
-			qz = Double.parseDouble (soln.get("?qz").toString());
-			pi = Double.parseDouble (soln.get("?pi").toString());
-			qi = Double.parseDouble (soln.get("?qi").toString());
-			pp = Double.parseDouble (soln.get("?pp").toString());
-			qp = Double.parseDouble (soln.get("?qp").toString());
-			pe = Double.parseDouble (soln.get("?pe").toString());
-			qe = Double.parseDouble (soln.get("?qe").toString());
+			conn = decoder.GetString (row, 5);
+			p = 0.001 * decoder.GetDouble (row, 6);
+			q = 0.001 * decoder.GetDouble (row, 7);
+			pz = decoder.GetDouble (row, 8);
+			qz = decoder.GetDouble (row, 9);
+			pi = decoder.GetDouble (row, 10);
+			qi = decoder.GetDouble (row, 11);
+			pp = decoder.GetDouble (row, 12);
+			qp = decoder.GetDouble (row, 13);
+			pe = decoder.GetDouble (row, 14);
+			qe = decoder.GetDouble (row, 15);
 		}		
 		dss_load_model = 8;
 //		System.out.println (DisplayString());
@@ -14,6 +14,10 @@ public class DistLoadBreakSwitch extends DistSwitch {
 		super (results);
 	}
 
+	public DistLoadBreakSwitch (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "LoadBreakSwitch";
 	}
@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 import java.util.HashMap;
 
 public class DistMeasurement extends DistComponent {
@@ -31,6 +32,9 @@ public class DistMeasurement extends DistComponent {
 		"    {bind(strafter(str(?phsraw),\"PhaseCode.\") as ?phases)}"+
 		" } ORDER BY ?class ?type ?name";
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?eqname", "?eqtype", "?type", "?class",
+																										"?id", "?eqid", "?trmid", "?bus", "?phases");
+
 	public String id;
 	public String eqid;
 	public String trmid;
@@ -43,37 +47,35 @@ public class DistMeasurement extends DistComponent {
 	public String eqtype;
 
 	public DistMeasurement (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			eqname = SafeName (soln.get("?eqname").toString());
-			eqtype = SafeName (soln.get("?eqtype").toString());
-			measType = SafeName (soln.get("?type").toString());
-			measClass = SafeName (soln.get("?class").toString());
-			id = soln.get("?id").toString();
-			eqid = soln.get("?eqid").toString();
-			trmid = soln.get("?trmid").toString();
-			bus = SafeName (soln.get("?bus").toString());
-			phases = OptionalString (soln, "?phases", "ABC");
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			name = SafeName (decoder.GetString (row, 0));
+			eqname = SafeName (decoder.GetString (row, 1));
+			eqtype = SafeName (decoder.GetString (row, 2));
+			measType = SafeName (decoder.GetString (row, 3));
+			measClass = SafeName (decoder.GetString (row, 4));
+			id = decoder.GetString (row, 5);
+			eqid = decoder.GetString (row, 6);
+			trmid = decoder.GetString (row, 7);
+			bus = SafeName (decoder.GetString (row, 8));
+			phases = decoder.OptionalString (row, 9, "ABC");
 		}		
 //		System.out.println (DisplayString());
 	}
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append (",\"ConductingEquipment_mRID\":\"" + eqid +"\"");
-		buf.append (",\"Terminal_mRID\":\"" + trmid +"\"");
-		buf.append (",\"measurementType\":\"" + measType + "\"");
-		buf.append (",\"phases\":\"" + phases + "\"");
-		buf.append (",\"MeasurementClass\":\"" + measClass + "\"");
-		buf.append (",\"ConductingEquipment_type\":\"" + eqtype + "\"");
-		buf.append (",\"ConductingEquipment_name\":\"" + eqname + "\"");
-		buf.append (",\"ConnectivityNode\":\"" + bus + "\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.Name ("ConductingEquipment_mRID").Value (eqid);
+		w.Name ("Terminal_mRID").Value (trmid);
+		w.Name ("measurementType").Value (measType);
+		w.Name ("phases").Value (phases);
+		w.Name ("MeasurementClass").Value (measClass);
+		w.Name ("ConductingEquipment_type").Value (eqtype);
+		w.Name ("ConductingEquipment_name").Value (eqname);
+		w.Name ("ConnectivityNode").Value (bus);
+		w.EndObject ();
 	}
 
 	public String DisplayString() {
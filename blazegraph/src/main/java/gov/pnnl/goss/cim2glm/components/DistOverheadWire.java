@@ -35,13 +35,11 @@ public class DistOverheadWire extends DistWire {
 		" OPTIONAL {?w c:WireInfo.insulationThickness ?insthick.}"+
 		"} ORDER BY ?name";
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	public DistOverheadWire (ResultSet results) {
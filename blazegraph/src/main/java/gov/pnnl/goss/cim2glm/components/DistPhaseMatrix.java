@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.commons.math3.complex.Complex;
 
 public class DistPhaseMatrix extends DistComponent {
@@ -42,13 +43,11 @@ public class DistPhaseMatrix extends DistComponent {
 	private boolean glmC;
 	private boolean glmTriplex;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	public void MarkGLMPermutationsUsed (String s) {
@@ -128,29 +127,31 @@ public class DistPhaseMatrix extends DistComponent {
 		return size;
 	}
 
+	static final RowDecoder decoder = new RowDecoder ("?name", "?id", "?cnt", "?seq", "?r", "?x", "?b");
+
 	public DistPhaseMatrix (ResultSet results) {
 		size = 0;
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			int seq = Integer.parseInt (soln.get("?seq").toString());
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			int seq = decoder.GetInt (row, 3);
 			if (size == 0) {
-				name = SafeName (soln.get("?name").toString());
-				id = soln.get("?id").toString();
-				cnt = Integer.parseInt (soln.get("?cnt").toString());
+				name = SafeName (decoder.GetString (row, 0));
+				id = decoder.GetString (row, 1);
+				cnt = decoder.GetInt (row, 2);
 				SetMatSize();
 				r = new double[size];
 				x = new double[size];
 				b = new double[size];
 			}
-			r[seq-1] = Double.parseDouble (soln.get("?r").toString());
-			x[seq-1] = Double.parseDouble (soln.get("?x").toString());
-			b[seq-1] = Double.parseDouble (soln.get("?b").toString());
+			r[seq-1] = decoder.GetDouble (row, 4);
+			x[seq-1] = decoder.GetDouble (row, 5);
+			b[seq-1] = decoder.GetDouble (row, 6);
 			while (seq < size) {
-				soln = results.next();
-				seq = Integer.parseInt (soln.get("?seq").toString());
-				r[seq-1] = Double.parseDouble (soln.get("?r").toString());
-				x[seq-1] = Double.parseDouble (soln.get("?x").toString());
-				b[seq-1] = Double.parseDouble (soln.get("?b").toString());
+				row = results.nextBinding();
+				seq = decoder.GetInt (row, 3);
+				r[seq-1] = decoder.GetDouble (row, 4);
+				x[seq-1] = decoder.GetDouble (row, 5);
+				b[seq-1] = decoder.GetDouble (row, 6);
 			}
 		}
 	}
@@ -216,9 +217,9 @@ public class DistPhaseMatrix extends DistComponent {
 		for (int i = 0; i < cnt; i++) {  // lower triangular, go across the rows for OpenDSS
 			for (int j = 0; j <= i; j++) {
 				int seq = GetMatSeq (cnt, i, j);
-				rBuf.append (String.format("%6g", r[seq] * gMperMILE) + " ");
-				xBuf.append (String.format("%6g", x[seq] * gMperMILE) + " ");
-				cBuf.append (String.format("%6g", b[seq] * gMperMILE * 1.0e9 / gOMEGA) + " ");
+				DistFormat.AppendG (rBuf, r[seq] * gMperMILE).append (' ');
+				DistFormat.AppendG (xBuf, x[seq] * gMperMILE).append (' ');
+				DistFormat.AppendG (cBuf, b[seq] * gMperMILE * 1.0e9 / gOMEGA).append (' ');
 			}
 			if ((i+1) < cnt) {
 				rBuf.append ("| ");
@@ -25,12 +25,10 @@ public class DistPowerXfmrCore extends DistComponent {
 	public double b;
 	public double g;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.EndObject ();
 	}
 
 	public DistPowerXfmrCore (ResultSet results) {
@@ -5,7 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
-import java.util.HashMap;
+import java.util.List;
 
 public class DistPowerXfmrMesh extends DistComponent {
 	public static final String szQUERY = 
@@ -23,15 +23,7 @@ public class DistPowerXfmrMesh extends DistComponent {
 		" ?to c:TransformerEnd.endNumber ?tnum."+
 		"} ORDER BY ?pname ?fnum ?tnum";
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?imp) as ?count) WHERE {"+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?p r:type c:PowerTransformer."+
-		" ?p c:Equipment.EquipmentContainer ?fdr."+
-		" ?p c:IdentifiedObject.name ?key."+
-		" ?from c:PowerTransformerEnd.PowerTransformer ?p."+
-		" ?imp c:TransformerMeshImpedance.FromTransformerEnd ?from."+
-		"} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?pname";
 
 	public String name;
 	public int[] fwdg;
@@ -48,27 +40,25 @@ public class DistPowerXfmrMesh extends DistComponent {
 		x = new double[size];
 	}
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.EndObject ();
 	}
 
-	public DistPowerXfmrMesh (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
+	public DistPowerXfmrMesh (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			QuerySolution soln = rows.get(0);
 			String pname = soln.get("?pname").toString();
 			name = SafeName (pname);
-			SetSize (map.get(pname));
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
 				fwdg[i] = Integer.parseInt (soln.get("?fnum").toString());
 				twdg[i] = Integer.parseInt (soln.get("?tnum").toString());
 				r[i] = Double.parseDouble (soln.get("?r").toString());
 				x[i] = Double.parseDouble (soln.get("?x").toString());
 				if ((i + 1) < size) {
-					soln = results.next();
+					soln = rows.get(i + 1);
 				}
 			}
 		}		
@@ -5,7 +5,9 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 import java.util.HashMap;
+import java.util.List;
 
 public class DistPowerXfmrWinding extends DistComponent {
 	public static final String szQUERY = 
@@ -35,19 +37,13 @@ public class DistPowerXfmrWinding extends DistComponent {
 		"}"+
 		" ORDER BY ?pname ?enum"		;
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?p) as ?count) WHERE {"+
-		" ?p r:type c:PowerTransformer."+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?p c:Equipment.EquipmentContainer ?fdr."+
-		" ?p c:IdentifiedObject.name ?key."+
-		" ?end c:PowerTransformerEnd.PowerTransformer ?p."+
-		"} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?pname";
 
 	public String name;
 	public String id;
 	public String vgrp;
 	public String[] bus;
+	public int[] ibus;
 	public String[] conn;
 	public double[] basev;
 	public double[] ratedU;
@@ -60,13 +56,11 @@ public class DistPowerXfmrWinding extends DistComponent {
 	public double[] xg;
 	public int size;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	private void SetSize (int val) {
@@ -84,28 +78,31 @@ public class DistPowerXfmrWinding extends DistComponent {
 		xg = new double[size];
 	}
 
-	public DistPowerXfmrWinding (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			String pname = soln.get("?pname").toString();
+	static final RowDecoder decoder = new RowDecoder ("?pname", "?id", "?vgrp", "?bus", "?basev", "?conn", "?ratedU",
+																										 "?ratedS", "?r", "?enum", "?ang", "?grounded", "?rground", "?xground");
+
+	public DistPowerXfmrWinding (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			Binding row = RowDecoder.RowOf (rows.get(0));
+			String pname = decoder.GetString (row, 0);
 			name = SafeName (pname);
-			id = soln.get("?id").toString();
-			vgrp = soln.get("?vgrp").toString();
-			SetSize (map.get(pname));
+			id = decoder.GetString (row, 1);
+			vgrp = decoder.GetString (row, 2);
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
-				bus[i] = SafeName (soln.get("?bus").toString());
-				basev[i] = Double.parseDouble (soln.get("?basev").toString());
-				conn[i] = soln.get("?conn").toString();
-				ratedU[i] = Double.parseDouble (soln.get("?ratedU").toString());
-				ratedS[i] = Double.parseDouble (soln.get("?ratedS").toString());
-				r[i] = Double.parseDouble (soln.get("?r").toString());
-				wdg[i] = Integer.parseInt (soln.get("?enum").toString());
-				ang[i] = Integer.parseInt (soln.get("?ang").toString());
-				grounded[i] = Boolean.parseBoolean (soln.get("?grounded").toString());
-				rg[i] = OptionalDouble (soln, "?rground", 0.0);
-				xg[i] = OptionalDouble (soln, "?xground", 0.0);
+				bus[i] = SafeName (decoder.GetString (row, 3));
+				basev[i] = decoder.GetDouble (row, 4);
+				conn[i] = decoder.GetString (row, 5);
+				ratedU[i] = decoder.GetDouble (row, 6);
+				ratedS[i] = decoder.GetDouble (row, 7);
+				r[i] = decoder.GetDouble (row, 8);
+				wdg[i] = decoder.GetInt (row, 9);
+				ang[i] = decoder.GetInt (row, 10);
+				grounded[i] = decoder.GetBoolean (row, 11);
+				rg[i] = decoder.OptionalDouble (row, 12, 0.0);
+				xg[i] = decoder.OptionalDouble (row, 13, 0.0);
 				if ((i + 1) < size) {
-					soln = results.next();
+					row = RowDecoder.RowOf (rows.get(i + 1));
 				}
 			}
 		}		
@@ -122,25 +119,23 @@ public class DistPowerXfmrWinding extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt1 = map.get("PowerTransformer:" + name + ":1");
 		DistCoordinates pt2 = map.get("PowerTransformer:" + name + ":2");
 		String bus1 = bus[0];
 		String bus2 = bus[1];
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name + "\"");
-		buf.append (",\"from\":\"" + bus1 + "\"");
-		buf.append (",\"to\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"ABC\"");
-		buf.append (",\"configuration\":\"" + vgrp + "\"");
-		buf.append (",\"x1\":" + Double.toString(pt1.x));
-		buf.append (",\"y1\":" + Double.toString(pt1.y));
-		buf.append (",\"x2\":" + Double.toString(pt2.x));
-		buf.append (",\"y2\":" + Double.toString(pt2.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("from").Value (bus1);
+		w.Name ("to").Value (bus2);
+		w.Name ("phases").Value ("ABC");
+		w.Name ("configuration").Value (vgrp);
+		w.Name ("x1").Value (pt1.x);
+		w.Name ("y1").Value (pt1.y);
+		w.Name ("x2").Value (pt2.x);
+		w.Name ("y2").Value (pt2.y);
+		w.EndObject ();
 	}
 
 	public String GetGLM (DistPowerXfmrMesh mesh, DistPowerXfmrCore core) {
@@ -14,6 +14,10 @@ public class DistRecloser extends DistSwitch {
 		super (results);
 	}
 
+	public DistRecloser (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String CIMClass() {
 		return "Recloser";
 	}
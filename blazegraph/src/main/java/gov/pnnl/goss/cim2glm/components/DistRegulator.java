@@ -6,9 +6,8 @@ package gov.pnnl.goss.cim2glm.components;
 
 import org.apache.jena.query.*;
 
-import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
-
 import java.util.HashMap;
+import java.util.List;
 
 public class DistRegulator extends DistComponent {
 	public static final String szQUERY =
@@ -67,6 +66,8 @@ public class DistRegulator extends DistComponent {
 		"}"+
 		" ORDER BY ?pname ?rname ?tname ?wnum";
 
+	public static final String szGroupKEY = "?pname";
+
 	public String pname;
 	public String bankphases;
 
@@ -110,115 +111,80 @@ public class DistRegulator extends DistComponent {
 
 	private String pxfid;
 
-	private void AddJSONDoubleArray (StringBuilder buf, String tag, double[] vals) {
-		buf.append (",\"" + tag + "\":[");
+	private void AddJSONDoubleArray (JsonWriter w, String tag, double[] vals) {
+		w.Name (tag).BeginArray ();
 		for (int i = 0; i < size; i++) {
-			buf.append (df4.format (vals[i]));
-			if (i+1 < size) {
-				buf.append (",");
-			} else {
-				buf.append ("]");
-			}
+			w.Value (vals[i], df4);
 		}
+		w.EndArray ();
 	}
 
-	private void AddJSONIntegerArray (StringBuilder buf, String tag, int[] vals) {
-		buf.append (",\"" + tag + "\":[");
+	private void AddJSONIntegerArray (JsonWriter w, String tag, int[] vals) {
+		w.Name (tag).BeginArray ();
 		for (int i = 0; i < size; i++) {
-			buf.append (Integer.toString (vals[i]));
-			if (i+1 < size) {
-				buf.append (",");
-			} else {
-				buf.append ("]");
-			}
+			w.Value (vals[i]);
 		}
+		w.EndArray ();
 	}
 
-	private void AddJSONBooleanArray (StringBuilder buf, String tag, boolean[] vals) {
-		buf.append (",\"" + tag + "\":[");
+	private void AddJSONBooleanArray (JsonWriter w, String tag, boolean[] vals) {
+		w.Name (tag).BeginArray ();
 		for (int i = 0; i < size; i++) {
-			if (vals[i]) {
-				buf.append("true");
-			} else {
-				buf.append("false");
-			}
-			if (i+1 < size) {
-				buf.append (",");
-			} else {
-				buf.append ("]");
-			}
+			w.Value (vals[i]);
 		}
+		w.EndArray ();
 	}
 
-	private void AddJSONStringArray (StringBuilder buf, String tag, String[] vals) {
-		buf.append (",\"" + tag + "\":[");
+	private void AddJSONStringArray (JsonWriter w, String tag, String[] vals) {
+		w.Name (tag).BeginArray ();
 		for (int i = 0; i < size; i++) {
-			if (vals[i] == null) {
-				buf.append ("null");
-			} else {
-				buf.append("\"" + vals[i] + "\"");
-			}
-			if (i+1 < size) {
-				buf.append (",");
-			} else {
-				buf.append ("]");
-			}
+			w.Value (vals[i]);
 		}
+		w.EndArray ();
 	}
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"bankName\":\"" + pname +"\"");
-		buf.append (",\"size\":\"" + Integer.toString (size) +"\"");
-		buf.append (",\"bankPhases\":\"" + bankphases +"\"");
-		AddJSONStringArray (buf, "tankName", tname);
-		AddJSONIntegerArray (buf, "endNumber", wnum);
-		AddJSONStringArray (buf, "endPhase", phs);
-		AddJSONStringArray (buf, "rtcName", rname);
-		AddJSONStringArray (buf, "mRID", id);
-		AddJSONStringArray (buf, "monitoredPhase", monphs);
-		AddJSONStringArray (buf, "TapChanger.tculControlMode", mode);
-		AddJSONIntegerArray (buf, "highStep", highStep);
-		AddJSONIntegerArray (buf, "lowStep", lowStep);
-		AddJSONIntegerArray (buf, "neutralStep", neutralStep);
-		AddJSONIntegerArray (buf, "normalStep", normalStep);
-		AddJSONBooleanArray (buf, "TapChanger.controlEnabled", enabled);
-		AddJSONBooleanArray (buf, "lineDropCompensation", ldc);
-		AddJSONBooleanArray (buf, "ltcFlag", ltc);
-		AddJSONBooleanArray (buf, "RegulatingControl.enabled", ctl_enabled);
-		AddJSONBooleanArray (buf, "RegulatingControl.discrete", discrete); 
-		AddJSONStringArray (buf, "RegulatingControl.mode", ctlmode);
-		AddJSONDoubleArray (buf, "step", step);
-		AddJSONDoubleArray (buf, "targetValue", vset);
-		AddJSONDoubleArray (buf, "targetDeadband", vbw);
-		AddJSONDoubleArray (buf, "limitVoltage", vlim);
-		AddJSONDoubleArray (buf, "stepVoltageIncrement", incr);
-		AddJSONDoubleArray (buf, "neutralU", neutralU);
-		AddJSONDoubleArray (buf, "initialDelay", initDelay); 
-		AddJSONDoubleArray (buf, "subsequentDelay", subDelay);
-		AddJSONDoubleArray (buf, "lineDropR", fwdR);
-		AddJSONDoubleArray (buf, "lineDropX", fwdX);
-		AddJSONDoubleArray (buf, "reverseLineDropR", revR);
-		AddJSONDoubleArray (buf, "reverseLineDropX", revX);
-		AddJSONDoubleArray (buf, "ctRating", ctRating);
-		AddJSONDoubleArray (buf, "ctRatio", ctRatio);
-		AddJSONDoubleArray (buf, "ptRatio", ptRatio);
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("bankName").Value (pname);
+		w.Name ("size").Value (Integer.toString (size));
+		w.Name ("bankPhases").Value (bankphases);
+		AddJSONStringArray (w, "tankName", tname);
+		AddJSONIntegerArray (w, "endNumber", wnum);
+		AddJSONStringArray (w, "endPhase", phs);
+		AddJSONStringArray (w, "rtcName", rname);
+		AddJSONStringArray (w, "mRID", id);
+		AddJSONStringArray (w, "monitoredPhase", monphs);
+		AddJSONStringArray (w, "TapChanger.tculControlMode", mode);
+		AddJSONIntegerArray (w, "highStep", highStep);
+		AddJSONIntegerArray (w, "lowStep", lowStep);
+		AddJSONIntegerArray (w, "neutralStep", neutralStep);
+		AddJSONIntegerArray (w, "normalStep", normalStep);
+		AddJSONBooleanArray (w, "TapChanger.controlEnabled", enabled);
+		AddJSONBooleanArray (w, "lineDropCompensation", ldc);
+		AddJSONBooleanArray (w, "ltcFlag", ltc);
+		AddJSONBooleanArray (w, "RegulatingControl.enabled", ctl_enabled);
+		AddJSONBooleanArray (w, "RegulatingControl.discrete", discrete); 
+		AddJSONStringArray (w, "RegulatingControl.mode", ctlmode);
+		AddJSONDoubleArray (w, "step", step);
+		AddJSONDoubleArray (w, "targetValue", vset);
+		AddJSONDoubleArray (w, "targetDeadband", vbw);
+		AddJSONDoubleArray (w, "limitVoltage", vlim);
+		AddJSONDoubleArray (w, "stepVoltageIncrement", incr);
+		AddJSONDoubleArray (w, "neutralU", neutralU);
+		AddJSONDoubleArray (w, "initialDelay", initDelay); 
+		AddJSONDoubleArray (w, "subsequentDelay", subDelay);
+		AddJSONDoubleArray (w, "lineDropR", fwdR);
+		AddJSONDoubleArray (w, "lineDropX", fwdX);
+		AddJSONDoubleArray (w, "reverseLineDropR", revR);
+		AddJSONDoubleArray (w, "reverseLineDropX", revX);
+		AddJSONDoubleArray (w, "ctRating", ctRating);
+		AddJSONDoubleArray (w, "ctRatio", ctRatio);
+		AddJSONDoubleArray (w, "ptRatio", ptRatio);
+		w.EndObject ();
 	}
 
-	private void SetSize (QueryHandler queryHandler) {
-		size = 1;
-		String szCount = "SELECT (count (?tank) as ?count) WHERE {"+
-			" ?tank c:TransformerTank.PowerTransformer ?pxf."+
-			" ?pxf c:IdentifiedObject.mRID \"" + pxfid + "\"."+
-			"}";
-		ResultSet results = queryHandler.query (szCount);
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			size = soln.getLiteral("?count").getInt();
-		}
+	private void SetSize (int val) {
+		size = val;
 		phs = new String[size];
 		rname = new String[size];
 		tname = new String[size];
@@ -253,12 +219,12 @@ public class DistRegulator extends DistComponent {
 		ptRatio = new double[size];
 	}
 
-	public DistRegulator (ResultSet results, QueryHandler queryHandler) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
+	public DistRegulator (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			QuerySolution soln = rows.get(0);
 			pname = SafeName (soln.get("?pname").toString());
 			pxfid = soln.get("?pxfid").toString();
-			SetSize (queryHandler);
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
 				id[i] = soln.get("?id").toString();
 				rname[i] = SafeName (soln.get("?rname").toString());
@@ -293,7 +259,7 @@ public class DistRegulator extends DistComponent {
 				ctRatio[i] = Double.parseDouble (soln.get("?ctRatio").toString());
 				ptRatio[i] = Double.parseDouble (soln.get("?ptRatio").toString());
 				if ((i + 1) < size) {
-					soln = results.next();
+					soln = rows.get(i + 1);
 				}
 			}
 			StringBuilder buf = new StringBuilder ();
@@ -343,25 +309,23 @@ public class DistRegulator extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt1 = map.get("PowerTransformer:" + pname + ":1");
 		DistCoordinates pt2 = map.get("PowerTransformer:" + pname + ":2");
 		DistXfmrTank xfmr = mapTank.get(tname[0]);
 		String bus1 = xfmr.bus[0];
 		String bus2 = xfmr.bus[1];
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname + "\"");
-		buf.append (",\"from\":\"" + bus1 + "\"");
-		buf.append (",\"to\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"" + bankphases +"\"");
-		buf.append (",\"x1\":" + Double.toString(pt1.x));
-		buf.append (",\"y1\":" + Double.toString(pt1.y));
-		buf.append (",\"x2\":" + Double.toString(pt2.x));
-		buf.append (",\"y2\":" + Double.toString(pt2.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.Name ("from").Value (bus1);
+		w.Name ("to").Value (bus2);
+		w.Name ("phases").Value (bankphases);
+		w.Name ("x1").Value (pt1.x);
+		w.Name ("y1").Value (pt1.y);
+		w.Name ("x2").Value (pt2.x);
+		w.Name ("y2").Value (pt2.y);
+		w.EndObject ();
 	}
 
 	public String GetGLM (DistXfmrTank tank) {
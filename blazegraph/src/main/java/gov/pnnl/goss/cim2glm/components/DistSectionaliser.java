@@ -14,6 +14,10 @@ public class DistSectionaliser extends DistSwitch {
 		super (results);
 	}
 
+	public DistSectionaliser (QuerySolution soln) {
+		super (soln);
+	}
+
 	public String GetGLM () {
 		StringBuilder buf = new StringBuilder ("object sectionalizer {\n");
 
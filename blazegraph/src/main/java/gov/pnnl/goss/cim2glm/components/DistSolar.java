@@ -35,6 +35,7 @@ public class DistSolar extends DistComponent {
 	public String id;
 	public String name;
 	public String bus;
+	public int ibus;
 	public String phases;
 	public double p;
 	public double q;
@@ -43,20 +44,18 @@ public class DistSolar extends DistComponent {
 	public double maxIFault;
 	public boolean bDelta;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append (",\"CN1\":\"" + bus + "\"");
-		buf.append (",\"phases\":\"" + phases + "\"");
-		buf.append (",\"ratedS\":" + df1.format(ratedS));
-		buf.append (",\"ratedU\":" + df1.format(ratedU));
-		buf.append (",\"p\":" + df3.format(p));
-		buf.append (",\"q\":" + df3.format(q));
-		buf.append (",\"maxIFault\":" + df3.format(maxIFault));
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.Name ("CN1").Value (bus);
+		w.Name ("phases").Value (phases);
+		w.Name ("ratedS").Value (ratedS, df1);
+		w.Name ("ratedU").Value (ratedU, df1);
+		w.Name ("p").Value (p, df3);
+		w.Name ("q").Value (q, df3);
+		w.Name ("maxIFault").Value (maxIFault, df3);
+		w.EndObject ();
 	}
 
 	public DistSolar (ResultSet results) {
@@ -85,20 +84,17 @@ public class DistSolar extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt = map.get("PhotovoltaicUnit:" + name + ":1");
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"parent\":\"" + bus +"\"");
-		buf.append (",\"phases\":\"" + phases +"\"");
-		buf.append (",\"kva\":" + df1.format(0.001 * ratedS));
-		buf.append (",\"x1\":" + Double.toString(pt.x));
-		buf.append (",\"y1\":" + Double.toString(pt.y));
-		buf.append ("}");
-
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("parent").Value (bus);
+		w.Name ("phases").Value (phases);
+		w.Name ("kva").Value (0.001 * ratedS, df1);
+		w.Name ("x1").Value (pt.x);
+		w.Name ("y1").Value (pt.y);
+		w.EndObject ();
 	}
 
 	public String GetGLM() {
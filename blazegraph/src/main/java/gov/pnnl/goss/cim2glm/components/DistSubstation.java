@@ -32,6 +32,7 @@ public class DistSubstation extends DistComponent {
 	public String id;
 	public String name;
 	public String bus;
+	public int ibus;
 	public double basev;
 	public double nomv;
 	public double vmag;
@@ -41,13 +42,11 @@ public class DistSubstation extends DistComponent {
 	public double r0;
 	public double x0;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	public DistSubstation (ResultSet results) {
@@ -79,19 +78,17 @@ public class DistSubstation extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt = map.get("EnergySource:" + name + ":1");
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"bus\":\"" + bus +"\"");
-		buf.append (",\"phases\":\"ABC\"");
-		buf.append (",\"nominal_voltage\":" + df1.format(nomv / Math.sqrt(3.0)));
-		buf.append (",\"x1\":" + Double.toString(pt.x));
-		buf.append (",\"y1\":" + Double.toString(pt.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("bus").Value (bus);
+		w.Name ("phases").Value ("ABC");
+		w.Name ("nominal_voltage").Value (nomv / Math.sqrt(3.0), df1);
+		w.Name ("x1").Value (pt.x);
+		w.Name ("y1").Value (pt.y);
+		w.EndObject ();
 	}
 
 	public String GetDSS() {
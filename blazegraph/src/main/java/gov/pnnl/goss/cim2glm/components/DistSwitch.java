@@ -5,6 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 import java.util.HashMap;
 
 public abstract class DistSwitch extends DistComponent {
@@ -12,7 +13,8 @@ public abstract class DistSwitch extends DistComponent {
 	protected static final String szSELECT = 
 		"SELECT ?name ?id ?bus1 ?bus2 ?basev ?rated ?breaking (group_concat(distinct ?phs;separator=\"\\n\") as ?phases) ?open ?fdrid WHERE {";
 
-	protected static final String szWHERE = 
+	/** triples shared by the query for each class and the query for all classes */
+	private static final String szPATTERN =
 		" ?s c:Equipment.EquipmentContainer ?fdr."+
 		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
 		" ?s c:IdentifiedObject.name ?name."+
@@ -32,15 +34,30 @@ public abstract class DistSwitch extends DistComponent {
 		" bind(strafter(str(?s),\"#\") as ?id)."+
 		" OPTIONAL {?swp c:SwitchPhase.Switch ?s."+
 		" ?swp c:SwitchPhase.phaseSide1 ?phsraw."+
-		"   bind(strafter(str(?phsraw),\"SinglePhaseKind.\") as ?phs) }"+
+		"   bind(strafter(str(?phsraw),\"SinglePhaseKind.\") as ?phs) }";
+
+	protected static final String szWHERE = szPATTERN +
 		"}"+
 		" GROUP BY ?name ?basev ?bus1 ?bus2 ?rated ?breaking ?open ?id ?fdrid"+
 		" ORDER BY ?name";
 
+	/** switches of every class in one query, with the CIM class name in ?cimtype for Create */
+	public static final String szQUERY =
+		"SELECT ?cimtype ?name ?id ?bus1 ?bus2 ?basev ?rated ?breaking (group_concat(distinct ?phs;separator=\"\\n\") as ?phases) ?open ?fdrid WHERE {"+
+		" VALUES ?cimraw {c:LoadBreakSwitch c:Fuse c:Breaker c:Recloser c:Sectionaliser c:Disconnector c:Jumper c:GroundDisconnector}"+
+		" ?s r:type ?cimraw."+
+		"  bind(strafter(str(?cimraw),\"#\") as ?cimtype)"+
+		szPATTERN +
+		"}"+
+		" GROUP BY ?cimtype ?name ?basev ?bus1 ?bus2 ?rated ?breaking ?open ?id ?fdrid"+
+		" ORDER BY ?name";
+
 	public String id;
 	public String name;
 	public String bus1;
 	public String bus2;
+	public int ibus1;
+	public int ibus2;
 	public String phases;
 	public boolean open;
 	public double basev;
@@ -51,49 +68,66 @@ public abstract class DistSwitch extends DistComponent {
 
 	public abstract String CIMClass();
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("mRID").Value (id);
+		w.Name ("CN1").Value (bus1);
+		w.Name ("CN2").Value (bus2);
+		w.Name ("phases").Value (phases);
+		w.Name ("ratedCurrent").Value (rated, df1);
+		w.Name ("breakingCapacity").Value (breaking, df1);
+		w.Name ("normalOpen").Value (open);
+		w.EndObject ();
+	}
 
-		buf.append ("{\"name\":\"" + name +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append (",\"CN1\":\"" + bus1 + "\"");
-		buf.append (",\"CN2\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"" + phases + "\"");
-		buf.append (",\"ratedCurrent\":" + df1.format(rated));
-		buf.append (",\"breakingCapacity\":" + df1.format(breaking));
-		if (open) {
-			buf.append (",\"normalOpen\":true");
+	static final RowDecoder decoder = new RowDecoder ("?name", "?id", "?basev", "?rated", "?breaking", "?bus1", "?bus2",
+																									 "?phases", "?open");
+
+	public DistSwitch (ResultSet results) {
+		Binding row = RowDecoder.NextRow (results);
+		if (row != null) {
+			Decode (row);
+		}		
+	}
+
+	public DistSwitch (QuerySolution soln) {
+		Decode (RowDecoder.RowOf (soln));
+	}
+
+	private void Decode (Binding row) {
+		name = SafeName (decoder.GetString (row, 0));
+		id = decoder.GetString (row, 1);
+		basev = decoder.GetDouble (row, 2);
+		rated = decoder.GetDouble (row, 3);
+		breaking = decoder.OptionalDouble (row, 4, 0.0);
+		bus1 = SafeName (decoder.GetString (row, 5)); 
+		bus2 = SafeName (decoder.GetString (row, 6)); 
+		phases = decoder.OptionalString (row, 7, "ABC");
+		open = decoder.GetBoolean (row, 8);
+		String glm_phs = GLMPhaseString (phases);
+		if (glm_phs.length() < 1) glm_phs = "ABC";
+		if (glm_phs.equals("AB") && basev <= 208.1) { // TODO - artifact of non-triplex secondaries in CIM and OpenDSS
+			glm_phases = "S"; // need to figure out AS, BS, or CS from connected triplex
 		} else {
-			buf.append (",\"normalOpen\":false");
+			glm_phases = glm_phs;
 		}
-		buf.append("}");
-		return buf.toString();
 	}
 
-	public DistSwitch (ResultSet results) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			name = SafeName (soln.get("?name").toString());
-			id = soln.get("?id").toString();
-			basev = Double.parseDouble (soln.get("?basev").toString());
-			rated = Double.parseDouble (soln.get("?rated").toString());
-			breaking = OptionalDouble (soln, "?breaking", 0.0);
-			bus1 = SafeName (soln.get("?bus1").toString()); 
-			bus2 = SafeName (soln.get("?bus2").toString()); 
-			phases = OptionalString (soln, "?phases", "ABC");
-			open = Boolean.parseBoolean (soln.get("?open").toString());
-			StringBuilder glm_phs = new StringBuilder ();
-			if (phases.contains("A")) glm_phs.append("A");
-			if (phases.contains("B")) glm_phs.append("B");
-			if (phases.contains("C")) glm_phs.append("C");
-			if (phases.contains("s")) glm_phs.append("S");
-			if (glm_phs.length() < 1) glm_phs.append("ABC");
-			if (glm_phs.toString().equals("AB") && basev <= 208.1) { // TODO - artifact of non-triplex secondaries in CIM and OpenDSS
-				glm_phases = "S"; // need to figure out AS, BS, or CS from connected triplex
-			} else {
-				glm_phases = glm_phs.toString();
-			}
-		}		
+	/** @param soln one row of szQUERY; ?cimtype picks the subclass */
+	public static DistSwitch Create (QuerySolution soln) {
+		String cimtype = soln.get("?cimtype").toString();
+		switch (cimtype) {
+			case "LoadBreakSwitch": return new DistLoadBreakSwitch (soln);
+			case "Fuse": return new DistFuse (soln);
+			case "Breaker": return new DistBreaker (soln);
+			case "Recloser": return new DistRecloser (soln);
+			case "Sectionaliser": return new DistSectionaliser (soln);
+			case "Disconnector": return new DistDisconnector (soln);
+			case "Jumper": return new DistJumper (soln);
+			case "GroundDisconnector": return new DistGroundDisconnector (soln);
+		}
+		throw new RuntimeException ("unknown switch class " + cimtype);
 	}
 
 	public String DisplayString() {
@@ -123,23 +157,21 @@ public abstract class DistSwitch extends DistComponent {
 		return name;
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt1 = map.get(CIMClass() + ":" + name + ":1");
 		DistCoordinates pt2 = map.get(CIMClass() + ":" + name + ":2");
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + name + "\"");
-		buf.append (",\"from\":\"" + bus1 + "\"");
-		buf.append (",\"to\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"" + glm_phases +"\"");
-		buf.append (",\"open\":\"" + Boolean.toString(open) +"\"");
-		buf.append (",\"x1\":" + Double.toString(pt1.x));
-		buf.append (",\"y1\":" + Double.toString(pt1.y));
-		buf.append (",\"x2\":" + Double.toString(pt2.x));
-		buf.append (",\"y2\":" + Double.toString(pt2.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (name);
+		w.Name ("from").Value (bus1);
+		w.Name ("to").Value (bus2);
+		w.Name ("phases").Value (glm_phases);
+		w.Name ("open").Value (Boolean.toString(open));
+		w.Name ("x1").Value (pt1.x);
+		w.Name ("y1").Value (pt1.y);
+		w.Name ("x2").Value (pt2.x);
+		w.Name ("y2").Value (pt2.y);
+		w.EndObject ();
 	}
 
 	public String GetDSS () {
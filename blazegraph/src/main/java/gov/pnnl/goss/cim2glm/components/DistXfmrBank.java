@@ -5,7 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
-import java.util.HashMap;
+import java.util.List;
 
 public class DistXfmrBank extends DistComponent {
 	public static final String szQUERY =
@@ -19,13 +19,7 @@ public class DistXfmrBank extends DistComponent {
 		" ?t c:IdentifiedObject.name ?tname"+
 		"} ORDER BY ?pname ?tname";
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?tank) as ?count) WHERE {"+
-		" ?pxf c:Equipment.EquipmentContainer ?fdr."+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?tank c:TransformerTank.PowerTransformer ?pxf."+
-		" ?pxf c:IdentifiedObject.name ?key"+
-		"} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?pname";
 
 	public String pname;
 	public String vgrp;
@@ -33,12 +27,10 @@ public class DistXfmrBank extends DistComponent {
 
 	public int size;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.EndObject ();
 	}
 
 	private void SetSize (int val) {
@@ -46,16 +38,16 @@ public class DistXfmrBank extends DistComponent {
 		tname = new String[size];
 	}
 
-	public DistXfmrBank (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
+	public DistXfmrBank (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			QuerySolution soln = rows.get(0);
 			pname = SafeName (soln.get("?pname").toString());
 			vgrp = soln.get("?vgrp").toString();
-			SetSize (map.get(pname));
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
 				tname[i] = SafeName (soln.get("?tname").toString());
 				if ((i + 1) < size) {
-					soln = results.next();
+					soln = rows.get(i + 1);
 				}
 			}
 		}		
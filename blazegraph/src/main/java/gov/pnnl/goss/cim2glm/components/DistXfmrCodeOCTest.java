@@ -29,12 +29,10 @@ public class DistXfmrCodeOCTest extends DistComponent {
 	public double nll;
 	public double iexc;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.EndObject ();
 	}
 
 	public DistXfmrCodeOCTest (ResultSet results) {
@@ -5,7 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
-import java.util.HashMap;
+import java.util.List;
 import org.apache.commons.math3.complex.Complex;
 
 public class DistXfmrCodeRating extends DistComponent {
@@ -31,21 +31,7 @@ public class DistXfmrCodeRating extends DistComponent {
 		"       		bind(strafter(str(?connraw),\"WindingConnection.\") as ?conn)"+
 		"} ORDER BY ?pname ?tname ?enum";
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?enum) as ?count) WHERE {"+
-		" SELECT DISTINCT ?key ?enum WHERE {"+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?xft c:TransformerTank.PowerTransformer ?eq."+
-		" ?eq c:Equipment.EquipmentContainer ?fdr."+
-		" ?asset c:Asset.PowerSystemResources ?xft."+
-		" ?asset c:Asset.AssetInfo ?t."+
-		" ?p r:type c:PowerTransformerInfo."+
-		" ?p c:IdentifiedObject.name ?pname."+
-		" ?t c:TransformerTankInfo.PowerTransformerInfo ?p."+
-		" ?t c:IdentifiedObject.name ?key."+
-		" ?e c:TransformerEndInfo.TransformerTankInfo ?t."+
-		" ?e c:TransformerEndInfo.endNumber ?enum."+
-		"}} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?tname";
 
 	public String pname;
 	public String tname;
@@ -60,13 +46,11 @@ public class DistXfmrCodeRating extends DistComponent {
 
 	public boolean glmUsed;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	private void SetSize (int val) {
@@ -79,15 +63,15 @@ public class DistXfmrCodeRating extends DistComponent {
 		r = new double[size];
 	}
 
-	public DistXfmrCodeRating (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
+	public DistXfmrCodeRating (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			QuerySolution soln = rows.get(0);
 			String p = soln.get("?pname").toString();
 			String t = soln.get("?tname").toString();
 			pname = SafeName (p);
 			tname = SafeName (t);
 			id = soln.get("?id").toString();
-			SetSize (map.get(tname));
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
 				wdg[i] = Integer.parseInt (soln.get("?enum").toString());
 				conn[i] = soln.get("?conn").toString();
@@ -96,7 +80,7 @@ public class DistXfmrCodeRating extends DistComponent {
 				ratedU[i] = Double.parseDouble (soln.get("?ratedU").toString());
 				r[i] = Double.parseDouble (soln.get("?res").toString());
 				if ((i + 1) < size) {
-					soln = results.next();
+					soln = rows.get(i + 1);
 				}
 			}
 		}		
@@ -5,7 +5,7 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
-import java.util.HashMap;
+import java.util.List;
 
 public class DistXfmrCodeSCTest extends DistComponent {
 	public static final String szQUERY = 
@@ -28,21 +28,7 @@ public class DistXfmrCodeSCTest extends DistComponent {
 		" ?grnd c:TransformerEndInfo.endNumber ?gnum."+
 		"} ORDER BY ?pname ?tname ?enum ?gnum";
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?sct) as ?count) WHERE {"+
-		" SELECT DISTINCT ?key ?sct WHERE {"+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?xft c:TransformerTank.PowerTransformer ?eq."+
-		" ?eq c:Equipment.EquipmentContainer ?fdr."+
-		" ?asset c:Asset.PowerSystemResources ?xft."+
-		" ?asset c:Asset.AssetInfo ?t."+
-		" ?p r:type c:PowerTransformerInfo."+
-		" ?p c:IdentifiedObject.name ?pname."+
-		" ?t c:TransformerTankInfo.PowerTransformerInfo ?p."+
-		" ?t c:IdentifiedObject.name ?key."+
-		" ?e c:TransformerEndInfo.TransformerTankInfo ?t."+
-		" ?sct c:ShortCircuitTest.EnergisedEnd ?e."+
-		"}} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?tname";
 
 	public String pname;
 	public String tname;
@@ -53,12 +39,10 @@ public class DistXfmrCodeSCTest extends DistComponent {
 
 	public int size;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.EndObject ();
 	}
 
 	private void SetSize (int val) {
@@ -69,21 +53,21 @@ public class DistXfmrCodeSCTest extends DistComponent {
 		ll = new double[size];
 	}
 
-	public DistXfmrCodeSCTest (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
+	public DistXfmrCodeSCTest (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			QuerySolution soln = rows.get(0);
 			String p = soln.get("?pname").toString();
 			String t = soln.get("?tname").toString();
 			pname = SafeName (p);
 			tname = SafeName (t);
-			SetSize (map.get(tname));
+			SetSize (rows.size());
 			for (int i = 0; i < size; i++) {
 				fwdg[i] = Integer.parseInt (soln.get("?enum").toString());
 				twdg[i] = Integer.parseInt (soln.get("?gnum").toString());
 				z[i] = Double.parseDouble (soln.get("?z").toString());
 				ll[i] = Double.parseDouble (soln.get("?ll").toString());
 				if ((i + 1) < size) {
-					soln = results.next();
+					soln = rows.get(i + 1);
 				}
 			}
 		}		
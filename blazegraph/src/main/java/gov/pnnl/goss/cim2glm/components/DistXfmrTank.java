@@ -5,7 +5,9 @@ package gov.pnnl.goss.cim2glm.components;
 //	----------------------------------------------------------
 
 import org.apache.jena.query.*;
+import org.apache.jena.sparql.engine.binding.Binding;
 import java.util.HashMap;
+import java.util.List;
 
 public class DistXfmrTank extends DistComponent {
 	public static final String szQUERY =
@@ -36,16 +38,7 @@ public class DistXfmrTank extends DistComponent {
 		"}"+
 		" ORDER BY ?pname ?tname ?enum";
 
-	public static final String szCountQUERY =
-		"SELECT ?key (count(?end) as ?count) WHERE {"+
-		" ?p c:Equipment.EquipmentContainer ?fdr."+
-		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
-		" ?p r:type c:PowerTransformer."+
-		" ?p c:IdentifiedObject.name ?pname."+
-		" ?t c:TransformerTank.PowerTransformer ?p."+
-		" ?t c:IdentifiedObject.name ?key."+
-		" ?end c:TransformerTankEnd.TransformerTank ?t"+
-		"} GROUP BY ?key ORDER BY ?key";
+	public static final String szGroupKEY = "?tname";
 
 	public String id;
 	public String pname;
@@ -53,6 +46,7 @@ public class DistXfmrTank extends DistComponent {
 	public String tname;
 	public String tankinfo;
 	public String[] bus;
+	public int[] ibus;
 	public String[] phs;
 	public double[] basev;
 	public double[] rg;
@@ -64,13 +58,11 @@ public class DistXfmrTank extends DistComponent {
 
 	public int size;
 
-	public String GetJSONEntry () {
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname +"\"");
-		buf.append (",\"mRID\":\"" + id +"\"");
-		buf.append ("}");
-		return buf.toString();
+	public void WriteJSONEntry (JsonWriter w) {
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.Name ("mRID").Value (id);
+		w.EndObject ();
 	}
 
 	private void SetSize (int val) {
@@ -84,26 +76,29 @@ public class DistXfmrTank extends DistComponent {
 		xg = new double[size];
 	}
 
-	public DistXfmrTank (ResultSet results, HashMap<String,Integer> map) {
-		if (results.hasNext()) {
-			QuerySolution soln = results.next();
-			pname = SafeName (soln.get("?pname").toString());
-			id = soln.get("?id").toString();
-			vgrp = soln.get("?vgrp").toString();
-			tname = SafeName (soln.get("?tname").toString());
-			tankinfo = SafeName (soln.get("?xfmrcode").toString());
-			SetSize (map.get(tname));
+	static final RowDecoder decoder = new RowDecoder ("?pname", "?id", "?vgrp", "?tname", "?xfmrcode", "?bus", "?basev",
+																										 "?phs", "?rground", "?xground", "?enum", "?grounded");
+
+	public DistXfmrTank (List<QuerySolution> rows) {
+		if (!rows.isEmpty()) {
+			Binding row = RowDecoder.RowOf (rows.get(0));
+			pname = SafeName (decoder.GetString (row, 0));
+			id = decoder.GetString (row, 1);
+			vgrp = decoder.GetString (row, 2);
+			tname = SafeName (decoder.GetString (row, 3));
+			tankinfo = SafeName (decoder.GetString (row, 4));
+			SetSize (rows.size());
 			glmUsed = true;
 			for (int i = 0; i < size; i++) {
-				bus[i] = SafeName (soln.get("?bus").toString());
-				basev[i] = Double.parseDouble (soln.get("?basev").toString());
-				phs[i] = soln.get("?phs").toString();
-				rg[i] = OptionalDouble (soln, "?rground", 0.0);
-				xg[i] = OptionalDouble (soln, "?xground", 0.0);
-				wdg[i] = Integer.parseInt (soln.get("?enum").toString());
-				grounded[i] = Boolean.parseBoolean (soln.get("?grounded").toString());
+				bus[i] = SafeName (decoder.GetString (row, 5));
+				basev[i] = decoder.GetDouble (row, 6);
+				phs[i] = decoder.GetString (row, 7);
+				rg[i] = decoder.OptionalDouble (row, 8, 0.0);
+				xg[i] = decoder.OptionalDouble (row, 9, 0.0);
+				wdg[i] = decoder.GetInt (row, 10);
+				grounded[i] = decoder.GetBoolean (row, 11);
 				if ((i + 1) < size) {
-					soln = results.next();
+					row = RowDecoder.RowOf (rows.get(i + 1));
 				}
 			}
 		}		
@@ -119,7 +114,7 @@ public class DistXfmrTank extends DistComponent {
 		return buf.toString();
 	}
 
-	public String GetJSONSymbols(HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
+	public void WriteJSONSymbols (JsonWriter w, HashMap<String,DistCoordinates> map, HashMap<String,DistXfmrTank> mapTank) {
 		DistCoordinates pt1 = map.get("PowerTransformer:" + pname + ":1");
 		DistCoordinates pt2 = map.get("PowerTransformer:" + pname + ":2");
 		String bus1 = bus[0];
@@ -129,19 +124,17 @@ public class DistXfmrTank extends DistComponent {
 			lbl_phs.append(phs[i]);
 		}
 
-		StringBuilder buf = new StringBuilder ();
-
-		buf.append ("{\"name\":\"" + pname + "\"");
-		buf.append (",\"from\":\"" + bus1 + "\"");
-		buf.append (",\"to\":\"" + bus2 + "\"");
-		buf.append (",\"phases\":\"" + phs[0] +"\"");
-		buf.append (",\"configuration\":\"" + tankinfo + ":" + vgrp + "\"");
-		buf.append (",\"x1\":" + Double.toString(pt1.x));
-		buf.append (",\"y1\":" + Double.toString(pt1.y));
-		buf.append (",\"x2\":" + Double.toString(pt2.x));
-		buf.append (",\"y2\":" + Double.toString(pt2.y));
-		buf.append ("}");
-		return buf.toString();
+		w.BeginObject ();
+		w.Name ("name").Value (pname);
+		w.Name ("from").Value (bus1);
+		w.Name ("to").Value (bus2);
+		w.Name ("phases").Value (phs[0]);
+		w.Name ("configuration").Value (tankinfo + ":" + vgrp);
+		w.Name ("x1").Value (pt1.x);
+		w.Name ("y1").Value (pt1.y);
+		w.Name ("x2").Value (pt2.x);
+		w.Name ("y2").Value (pt2.y);
+		w.EndObject ();
 	}
 
 	public String GetGLM () {
@@ -0,0 +1,72 @@
+package gov.pnnl.goss.cim2glm.components;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.RDFNode;
+
+/**
+ Splits a query result into groups of consecutive rows with the same value of one variable.
+ <p>The multi-row classes, e.g. DistXfmrTank with one row per winding, sort szQUERY on their
+ szGroupKEY, so each group holds all of the rows for one object and its size is the array size.
+ The rows are read as they stream in, one group ahead of the constructor.</p>
+*/
+public class GroupedResults implements Iterator<List<QuerySolution>> {
+	private final ResultSet results;
+	private final String key;
+	/** first row of the next group, already read from the results */
+	private QuerySolution ahead = null;
+
+	/**
+	 *  @param results sorted on key, e.g. by ORDER BY
+	 *  @param key the variable that changes between groups, e.g. ?pname
+	 */
+	public GroupedResults (ResultSet results, String key) {
+		this.results = results;
+		this.key = key;
+	}
+
+	private String KeyOf (QuerySolution soln) {
+		RDFNode node = soln.get (key);
+		if (node == null) {
+			throw new RuntimeException ("query result row has no " + key + " to group on");
+		}
+		return node.toString();
+	}
+
+	@Override
+	public boolean hasNext () {
+		return ahead != null || results.hasNext();
+	}
+
+	@Override
+	public List<QuerySolution> next () {
+		if (ahead == null) {
+			if (!results.hasNext()) {
+				throw new NoSuchElementException ();
+			}
+			ahead = results.next();
+		}
+		List<QuerySolution> rows = new ArrayList<>();
+		String val = KeyOf (ahead);
+		rows.add (ahead);
+		ahead = null;
+		while (results.hasNext()) {
+			QuerySolution soln = results.next();
+			if (!KeyOf (soln).equals (val)) {
+				ahead = soln;
+				break;
+			}
+			rows.add (soln);
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,250 @@
+package gov.pnnl.goss.cim2glm.components;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ Streaming writer for the JSON dictionary, symbol and index files.
+ <p>Commas, quotes and escapes are written here, so the components only name their fields and
+ values, and the output is valid JSON whatever the names contain. Numbers that are not finite
+ are written as null. Text collects in one buffer that goes to the underlying Writer every
+ FLUSH_SIZE characters, so a large dictionary is written without building a String per entry.</p>
+ <p>NewLine starts the next value or name on a new line, which keeps the files readable and diffable.</p>
+*/
+public class JsonWriter {
+	static final int FLUSH_SIZE = 16384;
+
+	private final Writer out;
+	private final StringBuilder buf = new StringBuilder (FLUSH_SIZE + 1024);
+	/** '{' or '[' for each open object or array */
+	private char[] stack = new char[16];
+	/** whether anything was written yet at each level */
+	private boolean[] started = new boolean[16];
+	private int depth = 0;
+	private boolean rootStarted = false;
+	private boolean afterName = false;
+	private boolean newLine = false;
+
+	public JsonWriter (Writer out) {
+		this.out = out;
+	}
+
+	/** writes the separator before a value or name at the current level */
+	private void Separate () {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (depth > 0) {
+			if (stack[depth - 1] == '{') {
+				throw new RuntimeException ("JSON object member needs a name");
+			}
+			if (started[depth - 1]) {
+				buf.append (',');
+			}
+			started[depth - 1] = true;
+		} else if (rootStarted) {
+			throw new RuntimeException ("JSON text has more than one top-level value");
+		} else {
+			rootStarted = true;
+		}
+		LineBreak ();
+	}
+
+	private void LineBreak () {
+		if (newLine) {
+			buf.append ('\n');
+			newLine = false;
+		}
+	}
+
+	private JsonWriter Open (char c) {
+		Separate ();
+		if (depth == stack.length) {
+			stack = Arrays.copyOf (stack, 2 * depth);
+			started = Arrays.copyOf (started, 2 * depth);
+		}
+		stack[depth] = c;
+		started[depth] = false;
+		++depth;
+		buf.append (c);
+		return this;
+	}
+
+	private JsonWriter Close (char open, char close) {
+		if (depth < 1 || stack[depth - 1] != open || afterName) {
+			throw new RuntimeException ("unbalanced JSON " + close);
+		}
+		--depth;
+		LineBreak ();
+		buf.append (close);
+		return Written ();
+	}
+
+	/** hands the buffer to the Writer once it is large enough */
+	private JsonWriter Written () {
+		if (buf.length() >= FLUSH_SIZE) {
+			Drain ();
+		}
+		return this;
+	}
+
+	private void Drain () {
+		try {
+			out.append (buf);
+		} catch (IOException e) {
+			throw new RuntimeException ("can not write JSON: " + e.getMessage(), e);
+		}
+		buf.setLength (0);
+	}
+
+	public JsonWriter BeginObject () {
+		return Open ('{');
+	}
+
+	public JsonWriter EndObject () {
+		return Close ('{', '}');
+	}
+
+	public JsonWriter BeginArray () {
+		return Open ('[');
+	}
+
+	public JsonWriter EndArray () {
+		return Close ('[', ']');
+	}
+
+	/** the next name, value or closing bracket starts on a new line */
+	public JsonWriter NewLine () {
+		newLine = true;
+		return this;
+	}
+
+	public JsonWriter Name (String name) {
+		if (depth < 1 || stack[depth - 1] != '{' || afterName) {
+			throw new RuntimeException ("JSON name " + name + " is not inside an object");
+		}
+		if (started[depth - 1]) {
+			buf.append (',');
+		}
+		started[depth - 1] = true;
+		LineBreak ();
+		Quote (name);
+		buf.append (':');
+		afterName = true;
+		return this;
+	}
+
+	/** @param s written as null if null */
+	public JsonWriter Value (String s) {
+		if (s == null) {
+			return NullValue ();
+		}
+		Separate ();
+		Quote (s);
+		return Written ();
+	}
+
+	public JsonWriter Value (boolean b) {
+		Separate ();
+		buf.append (b);
+		return Written ();
+	}
+
+	public JsonWriter Value (int i) {
+		Separate ();
+		buf.append (i);
+		return Written ();
+	}
+
+	public JsonWriter Value (long n) {
+		Separate ();
+		buf.append (n);
+		return Written ();
+	}
+
+	/** writes the digits of Double.toString */
+	public JsonWriter Value (double v) {
+		if (Double.isNaN (v) || Double.isInfinite (v)) {
+			return NullValue ();
+		}
+		Separate ();
+		buf.append (v);
+		return Written ();
+	}
+
+	/** writes the digits of fmt, e.g. one of the df fields of DistComponent */
+	public JsonWriter Value (double v, DistFormat fmt) {
+		if (Double.isNaN (v) || Double.isInfinite (v)) {
+			return NullValue ();
+		}
+		Separate ();
+		fmt.append (buf, v);
+		return Written ();
+	}
+
+	public JsonWriter NullValue () {
+		Separate ();
+		buf.append ("null");
+		return Written ();
+	}
+
+	private void Quote (String s) {
+		buf.append ('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt (i);
+			switch (c) {
+				case '"':
+					buf.append ("\\\"");
+					break;
+				case '\\':
+					buf.append ("\\\\");
+					break;
+				case '\n':
+					buf.append ("\\n");
+					break;
+				case '\r':
+					buf.append ("\\r");
+					break;
+				case '\t':
+					buf.append ("\\t");
+					break;
+				default:
+					if (c < 0x20 || c == '\u2028' || c == '\u2029') { // the last two end JavaScript lines
+						buf.append (String.format ("\\u%04x", (int) c));
+					} else {
+						buf.append (c);
+					}
+			}
+		}
+		buf.append ('"');
+	}
+
+	/** writes out everything so far, then flushes the Writer */
+	public void Flush () {
+		Drain ();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException ("can not write JSON: " + e.getMessage(), e);
+		}
+	}
+
+	/** flushes and closes the Writer; all objects and arrays must have been ended */
+	public void Close () {
+		if (depth > 0) {
+			throw new RuntimeException ("JSON closed with " + Integer.toString (depth) + " unfinished objects or arrays");
+		}
+		Flush ();
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException ("can not close JSON: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package gov.pnnl.goss.cim2glm.components;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Phases of one phase string, such as "ABC", "A:B", "s1:s2", or "AS" copied back from a GridLAB-D node, as a bitmask.
+ <p>Of interns one instance per distinct string, so the GridLAB-D and OpenDSS renderings are worked out
+ once per model instead of by substring scans on every call. The OpenDSS bus renderings keep the
+ conductor order of the string, e.g. "B:A" still connects to bus.2.1.</p>
+*/
+public final class PhaseSet {
+	public static final int A = 1;
+	public static final int B = 2;
+	public static final int C = 4;
+	public static final int N = 8;
+	public static final int S1 = 16;
+	public static final int S2 = 32;
+	/** a lower-case s anywhere, i.e. a CIM secondary phase */
+	public static final int S = 64;
+	/** an upper-case S, i.e. GridLAB-D phasing of a triplex node */
+	public static final int GLM_S = 128;
+	/** "ABC" appears together, as from a three-phase default */
+	public static final int ABC = 256;
+
+	private static final ConcurrentHashMap<String,PhaseSet> interned = new ConcurrentHashMap<>();
+
+	private static final String[] letters = {"", "A", "B", "AB", "C", "AC", "BC", "ABC"};
+	private static final String[] glmNodeN = new String[8];
+	private static final String[] glmNodeS = new String[8];
+	private static final String[] glmNodeD = new String[8];
+	static {
+		for (int i = 0; i < 8; i++) {
+			glmNodeN[i] = letters[i] + "N";
+			glmNodeS[i] = letters[i] + "S";
+			glmNodeD[i] = letters[i] + "D";
+		}
+	}
+
+	/** the string this was parsed from */
+	public final String phs;
+	public final int bits;
+
+	private final String glm;
+	private final String glmLine;
+	private final String dssBus;
+	private final String dssXfmrBus;
+	private final String dssShuntDelta;
+	private final int dssCountWye;
+	private final int dssCountDelta;
+	private final String firstDSS;
+
+	private PhaseSet (String phs) {
+		this.phs = phs;
+		int b = 0;
+		if (phs.contains ("A")) b |= A;
+		if (phs.contains ("B")) b |= B;
+		if (phs.contains ("C")) b |= C;
+		if (phs.contains ("N")) b |= N;
+		if (phs.contains ("s1")) b |= S1;
+		if (phs.contains ("s2")) b |= S2;
+		if (phs.contains ("s")) b |= S;
+		if (phs.contains ("S")) b |= GLM_S;
+		if (phs.contains ("ABC")) b |= ABC;
+		bits = b;
+
+		glm = letters[b & 7] + ((b & S) != 0 ? "S" : "");
+		glmLine = glm + ((b & N) != 0 ? "N" : "");
+		dssBus = BusSuffix (phs);
+		if ((b & S2) != 0) {
+			dssXfmrBus = ".0.2";
+		} else if ((b & S1) != 0) {
+			dssXfmrBus = ".1.0";
+		} else {
+			dssXfmrBus = dssBus;
+		}
+		if ((b & ABC) != 0) {
+			dssShuntDelta = ".1.2.3";
+		} else if ((b & A) != 0) {
+			dssShuntDelta = ".1.2";
+		} else if ((b & B) != 0) {
+			dssShuntDelta = ".2.3";
+		} else if ((b & C) != 0) {
+			dssShuntDelta = ".3.1";
+		} else {
+			dssShuntDelta = ""; // TODO - can we have two-phase delta in the CIM?
+		}
+		int n = Integer.bitCount (b & (A | B | C | S1 | S2));
+		dssCountWye = n;
+		dssCountDelta = (n < 3) ? 1 : n;
+		if ((b & A) != 0) {
+			firstDSS = "1";
+		} else if ((b & B) != 0) {
+			firstDSS = "2";
+		} else {
+			firstDSS = "3";
+		}
+	}
+
+	/** the OpenDSS node list for a bus, in the order the CIM phases are listed */
+	private static String BusSuffix (String phs) {
+		if (phs.contains ("ABC")) return ".1.2.3";
+		if (phs.contains ("AB") || phs.contains ("A:B")) return ".1.2";
+		if (phs.contains ("12")) return ".1.2";
+		if (phs.contains ("AC") || phs.contains ("A:C")) return ".1.3";
+		if (phs.contains ("BC") || phs.contains ("B:C")) return ".2.3";
+		if (phs.contains ("B:A")) return ".2.1";
+		if (phs.contains ("C:A")) return ".3.1";
+		if (phs.contains ("C:B")) return ".3.2";
+		if (phs.contains ("s1:s2")) return ".1.2";
+		if (phs.contains ("s2:s1")) return ".2.1";
+		if (phs.contains ("s1")) return ".1";
+		if (phs.contains ("s2")) return ".2";
+		if (phs.contains ("A")) return ".1";
+		if (phs.contains ("B")) return ".2";
+		if (phs.contains ("C")) return ".3";
+		if (phs.contains ("1")) return ".1";
+		if (phs.contains ("2")) return ".2";
+		return "";  // defaults to 3 phases
+	}
+
+	/** @return the shared instance for this phase string */
+	public static PhaseSet Of (String phs) {
+		PhaseSet ps = interned.get (phs);
+		if (ps == null) {
+			ps = new PhaseSet (phs);
+			PhaseSet old = interned.putIfAbsent (phs, ps);
+			if (old != null) {
+				ps = old;
+			}
+		}
+		return ps;
+	}
+
+	/** @return true if any of the bits in mask are present */
+	public boolean Has (int mask) {
+		return (bits & mask) != 0;
+	}
+
+	/** @return true for any secondary, CIM s1/s2 or GridLAB-D S */
+	public boolean IsSecondary () {
+		return (bits & (S | GLM_S)) != 0;
+	}
+
+	/** @return number of A, B and C phases present */
+	public int PrimaryCount () {
+		return Integer.bitCount (bits & (A | B | C));
+	}
+
+	/** @return A, B and C bits present */
+	public int PrimaryBits () {
+		return bits & (A | B | C);
+	}
+
+	/** @return ABC letters present, then S for a secondary */
+	public String GLMString () {
+		return glm;
+	}
+
+	/** @return GLMString with N added if the neutral is listed, as for line phasing */
+	public String GLMLineString () {
+		return glmLine;
+	}
+
+	public int DSSPhaseCount (boolean bDelta) {
+		return bDelta ? dssCountDelta : dssCountWye;
+	}
+
+	public String FirstDSSPhase () {
+		return firstDSS;
+	}
+
+	public String DSSBus (String bus) {
+		return bus + dssBus;
+	}
+
+	/** split-phase secondaries connect to .1.0 or .0.2 */
+	public String DSSXfmrBus (String bus) {
+		return bus + dssXfmrBus;
+	}
+
+	public String DSSShuntBus (String bus, boolean bDelta) {
+		if ((bits & ABC) != 0) {
+			return bus + ".1.2.3";
+		}
+		if (!bDelta) {
+			return bus + dssBus;
+		}
+		return bus + dssShuntDelta;
+	}
+
+	/** @return ABC letters for A, B and C bits */
+	public static String Letters (int bits) {
+		return letters[bits & 7];
+	}
+
+	/** @return GridLAB-D node phasing for A, B and C bits, with the S, D or N suffix */
+	public static String GLMNodeString (int bits, boolean bSecondary, boolean bDelta) {
+		if (bSecondary) return glmNodeS[bits & 7];
+		if (bDelta) return glmNodeD[bits & 7];
+		return glmNodeN[bits & 7];
+	}
+}
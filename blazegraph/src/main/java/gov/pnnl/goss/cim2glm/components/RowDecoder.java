@@ -0,0 +1,181 @@
+package gov.pnnl.goss.cim2glm.components;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.impl.LiteralLabel;
+import java.util.Iterator;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.ResultBinding;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.binding.BindingMap;
+import org.apache.jena.sparql.util.ModelUtils;
+
+/**
+ Decodes query rows by column slot, reading values straight from the Jena Nodes.
+ <p>QuerySolution.get("?x").toString() parses the variable name and wraps the Node
+ in an RDFNode on every call, then the number is parsed from a new String. A decoder
+ resolves the variable names once per szQUERY, and numbers come from the literal's own
+ lexical form, or its already-parsed value when the literal is typed.</p>
+ <p>A decoder has no per-row state, so one static instance can be shared by concurrent loaders.
+ Strings are the same as RDFNode.toString() would produce, so the output files do not change.</p>
+*/
+public class RowDecoder {
+	final Var[] vars;
+
+	/** @param names the SELECT variables, with or without the leading ?, in slot order */
+	public RowDecoder (String... names) {
+		vars = new Var[names.length];
+		for (int i = 0; i < names.length; i++) {
+			vars[i] = Var.alloc (names[i].startsWith ("?") ? names[i].substring (1) : names[i]);
+		}
+	}
+
+	/** @return the next row, or null if there are no more */
+	public static Binding NextRow (ResultSet results) {
+		if (results.hasNext()) {
+			return results.nextBinding();
+		}
+		return null;
+	}
+
+	/** for rows already taken as a QuerySolution, e.g. from GroupedResults; Jena's own result sets give a ResultBinding */
+	public static Binding RowOf (QuerySolution soln) {
+		if (soln instanceof ResultBinding) {
+			return ((ResultBinding) soln).getBinding();
+		}
+		BindingMap row = BindingFactory.create();
+		Iterator<String> it = soln.varNames();
+		while (it.hasNext()) {
+			String v = it.next();
+			row.add (Var.alloc (v), soln.get (v).asNode());
+		}
+		return row;
+	}
+
+	public boolean Has (Binding row, int slot) {
+		return row.get (vars[slot]) != null;
+	}
+
+	/** same as RDFNode.toString(), but without the RDFNode for plain literals and URIs */
+	public String GetString (Binding row, int slot) {
+		Node nd = row.get (vars[slot]);
+		if (nd == null) {
+			throw new RuntimeException ("missing value for " + vars[slot]);
+		}
+		return NodeString (nd);
+	}
+
+	public double GetDouble (Binding row, int slot) {
+		Node nd = row.get (vars[slot]);
+		if (nd == null) {
+			throw new RuntimeException ("missing value for " + vars[slot]);
+		}
+		return NodeDouble (nd);
+	}
+
+	public int GetInt (Binding row, int slot) {
+		Node nd = row.get (vars[slot]);
+		if (nd == null) {
+			throw new RuntimeException ("missing value for " + vars[slot]);
+		}
+		return NodeInt (nd);
+	}
+
+	public boolean GetBoolean (Binding row, int slot) {
+		Node nd = row.get (vars[slot]);
+		if (nd == null) {
+			throw new RuntimeException ("missing value for " + vars[slot]);
+		}
+		return Boolean.parseBoolean (Lexical (nd));
+	}
+
+	public String OptionalString (Binding row, int slot, String def) {
+		Node nd = row.get (vars[slot]);
+		if (nd != null) {
+			String str = NodeString (nd);
+			if (str.length() > 0) {
+				return str;
+			}
+		}
+		return def;
+	}
+
+	public double OptionalDouble (Binding row, int slot, double def) {
+		Node nd = row.get (vars[slot]);
+		if (nd != null && !Lexical(nd).isEmpty()) {
+			return NodeDouble (nd);
+		}
+		return def;
+	}
+
+	public int OptionalInt (Binding row, int slot, int def) {
+		Node nd = row.get (vars[slot]);
+		if (nd != null && !Lexical(nd).isEmpty()) {
+			return NodeInt (nd);
+		}
+		return def;
+	}
+
+	public boolean OptionalBoolean (Binding row, int slot, boolean def) {
+		Node nd = row.get (vars[slot]);
+		if (nd != null) {
+			String str = Lexical (nd);
+			if (str.length() > 0) {
+				return Boolean.parseBoolean (str);
+			}
+		}
+		return def;
+	}
+
+	static String NodeString (Node nd) {
+		if (nd.isURI()) {
+			return nd.getURI();
+		}
+		if (nd.isLiteral()) {
+			String lang = nd.getLiteralLanguage();
+			String dt = nd.getLiteralDatatypeURI();
+			if ((lang == null || lang.isEmpty()) && (dt == null || dt.equals (XSDDatatype.XSDstring.getURI()))) {
+				return nd.getLiteralLexicalForm();
+			}
+		}
+		return ModelUtils.convertGraphNodeToRDFNode (nd, null).toString();
+	}
+
+	/** the number as written, without any language tag or datatype suffix */
+	static String Lexical (Node nd) {
+		if (nd.isLiteral()) {
+			return nd.getLiteralLexicalForm();
+		}
+		return NodeString (nd);
+	}
+
+	static double NodeDouble (Node nd) {
+		if (nd.isLiteral()) {
+			LiteralLabel lit = nd.getLiteral();
+			if (lit.isWellFormed() && lit.getValue() instanceof Number) {
+				return ((Number) lit.getValue()).doubleValue();
+			}
+			return Double.parseDouble (lit.getLexicalForm());
+		}
+		return Double.parseDouble (NodeString (nd));
+	}
+
+	static int NodeInt (Node nd) {
+		if (nd.isLiteral()) {
+			LiteralLabel lit = nd.getLiteral();
+			if (lit.isWellFormed() && lit.getValue() instanceof Integer) {
+				return ((Integer) lit.getValue()).intValue();
+			}
+			return Integer.parseInt (lit.getLexicalForm());
+		}
+		return Integer.parseInt (NodeString (nd));
+	}
+}
@@ -7,4 +7,22 @@ public interface QueryHandler {
 	public boolean addFeederSelection (String mRID); // TODO: support more than one, return False if not present
 	public boolean clearFeederSelections ();
 	public String getFeederSelection ();
+
+	/**
+	 *  Releases what a query's results hold open, e.g. a streamed HTTP response and its pooled connection.
+	 *  Results that are read to the end release themselves, so call this in a finally block, for the
+	 *  readers that stop early or fail part way. Results that hold nothing open are left alone.
+	 *  @param results from query, or null
+	 */
+	public static void release (ResultSet results) {
+		if (results instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) results).close();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException ("can not release query results: " + e.getMessage(), e);
+			}
+		}
+	}
 }
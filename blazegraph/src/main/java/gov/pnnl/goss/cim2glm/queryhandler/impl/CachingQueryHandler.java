@@ -0,0 +1,204 @@
+package gov.pnnl.goss.cim2glm.queryhandler.impl;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.query.ResultSetRewindable;
+
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+
+/**
+ Decorates an HTTP query handler with a persistent cache of SPARQL-JSON result files.
+ <p>The cache key is the endpoint, the feeder selection and the query text. Each feeder
+ selection has its own subdirectory, so one feeder can be invalidated without the others.</p>
+ <p>Before the first query, a store version is compared to the one saved with the cache, and
+ all entries are discarded if it changed. The caller supplies the version, e.g. the commit id or
+ load date of the model, and must change it with every edit to the store; reading the store to
+ detect edits would cost more than the queries that the cache saves.</p>
+*/
+public class CachingQueryHandler implements QueryHandler {
+	static final String VERSION_FILE = "store_version.txt";
+
+	HTTPBlazegraphQueryHandler handler;
+	File cacheDir;
+	String storeVersion;
+	boolean versionChecked;
+	int hits;
+	int misses;
+
+	/**
+	 * @param handler the handler that runs queries on a cache miss
+	 * @param cacheDir directory for the cached results, created if necessary
+	 * @param storeVersion label for the triple-store contents, changed with every edit to the store
+	 */
+	public CachingQueryHandler(HTTPBlazegraphQueryHandler handler, String cacheDir, String storeVersion) {
+		if (storeVersion == null || storeVersion.trim().length() < 1) {
+			throw new RuntimeException ("the query cache needs a version label for the triple-store contents");
+		}
+		this.handler = handler;
+		this.cacheDir = new File (cacheDir);
+		this.storeVersion = storeVersion.trim();
+		this.versionChecked = false;
+		this.cacheDir.mkdirs();
+	}
+
+	@Override
+	public ResultSet query(String szQuery) {
+		CheckStoreVersion();
+		File f = CacheFile (szQuery);
+		if (f.exists()) {
+			try (InputStream in = new FileInputStream (f)) {
+				ResultSet results = ResultSetFactory.fromJSON (in); // parsed completely, before the file closes
+				synchronized (this) {
+					++hits;
+				}
+				return results;
+			} catch (IOException e) {
+				f.delete(); // fall through and query again
+			}
+		}
+		// the only copy of the rows, to write them to the cache file and then return them
+		ResultSet live = handler.query (szQuery);
+		ResultSetRewindable results;
+		try {
+			results = ResultSetFactory.copyResults (live);
+		} finally {
+			QueryHandler.release (live);
+		}
+		WriteCacheFile (f, results);
+		results.reset();
+		synchronized (this) {
+			++misses;
+		}
+		return results;
+	}
+
+	/** compares the current store version to the cached one, discarding the cache on a mismatch */
+	synchronized void CheckStoreVersion() {
+		if (versionChecked) {
+			return;
+		}
+		File fVersion = new File (cacheDir, VERSION_FILE);
+		String cached = "";
+		try {
+			if (fVersion.exists()) {
+				cached = new String (Files.readAllBytes (fVersion.toPath()), StandardCharsets.UTF_8).trim();
+			}
+			if (!cached.equals (storeVersion)) {
+				invalidate();
+				Files.write (fVersion.toPath(), storeVersion.getBytes (StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException ("can not access query cache " + cacheDir, e);
+		}
+		versionChecked = true;
+	}
+
+	/** @return the selected feeder mRID, or empty if all feeders are selected */
+	private String SelectedFeeder() {
+		if (handler.use_mRID) {
+			return handler.getFeederSelection();
+		}
+		return "";
+	}
+
+	private File FeederDir() {
+		String fdr = SelectedFeeder();
+		if (fdr.length() < 1) {
+			fdr = "all_feeders";
+		}
+		return new File (cacheDir, fdr.replaceAll ("[^A-Za-z0-9_\\-]", "_"));
+	}
+
+	private File CacheFile (String szQuery) {
+		String key = handler.getEndpoint() + "\n" + SelectedFeeder() + "\n" + szQuery;
+		try {
+			MessageDigest md = MessageDigest.getInstance ("SHA-256");
+			byte[] hash = md.digest (key.getBytes (StandardCharsets.UTF_8));
+			StringBuilder buf = new StringBuilder ();
+			for (byte b : hash) {
+				buf.append (String.format ("%02x", b));
+			}
+			return new File (FeederDir(), buf.toString() + ".srj");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException (e);
+		}
+	}
+
+	/** writes to a temporary file first, so concurrent loaders never read a partial entry */
+	private void WriteCacheFile (File f, ResultSetRewindable results) {
+		File dir = f.getParentFile();
+		dir.mkdirs();
+		try {
+			File tmp = File.createTempFile ("query", ".tmp", dir);
+			try (OutputStream out = new FileOutputStream (tmp)) {
+				ResultSetFormatter.outputAsJSON (out, results);
+			}
+			Files.move (tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println ("Unable to cache query results in " + f + ": " + e.getMessage());
+		}
+	}
+
+	private static void DeleteTree (File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				DeleteTree (child);
+			}
+		}
+		f.delete();
+	}
+
+	/** discards the cached results for every feeder */
+	public synchronized void invalidate() {
+		File[] children = cacheDir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory()) {
+					DeleteTree (child);
+				}
+			}
+		}
+	}
+
+	/** discards the cached results for the selected feeder only */
+	public synchronized void invalidateFeeder() {
+		DeleteTree (FeederDir());
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public boolean addFeederSelection (String mRID) {
+		return handler.addFeederSelection (mRID);
+	}
+	public boolean clearFeederSelections () {
+		return handler.clearFeederSelections ();
+	}
+	public String getFeederSelection () {
+		return handler.getFeederSelection();
+	}
+}
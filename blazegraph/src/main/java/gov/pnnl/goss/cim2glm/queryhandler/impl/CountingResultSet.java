@@ -0,0 +1,104 @@
+package gov.pnnl.goss.cim2glm.queryhandler.impl;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+
+/**
+ Passes the rows of another result set through as they are read, counting them.
+ <p>When the rows run out, or reading them fails, the count goes to a callback once, e.g. to
+ record the query's statistics and release its HTTP connection. A caller that stops early
+ gets the same effect from QueryHandler.release, which closes this and the results inside.</p>
+*/
+class CountingResultSet implements ResultSet, AutoCloseable {
+	private final ResultSet results;
+	private final IntConsumer onEnd;
+	private int rows = 0;
+	private boolean done = false;
+
+	/**
+	 *  @param results the rows to pass through
+	 *  @param onEnd receives the number of rows read, once
+	 */
+	CountingResultSet (ResultSet results, IntConsumer onEnd) {
+		this.results = results;
+		this.onEnd = onEnd;
+	}
+
+	/** ends the results early, releasing the results inside too; the rows not read yet are not counted */
+	@Override
+	public void close () {
+		if (!done) {
+			done = true;
+			try {
+				QueryHandler.release (results);
+			} finally {
+				onEnd.accept (rows);
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext () {
+		if (done) {
+			return false;
+		}
+		boolean bMore;
+		try {
+			bMore = results.hasNext();
+		} catch (RuntimeException e) {
+			close ();
+			throw e;
+		}
+		if (!bMore) {
+			close ();
+		}
+		return bMore;
+	}
+
+	@Override
+	public QuerySolution next () {
+		QuerySolution soln = results.next();
+		++rows;
+		return soln;
+	}
+
+	@Override
+	public QuerySolution nextSolution () {
+		QuerySolution soln = results.nextSolution();
+		++rows;
+		return soln;
+	}
+
+	@Override
+	public Binding nextBinding () {
+		Binding row = results.nextBinding();
+		++rows;
+		return row;
+	}
+
+	@Override
+	public int getRowNumber () {
+		return rows;
+	}
+
+	@Override
+	public List<String> getResultVars () {
+		return results.getResultVars();
+	}
+
+	@Override
+	public Model getResourceModel () {
+		return results.getResourceModel();
+	}
+}
@@ -0,0 +1,269 @@
+package gov.pnnl.goss.cim2glm.queryhandler.impl;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetRewindable;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+
+/**
+ Copies the selected feeder's subgraph from Blazegraph into an in-memory Jena model with
+ a few bulk CONSTRUCT queries, then answers all of the Dist*.szQUERY strings locally.
+ <p>The subgraph is fetched once per feeder selection and kept, so re-exporting the same
+ feeder does not go back to the triple-store. Queries without a feeder selection, e.g. the
+ feeder list of a batch, go to the endpoint; the whole store is never copied.</p>
+ <p>The bulk queries follow the CIM containment links from the feeder, which may miss parts of
+ an unusual model. With setCheckQueries, the first use of each query also runs at the endpoint,
+ and if the rows differ, that query goes to the endpoint from then on, for every feeder. That
+ costs a second run of each query, so it is for trying the local copy on a new kind of model.</p>
+*/
+public class FeederModelQueryHandler extends HTTPBlazegraphQueryHandler {
+	/** the links from a part to its container, e.g. from a Terminal to its ConductingEquipment */
+	static final String szCONTAINER =
+		"(c:Equipment.EquipmentContainer|c:ConnectivityNode.ConnectivityNodeContainer|c:Terminal.ConductingEquipment|"+
+		"c:ACLineSegmentPhase.ACLineSegment|c:EnergyConsumerPhase.EnergyConsumer|c:ShuntCompensatorPhase.ShuntCompensator|"+
+		"c:SwitchPhase.Switch|c:PowerElectronicsConnectionPhase.PowerElectronicsConnection|"+
+		"c:PowerTransformerEnd.PowerTransformer|c:TransformerTank.PowerTransformer|c:TransformerTankEnd.TransformerTank|"+
+		"c:RatioTapChanger.TransformerEnd|c:TransformerCoreAdmittance.TransformerEnd|c:TransformerMeshImpedance.FromTransformerEnd|"+
+		"c:RegulatingControl.RegulatingCondEq|c:Asset.PowerSystemResources|c:Measurement.PowerSystemResource)";
+
+	/** the feeder and everything it contains, through up to four containment links, e.g.
+	 *  RatioTapChanger to TransformerTankEnd to TransformerTank to PowerTransformer to Feeder */
+	static final String szOWNED = "?x (" + szCONTAINER + "/(" + szCONTAINER + "/(" + szCONTAINER + "/" + szCONTAINER + "?)?)?)? ?fdr.";
+
+	/** outgoing triples of the feeder, its equipment, terminals, ends, phases, assets and measurements */
+	static final String szOwnedQUERY =
+		"CONSTRUCT {?x ?p ?o} WHERE {"+
+		" {SELECT DISTINCT ?x WHERE {"+
+		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
+		" " + szOWNED +
+		" }}"+
+		" ?x ?p ?o"+
+		"}";
+
+	/** outgoing triples of shared objects referenced from the feeder, e.g. BaseVoltage,
+	 *  ConnectivityNode, Location, WireInfo, TransformerTankInfo and PowerTransformerInfo */
+	static final String szReferencedQUERY =
+		"CONSTRUCT {?r ?p ?o} WHERE {"+
+		" {SELECT DISTINCT ?r WHERE {"+
+		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
+		" " + szOWNED +
+		" ?x (!r:type) ?r0."+
+		" ?r0 (!r:type)? ?r."+
+		" FILTER (isIRI(?r))"+
+		" }}"+
+		" ?r ?p ?o"+
+		"}";
+
+	/** objects that only point to the shared ones, e.g. PositionPoint, WirePosition,
+	 *  PhaseImpedanceData, TransformerEndInfo and the transformer test data */
+	static final String szDependentQUERY =
+		"CONSTRUCT {?y ?p ?o} WHERE {"+
+		" {SELECT DISTINCT ?y WHERE {"+
+		" ?fdr c:IdentifiedObject.mRID ?fdrid."+
+		" " + szOWNED +
+		" ?x (!r:type) ?r."+
+		" ?y (c:PositionPoint.Location|c:WirePosition.WireSpacingInfo|c:PhaseImpedanceData.PhaseImpedance|"+
+		"c:TransformerEndInfo.TransformerTankInfo|"+
+		"((c:ShortCircuitTest.EnergisedEnd|c:NoLoadTest.EnergisedEnd)/c:TransformerEndInfo.TransformerTankInfo)) ?r."+
+		" }}"+
+		" ?y ?p ?o"+
+		"}";
+
+	/** all feeders with their substations and regions, for the dictionary and index files */
+	static final String szFeederQUERY =
+		"CONSTRUCT {?s ?p ?o} WHERE {"+
+		" {SELECT DISTINCT ?s WHERE {"+
+		" ?fdr r:type c:Feeder."+
+		" ?fdr (c:Feeder.NormalEnergizingSubstation/(c:Substation.Region/c:SubGeographicalRegion.Region?)?)? ?s."+
+		" }}"+
+		" ?s ?p ?o"+
+		"}";
+
+	/** local copies by feeder mRID, shared with the handlers made by forFeeder */
+	HashMap<String,Model> models;
+	/** one lock per feeder, so concurrent queries on a feeder fetch it only once */
+	ConcurrentHashMap<String,Object> locks;
+	/** for each query, true if the local copy gave the same rows as the endpoint, false to use the endpoint */
+	ConcurrentHashMap<String,Boolean> checked;
+	boolean bCheck = false;
+	boolean bVerbose = false;
+
+	public FeederModelQueryHandler(String endpoint) {
+		this (endpoint, new HashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+	}
+
+	private FeederModelQueryHandler(String endpoint, HashMap<String,Model> models, ConcurrentHashMap<String,Object> locks,
+																	ConcurrentHashMap<String,Boolean> checked) {
+		super (endpoint);
+		this.models = models;
+		this.locks = locks;
+		this.checked = checked;
+	}
+
+	/** @param b true to compare the rows of the first use of each query with the endpoint's */
+	public void setCheckQueries(boolean b) {
+		this.bCheck = b;
+	}
+
+	/** @param b true to report the queries whose local rows differ from the endpoint's */
+	public void setVerbose(boolean b) {
+		this.bVerbose = b;
+	}
+
+	/** @return a handler for one feeder that shares the local copies with this one */
+	@Override
+	public HTTPBlazegraphQueryHandler forFeeder (String mRID) {
+		FeederModelQueryHandler qh = new FeederModelQueryHandler (endpoint, models, locks, checked);
+		qh.bCheck = bCheck;
+		qh.bVerbose = bVerbose;
+		qh.resultFormat = resultFormat;
+		qh.metrics = metrics;
+		qh.httpClient = httpClient;
+		qh.addFeederSelection (mRID);
+		return qh;
+	}
+
+	/** @return the local copy of the selected feeder, fetched from the endpoint on first use */
+	public Model getModel() {
+		if (!use_mRID) {
+			throw new RuntimeException ("select a feeder before copying it into a local model");
+		}
+		String key = mRID;
+		synchronized (locks.computeIfAbsent (key, k -> new Object())) {
+			Model model;
+			synchronized (models) {
+				model = models.get (key);
+			}
+			if (model == null) {
+				model = ModelFactory.createDefaultModel();
+				LoadModel (model, szOwnedQUERY);
+				LoadModel (model, szReferencedQUERY);
+				LoadModel (model, szDependentQUERY);
+				LoadModel (model, szFeederQUERY);
+				synchronized (models) {
+					models.put (key, model);
+				}
+			}
+			return model;
+		}
+	}
+
+	private void LoadModel (Model model, String szQuery) {
+		QueryExecution qexec = QueryExecutionFactory.sparqlService (endpoint, buildQuery (szQuery), httpClient);
+		try {
+			qexec.execConstruct (model);
+		} finally {
+			qexec.close();
+		}
+	}
+
+	/** discards all local copies, e.g. after the triple-store has been updated */
+	public void clearModels() {
+		synchronized (models) {
+			models.clear();
+		}
+	}
+
+	@Override
+	public ResultSet query(String szQuery) {
+		if (!use_mRID) {
+			return super.query (szQuery);
+		}
+		Boolean bLocal = checked.get (szQuery);
+		if (bLocal == null) {
+			if (bCheck) {
+				return CheckQuery (szQuery);
+			}
+		} else if (!bLocal) {
+			return super.query (szQuery);
+		}
+		return LocalQuery (szQuery);
+	}
+
+	private ResultSet LocalQuery (String szQuery) {
+		QueryExecution qexec = QueryExecutionFactory.create (buildQuery (szQuery), getModel());
+		return qexec.execSelect();
+	}
+
+	/** runs the query both locally and at the endpoint, returning the endpoint's results */
+	private ResultSet CheckQuery (String szQuery) {
+		ResultSet live = super.query (szQuery);
+		ResultSetRewindable remote;
+		try {
+			remote = ResultSetFactory.copyResults (live);
+		} finally {
+			QueryHandler.release (live);
+		}
+		List<String> vars = remote.getResultVars();
+		long[] remoteHash = RowsHash (remote, vars);
+		remote.reset();
+		long[] localHash = RowsHash (LocalQuery (szQuery), vars);
+		if (localHash[0] == remoteHash[0] && localHash[1] == remoteHash[1]) {
+			checked.putIfAbsent (szQuery, true);
+		} else {
+			checked.put (szQuery, false);
+			if (bVerbose) {
+				System.out.println ("*** the local copy of feeder " + mRID + " gave " + Long.toString (localHash[0]) + " rows, " +
+														Long.toString (remoteHash[0]) + " at the endpoint, with different values; using the endpoint for " +
+														(szQuery.length() > 60 ? szQuery.substring (0, 60) : szQuery));
+			}
+		}
+		return remote;
+	}
+
+	/**
+	 *  Adds up a hash of each row, so the total does not depend on the order of the rows. Literals
+	 *  count by their lexical form, and blank nodes without their labels, which each store makes up.
+	 *  @return the number of rows and the total hash
+	 */
+	static long[] RowsHash (ResultSet results, List<String> vars) {
+		long n = 0;
+		long sum = 0;
+		while (results.hasNext()) {
+			QuerySolution soln = results.next();
+			long h = 0xcbf29ce484222325L; // FNV-1a
+			for (String v : vars) {
+				RDFNode node = soln.get (v);
+				String term = "";
+				if (node == null) {
+					// unbound, e.g. an OPTIONAL that did not match
+				} else if (node.isAnon()) {
+					term = "_:";
+				} else if (node.isLiteral()) {
+					term = node.asLiteral().getLexicalForm();
+				} else {
+					term = node.toString();
+				}
+				for (int i = 0; i < term.length(); i++) {
+					h ^= term.charAt (i);
+					h *= 0x100000001b3L;
+				}
+				h ^= '\t';
+				h *= 0x100000001b3L;
+			}
+			h ^= h >>> 33; // spreads the bits, so the sum of many hashes does too
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			sum += h;
+			++n;
+		}
+		return new long[] {n, sum};
+	}
+}
@@ -1,22 +1,195 @@
 package gov.pnnl.goss.cim2glm.queryhandler.impl;
 
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.jena.atlas.web.TypedInputStream;
 import org.apache.jena.query.Query;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.ResultSet;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.web.HttpOp;
+import org.apache.jena.sparql.engine.http.Params;
 
-import gov.pnnl.goss.cim2glm.components.DistComponent;
+import gov.pnnl.goss.cim2glm.ExportMetrics;
 import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
 
 public class HTTPBlazegraphQueryHandler implements QueryHandler {
+	/** SPARQL results formats that can be requested from the endpoint; TSV is the smallest and fastest to parse */
+	public static final String FORMAT_TSV = "tsv";
+	public static final String FORMAT_JSON = "json";
+	public static final String FORMAT_XML = "xml";
+
+	/** open connections to the endpoint, enough for a batch of 2 feeders with 4 concurrent queries each */
+	public static final int DEFAULT_CONNECTIONS = 16;
+	/** seconds allowed to open a connection */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+	/** seconds allowed between packets of a response; the largest feeders take a few minutes for some queries */
+	public static final int DEFAULT_READ_TIMEOUT = 600;
+	/** seconds that an unused connection stays in the pool */
+	static final int IDLE_TIMEOUT = 60;
+
+	/** used by every handler that is not given its own client, so all exports in the JVM share one pool */
+	private static HttpClient sharedClient = null;
+
+	/** bytes of one query's results, as received from the endpoint, and the time until its last row was read */
+	public static class QueryStats {
+		public String query;
+		public String format;
+		public long bytes;
+		public int rows;
+		public double seconds;
+
+		public String DisplayString() {
+			return String.format ("%8d rows %10d bytes %8.3f s (%s) %s", rows, bytes, seconds, format,
+														query.length() > 60 ? query.substring (0, 60) : query);
+		}
+	}
+
+	/** counts the decompressed result bytes as the parser reads them */
+	static class CountingInputStream extends FilterInputStream {
+		long count;
+
+		CountingInputStream (InputStream in) {
+			super (in);
+		}
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				++count;
+			}
+			return b;
+		}
+		@Override
+		public int read (byte[] buf, int off, int len) throws IOException {
+			int n = super.read (buf, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+		@Override
+		public long skip (long n) throws IOException {
+			long skipped = super.skip (n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
 	String endpoint;
 	String mRID;
 	boolean use_mRID;
+	String resultFormat = FORMAT_TSV;
+	List<QueryStats> stats = new ArrayList<>();
+	ExportMetrics metrics;
+	HttpClient httpClient;
 	
 	public HTTPBlazegraphQueryHandler(String endpoint) {
 		this.endpoint = endpoint;
 		this.use_mRID = false;
+		this.httpClient = getSharedHttpClient();
+	}
+
+	/**
+	 *  Makes a pooled client that keeps connections open between queries and asks for compressed results.
+	 *  @param nConnections maximum open connections, in total and to each endpoint
+	 *  @param connectSeconds time allowed to open a connection
+	 *  @param readSeconds time allowed between packets of a response, 0 for no limit; also the time
+	 *  allowed to wait for a free connection from the pool, which is never unlimited
+	 */
+	public static HttpClient createHttpClient(int nConnections, int connectSeconds, int readSeconds) {
+		PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+		cm.setMaxTotal (nConnections);
+		cm.setDefaultMaxPerRoute (nConnections);
+		cm.setValidateAfterInactivity (2000); // the endpoint may have closed a connection while it sat in the pool
+		// a query that waits this long for a connection fails, instead of hanging if connections were never returned
+		int poolSeconds = readSeconds > 0 ? readSeconds : DEFAULT_READ_TIMEOUT;
+		RequestConfig config = RequestConfig.custom()
+			.setConnectTimeout (connectSeconds * 1000)
+			.setSocketTimeout (readSeconds * 1000)
+			.setConnectionRequestTimeout (poolSeconds * 1000)
+			.setContentCompressionEnabled (true)
+			.build();
+		return HttpClients.custom()
+			.useSystemProperties()
+			.setConnectionManager (cm)
+			.setDefaultRequestConfig (config)
+			.setKeepAliveStrategy (DefaultConnectionKeepAliveStrategy.INSTANCE)
+			.evictExpiredConnections()
+			.evictIdleConnections (IDLE_TIMEOUT, TimeUnit.SECONDS)
+			.build();
+	}
+	/** @return the client with the default limits, made on first use */
+	public static synchronized HttpClient getSharedHttpClient() {
+		if (sharedClient == null) {
+			sharedClient = createHttpClient (DEFAULT_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+		}
+		return sharedClient;
+	}
+	/** shuts down the shared client, if it was made; the next handler makes a new one */
+	public static synchronized void closeSharedHttpClient() {
+		if (sharedClient != null) {
+			CloseClient (sharedClient);
+			sharedClient = null;
+		}
+	}
+	private static void CloseClient (HttpClient client) {
+		if (client instanceof Closeable) {
+			try {
+				((Closeable) client).close();
+			} catch (IOException e) {
+				throw new UncheckedIOException ("can not close the HTTP client", e);
+			}
+		}
+	}
+	/** 
+	 *  Shuts down this handler's HTTP client and the shared one, closing their pooled connections.
+	 *  The handlers made by forFeeder use the same client, so close only this one, after all of them.
+	 */
+	public void close() {
+		CloseClient (httpClient);
+		closeSharedHttpClient();
+	}
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+	/** @param client e.g. from createHttpClient; handlers made by forFeeder use it too */
+	public void setHttpClient(HttpClient client) {
+		this.httpClient = client;
+	}
+	public String getResultFormat() {
+		return resultFormat;
+	}
+	/** @param format one of FORMAT_TSV, FORMAT_JSON or FORMAT_XML */
+	public void setResultFormat(String format) {
+		if (!format.equals (FORMAT_TSV) && !format.equals (FORMAT_JSON) && !format.equals (FORMAT_XML)) {
+			throw new IllegalArgumentException ("unknown results format " + format);
+		}
+		this.resultFormat = format;
+	}
+	/** @param metrics receives the result bytes of each query, or null */
+	public void setMetrics(ExportMetrics metrics) {
+		this.metrics = metrics;
+	}
+	/** @return a copy of the statistics for each query made so far */
+	public List<QueryStats> getQueryStats() {
+		synchronized (stats) {
+			return new ArrayList<>(stats);
+		}
 	}
 	public String getEndpoint() {
 		return endpoint;
@@ -28,29 +201,87 @@ public class HTTPBlazegraphQueryHandler implements QueryHandler {
 		return mRID;
 	}
 
+	/** 
+	 *  @param szQuery one of the Dist*.szQUERY strings
+	 *  @return the parsed query, restricted to the selected feeder; parsed only on first use
+	 */
+	protected Query buildQuery(String szQuery) {
+		return QueryTemplate.Get (szQuery).Bind (use_mRID ? mRID : null);
+	}
+
+	/** 
+	 *  Posts the query and returns the results as they stream in, in the negotiated format, so the
+	 *  Dist* constructors decode each row as it is parsed. The pooled HTTP client asks for gzip or
+	 *  deflate, decompresses transparently, and keeps the connection open for the next query.
+	 *  The statistics are recorded, and the connection released, once all of the rows are read;
+	 *  a caller that may stop before then must pass the results to QueryHandler.release in a finally block.
+	 */
 	@Override
 	public ResultSet query(String szQuery) { 
-		String qPrefix = "PREFIX r: <" + DistComponent.nsRDF + "> PREFIX c: <" + DistComponent.nsCIM + "> PREFIX xsd:<" + DistComponent.nsXSD + "> ";
-		Query query;
-		if (use_mRID) { // try to insert a VALUES block for the feeder mRID of interest
-			String insertion_point = "WHERE {";
-			int idx = szQuery.lastIndexOf (insertion_point);
-			if (idx >= 0) {
-//				System.out.println ("\n***");
-//				System.out.println (szQuery);
-//				System.out.println ("***");
-				StringBuilder buf = new StringBuilder (qPrefix + szQuery.substring (0, idx) + insertion_point + " VALUES ?fdrid {\"");
-				buf.append (mRID + "\"} " + szQuery.substring (idx + insertion_point.length()));
-//				System.out.println ("Sending " + buf.toString());
-				query = QueryFactory.create (buf.toString());
-			} else {
-				query = QueryFactory.create (qPrefix + szQuery);
-			}
+		String szText = buildQuery (szQuery).serialize();
+		String accept;
+		Lang lang;
+		if (resultFormat.equals (FORMAT_JSON)) {
+			accept = WebContent.contentTypeResultsJSON;
+			lang = ResultSetLang.SPARQLResultSetJSON;
+		} else if (resultFormat.equals (FORMAT_XML)) {
+			accept = WebContent.contentTypeResultsXML;
+			lang = ResultSetLang.SPARQLResultSetXML;
 		} else {
-			query = QueryFactory.create (qPrefix + szQuery);
+			accept = WebContent.contentTypeTextTSV;
+			lang = ResultSetLang.SPARQLResultSetTSV;
+		}
+		Params params = new Params();
+		params.addParam ("query", szText);
+
+		long t0 = System.nanoTime();
+		TypedInputStream in = HttpOp.execHttpPostFormStream (endpoint, params, accept, httpClient, null);
+		CountingInputStream cin = new CountingInputStream (in);
+		ResultSet results;
+		try {
+			results = ResultSetMgr.read (cin, lang);
+		} catch (RuntimeException e) {
+			CloseStream (cin);
+			throw e;
 		}
-		QueryExecution qexec = QueryExecutionFactory.sparqlService (endpoint, query);
-		return qexec.execSelect();
+		return new CountingResultSet (results, rows -> {
+			CloseStream (cin);
+			QueryStats qs = new QueryStats();
+			qs.query = szQuery;
+			qs.format = resultFormat;
+			qs.bytes = cin.count;
+			qs.rows = rows;
+			qs.seconds = 1.0e-9 * (System.nanoTime() - t0);
+			synchronized (stats) {
+				stats.add (qs);
+			}
+			if (metrics != null) {
+				metrics.AddResultBytes (qs.bytes);
+			}
+		});
+	}
+
+	/** returns the connection to the pool, after reading any rest of the response */
+	private void CloseStream (InputStream in) {
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException ("can not read results from " + endpoint, e);
+		}
+	}
+
+	/** 
+	 *  For batch exports, where several feeders are loaded at once and each needs its own selection
+	 *  @param mRID the feeder to select
+	 *  @return a new handler on the same endpoint, selecting only that feeder; this handler is unchanged
+	 */
+	public HTTPBlazegraphQueryHandler forFeeder (String mRID) {
+		HTTPBlazegraphQueryHandler qh = new HTTPBlazegraphQueryHandler (endpoint);
+		qh.resultFormat = resultFormat;
+		qh.metrics = metrics;
+		qh.httpClient = httpClient;
+		qh.addFeederSelection (mRID);
+		return qh;
 	}
 	public boolean addFeederSelection (String mRID) {
 		this.mRID = mRID;
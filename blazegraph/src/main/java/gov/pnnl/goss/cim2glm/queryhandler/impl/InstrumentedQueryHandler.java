@@ -0,0 +1,41 @@
+package gov.pnnl.goss.cim2glm.queryhandler.impl;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import org.apache.jena.query.ResultSet;
+
+import gov.pnnl.goss.cim2glm.ExportMetrics;
+import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
+
+/**
+ Times each query and counts its rows, charging both to the caller's current phase in ExportMetrics.
+ <p>The rows pass through as the caller reads them, and the query is charged once the last one is
+ read, so the time includes the transfer and the decoding.</p>
+*/
+public class InstrumentedQueryHandler implements QueryHandler {
+	QueryHandler handler;
+	ExportMetrics metrics;
+
+	public InstrumentedQueryHandler(QueryHandler handler, ExportMetrics metrics) {
+		this.handler = handler;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public ResultSet query(String szQuery) {
+		long t0 = System.nanoTime();
+		return new CountingResultSet (handler.query (szQuery), rows -> metrics.AddQuery (1.0e-9 * (System.nanoTime() - t0), rows));
+	}
+
+	public boolean addFeederSelection (String mRID) {
+		return handler.addFeederSelection (mRID);
+	}
+	public boolean clearFeederSelections () {
+		return handler.clearFeederSelections ();
+	}
+	public String getFeederSelection () {
+		return handler.getFeederSelection ();
+	}
+}
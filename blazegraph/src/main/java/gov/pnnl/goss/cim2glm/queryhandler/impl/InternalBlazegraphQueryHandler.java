@@ -1,79 +1,207 @@
 package gov.pnnl.goss.cim2glm.queryhandler.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
-import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.ResultSet;
-//import org.openrdf.query.MalformedQueryException;
-//import org.openrdf.query.QueryLanguage;
-//import org.openrdf.query.TupleQuery;
-//import org.openrdf.query.TupleQueryResult;
-//import org.openrdf.repository.Repository;
-//import org.openrdf.repository.RepositoryConnection;
-//import org.openrdf.repository.RepositoryException;
-//import org.openrdf.rio.RDFFormat;
-//
-//import com.bigdata.rdf.sail.BigdataSail;
-//import com.bigdata.rdf.sail.BigdataSailRepository;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.binding.BindingMap;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFFormat;
 
+import com.bigdata.rdf.axioms.NoAxioms;
+import com.bigdata.rdf.sail.BigdataSail;
+import com.bigdata.rdf.sail.BigdataSailRepository;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
 import gov.pnnl.goss.cim2glm.queryhandler.QueryHandler;
 
-public class InternalBlazegraphQueryHandler implements QueryHandler{
-//	Repository repo;
-//	RepositoryConnection con;
-	
-	public InternalBlazegraphQueryHandler(){
-		File ieee8500 = new File("ieee13.xml");
-        
+/**
+ Runs the queries in-process against an embedded Blazegraph journal, without a server.
+ <p>The CIM XML file is loaded into the journal once. A small stamp file next to the journal
+ records which file (and which version of it) was loaded, so later runs reuse the journal
+ unless the CIM XML file changed.</p>
+*/
+public class InternalBlazegraphQueryHandler implements QueryHandler {
+	/** relative rdf:ID and rdf:about values resolve to this namespace, as in the commented-out prototype */
+	static final String szBaseURI = DistComponent.nsCIM;
+
+	BigdataSailRepository repo;
+	String mRID;
+	boolean use_mRID;
+
+	/**
+	 * @param cimFile CIM XML file to load
+	 * @param journalFile Blazegraph journal to create, or to reuse if it already holds cimFile
+	 */
+	public InternalBlazegraphQueryHandler(String cimFile, String journalFile) {
+		File cim = new File (cimFile);
+		File journal = new File (journalFile);
+		File stamp = new File (journalFile + ".source");
+		String source = cim.getAbsolutePath() + "\t" + Long.toString (cim.length()) + "\t" + Long.toString (cim.lastModified());
+		use_mRID = false;
+
+		boolean bLoaded = false;
 		try {
-//			File journal = File.createTempFile("bigdata", ".jnl");
-//			final String CIF = "http://iec.ch/TC57/2012/CIM-schema-cim16#";
-//			final String modelID = "_676B0EA4-162F-4D4A-8FDD-B5FB7C2B7270";
-//	        journal.deleteOnExit();
-//	        final Properties properties = new Properties();
-//	        properties.setProperty(BigdataSail.Options.FILE, journal
-//	                .getAbsolutePath());
-//	        
-//	        // instantiate a sail
-//	        BigdataSail sail = new BigdataSail(properties);
-//	        repo = new BigdataSailRepository(sail);
-//	        repo.initialize();
-//
-//	        con = repo.getConnection();
-//	        
-//	        String idQuery = "SELECT ?x WHERE {<"+CIF+modelID+"> ?p ?x}";
-//	        TupleQuery tupleQuery = con.prepareTupleQuery(QueryLanguage.SPARQL, idQuery);
-//	        TupleQueryResult result = tupleQuery.evaluate();
-//	        if(!result.hasNext()) {
-//	        	 System.out.println("ABOUT TO LOAD");
-//	        	 con.add(ieee8500, CIF, RDFFormat.RDFXML);
-//	 	        System.out.println("LOADED");
-//	        }
-//	        
-//	        con.close();
-        
-        
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} 
+			if (journal.exists() && stamp.exists()) {
+				String loaded = new String (Files.readAllBytes (stamp.toPath()), StandardCharsets.UTF_8).trim();
+				bLoaded = loaded.equals (source);
+			}
+			if (!bLoaded) {
+				journal.delete();
+				stamp.delete();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException ("can not read " + stamp, e);
+		}
+
+		Properties properties = new Properties();
+		properties.setProperty (BigdataSail.Options.FILE, journal.getAbsolutePath());
+		properties.setProperty (BigdataSail.Options.TRUTH_MAINTENANCE, "false");
+		properties.setProperty (BigdataSail.Options.QUADS, "false");
+		properties.setProperty (BigdataSail.Options.STATEMENT_IDENTIFIERS, "false");
+		properties.setProperty (BigdataSail.Options.TEXT_INDEX, "false");
+		properties.setProperty (BigdataSail.Options.AXIOMS_CLASS, NoAxioms.class.getName());
+
+		try {
+			repo = new BigdataSailRepository (new BigdataSail (properties));
+			repo.initialize();
+			if (!bLoaded) {
+				RepositoryConnection con = repo.getConnection();
+				try {
+					con.begin();
+					con.add (cim, szBaseURI, RDFFormat.RDFXML);
+					con.commit();
+				} catch (OpenRDFException | IOException e) {
+					con.rollback();
+					throw e;
+				} finally {
+					con.close();
+				}
+				Files.write (stamp.toPath(), source.getBytes (StandardCharsets.UTF_8));
+			}
+		} catch (OpenRDFException e) {
+			throw new RuntimeException ("can not load " + cimFile + " into " + journalFile, e);
+		} catch (IOException e) {
+			throw new UncheckedIOException ("can not load " + cimFile + " into " + journalFile, e);
+		}
+	}
+
+	private InternalBlazegraphQueryHandler(BigdataSailRepository repo) {
+		this.repo = repo;
+		use_mRID = false;
+	}
+
+	/** 
+	 *  For batch exports, where several feeders are loaded at once and each needs its own selection
+	 *  @param mRID the feeder to select
+	 *  @return a new handler on the same journal, selecting only that feeder; close only this handler, after all of them
+	 */
+	public InternalBlazegraphQueryHandler forFeeder (String mRID) {
+		InternalBlazegraphQueryHandler qh = new InternalBlazegraphQueryHandler (repo);
+		qh.addFeederSelection (mRID);
+		return qh;
 	}
 
 	@Override
 	public ResultSet query(String szQuery) {
-//		TupleQuery tupleQuery = con.prepareTupleQuery(QueryLanguage.SPARQL, szQuery);
-//		TupleQueryResult result = tupleQuery.evaluate();
-//		return result;
-		return null;
+		String szText = QueryTemplate.Get (szQuery).Bind (use_mRID ? mRID : null).serialize();
+		try {
+			RepositoryConnection con = repo.getReadOnlyConnection();
+			try {
+				TupleQuery tupleQuery = con.prepareTupleQuery (QueryLanguage.SPARQL, szText);
+				TupleQueryResult result = tupleQuery.evaluate();
+				try {
+					return ToJenaResultSet (result);
+				} finally {
+					result.close();
+				}
+			} finally {
+				con.close();
+			}
+		} catch (OpenRDFException e) {
+			throw new RuntimeException ("query failed on the embedded store: " + e.getMessage(), e);
+		}
+	}
+
+	/** copies the Sesame bindings into a Jena result set, so the Dist* constructors are unchanged; the rows are all read
+	 *  before the connection closes, so the result set just iterates over them */
+	private static ResultSet ToJenaResultSet (TupleQueryResult result) throws OpenRDFException {
+		List<String> vars = result.getBindingNames();
+		List<Binding> rows = new ArrayList<>();
+		while (result.hasNext()) {
+			BindingSet bs = result.next();
+			BindingMap row = BindingFactory.create();
+			for (String v : vars) {
+				Value val = bs.getValue (v);
+				if (val != null) {
+					row.add (Var.alloc (v), ToJenaNode (val));
+				}
+			}
+			rows.add (row);
+		}
+		return new ResultSetStream (vars, ModelFactory.createDefaultModel(), QueryIterPlainWrapper.create (rows.iterator()));
+	}
+
+	private static Node ToJenaNode (Value val) {
+		if (val instanceof URI) {
+			return NodeFactory.createURI (val.stringValue());
+		}
+		if (val instanceof BNode) {
+			return NodeFactory.createBlankNode (((BNode) val).getID());
+		}
+		Literal lit = (Literal) val;
+		if (lit.getLanguage() != null) {
+			return NodeFactory.createLiteral (lit.getLabel(), lit.getLanguage());
+		}
+		if (lit.getDatatype() != null) {
+			return NodeFactory.createLiteral (lit.getLabel(), TypeMapper.getInstance().getSafeTypeByName (lit.getDatatype().stringValue()));
+		}
+		return NodeFactory.createLiteral (lit.getLabel());
 	}
+
+	/** releases the journal; queries can not be made afterwards */
+	public void close() {
+		try {
+			repo.shutDown();
+		} catch (OpenRDFException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public boolean addFeederSelection (String mRID) {
-		return false;
+		this.mRID = mRID;
+		use_mRID = true;
+		return use_mRID;
 	}
 	public boolean clearFeederSelections () {
-		return false;
+		use_mRID = false;
+		return use_mRID;
 	}
 	public String getFeederSelection () {
-		return "";
+		return mRID;
 	}
 }
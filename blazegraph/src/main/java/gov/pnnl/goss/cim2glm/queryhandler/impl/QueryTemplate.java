@@ -0,0 +1,128 @@
+package gov.pnnl.goss.cim2glm.queryhandler.impl;
+//	----------------------------------------------------------
+//	Copyright (c) 2018, Battelle Memorial Institute
+//	All rights reserved.
+//	----------------------------------------------------------
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementOptional;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementUnion;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+
+import gov.pnnl.goss.cim2glm.components.DistComponent;
+
+/**
+ One of the Dist*.szQUERY strings, prepared once and then bound to a feeder for each use.
+ <p>The feeder goes into a VALUES block for ?fdrid at the start of the last WHERE clause, i.e.
+ the innermost sub-select if there are any. Bind adds the block to the parsed query's syntax tree,
+ copying only the groups on the path to it, so each feeder costs neither a parse nor a copy of the
+ whole query, and the mRID is a literal node that can not change the query. The handlers that send
+ text to an endpoint serialize the bound query.</p>
+ <p>Templates are kept by query string for the life of the JVM, so batch exports of many
+ feeders and repeated exports parse each query once.</p>
+*/
+public class QueryTemplate {
+	static final String PREFIX = "PREFIX r: <" + DistComponent.nsRDF + "> PREFIX c: <" + DistComponent.nsCIM +
+		"> PREFIX xsd:<" + DistComponent.nsXSD + "> ";
+	static final Var FEEDER = Var.alloc ("fdrid");
+
+	private static final ConcurrentHashMap<String,QueryTemplate> templates = new ConcurrentHashMap<>();
+
+	private final String szQuery;
+	/** parsed by the first Bind */
+	private Query query = null;
+
+	private QueryTemplate (String szQuery) {
+		this.szQuery = szQuery;
+	}
+
+	/** @return the template for one of the Dist*.szQUERY strings, made on first use */
+	public static QueryTemplate Get (String szQuery) {
+		return templates.computeIfAbsent (szQuery, QueryTemplate::new);
+	}
+
+	/**
+	 *  @param mRID the selected feeder, or null for all feeders
+	 *  @return the parsed query, restricted to the selected feeder; it may share parts with the template, so do not modify it
+	 */
+	public Query Bind (String mRID) {
+		Query query = Parsed ();
+		if (mRID == null) {
+			return query;
+		}
+		ElementData data = new ElementData ();
+		data.add (FEEDER);
+		data.add (BindingFactory.binding (FEEDER, NodeFactory.createLiteral (mRID)));
+		return WithValues (query, data);
+	}
+
+	private synchronized Query Parsed () {
+		if (query == null) {
+			query = QueryFactory.create (PREFIX + szQuery);
+			query.setResultVars (); // fixes the lazily computed result variables, so concurrent executions only read
+		}
+		return query;
+	}
+
+	/** @return a copy of q with data at the start of its last WHERE clause */
+	private static Query WithValues (Query q, ElementData data) {
+		Query copy = QueryTransformOps.shallowCopy (q);
+		Element pattern = q.getQueryPattern();
+		Element inner = WithValues (pattern, data);
+		if (inner == null) {
+			ElementGroup group = new ElementGroup ();
+			group.addElement (data);
+			if (pattern instanceof ElementGroup) {
+				for (Element el : ((ElementGroup) pattern).getElements()) {
+					group.addElement (el);
+				}
+			} else if (pattern != null) {
+				group.addElement (pattern);
+			}
+			inner = group;
+		}
+		copy.setQueryPattern (inner);
+		return copy;
+	}
+
+	/** @return a copy of el with data in its last sub-select, or null if it has none */
+	private static Element WithValues (Element el, ElementData data) {
+		if (el instanceof ElementSubQuery) {
+			return new ElementSubQuery (WithValues (((ElementSubQuery) el).getQuery(), data));
+		} else if (el instanceof ElementOptional) {
+			Element inner = WithValues (((ElementOptional) el).getOptionalElement(), data);
+			return inner == null ? null : new ElementOptional (inner);
+		} else if (el instanceof ElementGroup || el instanceof ElementUnion) {
+			List<Element> elements = (el instanceof ElementGroup) ? ((ElementGroup) el).getElements() : ((ElementUnion) el).getElements();
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				Element inner = WithValues (elements.get (i), data);
+				if (inner != null) {
+					if (el instanceof ElementGroup) {
+						ElementGroup copy = new ElementGroup ();
+						for (int j = 0; j < elements.size(); j++) {
+							copy.addElement (j == i ? inner : elements.get (j));
+						}
+						return copy;
+					}
+					ElementUnion copy = new ElementUnion ();
+					for (int j = 0; j < elements.size(); j++) {
+						copy.addElement (j == i ? inner : elements.get (j));
+					}
+					return copy;
+				}
+			}
+		}
+		return null;
+	}
+}